@@ -27,8 +27,6 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Stack;
 
 import static settings.AppPropertyTypes.*;
 import static settings.AppPropertyTypes.SAVE_FILE_EXT_DESC;
@@ -161,12 +159,8 @@ public final class AppActions implements ActionComponent {
         if (dialog.getSelectedOption() == null) return false;   // If user closes dialog using the window's close button
 
         if (dialog.getSelectedOption().equals(ConfirmationDialog.Option.YES)) {     // If the users selects YES
-            ArrayList<String> data = new ArrayList<>();
-            String[] textArea =((AppUI) applicationTemplate.getUIComponent()).getCurrentText().split("\n");
-            for (String line : textArea) {
-                data.add(line);
-            }
-            int x = ((AppData) applicationTemplate.getDataComponent()).parseData(data);
+            String text = ((AppUI) applicationTemplate.getUIComponent()).getCurrentText();
+            int x = ((AppData) applicationTemplate.getDataComponent()).parseText(text);
 
             if (x == 0) {
                 if (dataFilePath == null) {     // If there no dataFilePath it means that this file is not stored anywhere so we have to find a place to store it
@@ -199,20 +193,14 @@ public final class AppActions implements ActionComponent {
         }
         else if (dialog.getSelectedOption().equals(ConfirmationDialog.Option.NO)) {
             setIsUnsavedProperty(false);
-            Stack<String> empty = new Stack<>();
-            ((AppData) applicationTemplate.getDataComponent()).setExtraLines(empty);
             return true;
         }
         return !dialog.getSelectedOption().equals(ConfirmationDialog.Option.CANCEL);    // If CANCEL is selected, return false
     }
 
     private void save() {
-        ArrayList<String> data = new ArrayList<>();
-        String[] textArea = ((AppUI) applicationTemplate.getUIComponent()).getCurrentText().split("\n");
-        for (String line : textArea) {
-            data.add(line);
-        }
-        int x = ((AppData) applicationTemplate.getDataComponent()).parseData(data);
+        String text = ((AppUI) applicationTemplate.getUIComponent()).getCurrentText();
+        int x = ((AppData) applicationTemplate.getDataComponent()).parseText(text);
         if (x == 0) {
             applicationTemplate.getDataComponent().saveData(dataFilePath);
         } else {
@@ -231,12 +219,8 @@ public final class AppActions implements ActionComponent {
         if (dataDirURL == null)
             throw new FileNotFoundException(manager.getPropertyValue(RESOURCE_SUBDIR_NOT_FOUND.name()));
 
-        ArrayList<String> data = new ArrayList<>();
-        String[] textArea =((AppUI) applicationTemplate.getUIComponent()).getCurrentText().split("\n");
-        for (String line : textArea) {
-            data.add(line);
-        }
-        int x = ((AppData) applicationTemplate.getDataComponent()).parseData(data);
+        String text = ((AppUI) applicationTemplate.getUIComponent()).getCurrentText();
+        int x = ((AppData) applicationTemplate.getDataComponent()).parseText(text);
 
         if (x == 0) {
             fileChooser.setInitialDirectory(new File(dataDirURL.getFile()));
@@ -257,7 +241,7 @@ public final class AppActions implements ActionComponent {
     }
 
     public void saveAsPng() throws IOException {
-        WritableImage image = ((AppUI) applicationTemplate.getUIComponent()).getChart().snapshot(new SnapshotParameters(), null);
+        WritableImage image = ((AppUI) applicationTemplate.getUIComponent()).getChartNode().snapshot(new SnapshotParameters(), null);
 
         PropertyManager manager = PropertyManager.getManager();
         FileChooser fileChooser = new FileChooser();
@@ -286,7 +270,13 @@ public final class AppActions implements ActionComponent {
 
     }
 
-    private boolean load() {
+    /**
+     * Lets the user choose a data file and starts loading it in the background.
+     *
+     * @param onFinished run once the load has finished
+     * @return <code>false</code> if the user did not choose a file
+     */
+    private boolean load(Runnable onFinished) {
         PropertyManager manager = PropertyManager.getManager();
         FileChooser fileChooser = new FileChooser();
 
@@ -297,13 +287,11 @@ public final class AppActions implements ActionComponent {
         File selected = fileChooser.showOpenDialog(applicationTemplate.getUIComponent().getPrimaryWindow());
         if (selected != null) {
             dataFilePath = selected.toPath();
-            applicationTemplate.getDataComponent().loadData(dataFilePath);
+            ((AppData) applicationTemplate.getDataComponent()).loadData(dataFilePath, onFinished);
         }
         else {
             return false;
         }
-        Stack<String> empty = new Stack<>();
-        ((AppData) applicationTemplate.getDataComponent()).setExtraLines(empty);
         return true;
     }
 
@@ -388,6 +376,7 @@ public final class AppActions implements ActionComponent {
                 stopAlgorithm();
             }
             if (!isUnsaved.get() || promptToSave()) {
+                ((AppData) applicationTemplate.getDataComponent()).cancelLoad();
                 applicationTemplate.getDataComponent().clear();
                 applicationTemplate.getUIComponent().clear();
                 isUnsaved.set(false);
@@ -410,28 +399,34 @@ public final class AppActions implements ActionComponent {
     private void loadRequestActions() {
         try {
             if (!isUnsaved.get() || promptToSave()) {
-                if (load()) {
-                    if (((AppUI) applicationTemplate.getUIComponent()).getRunningThread() != null) {
-                        stopAlgorithm();
-                    }
-                    if (isDataValid) {
-                        ((AppUI) applicationTemplate.getUIComponent()).displayLeftPane();
-                        ((AppUI) applicationTemplate.getUIComponent()).disableTextArea(true);
-                        ((AppUI) applicationTemplate.getUIComponent()).disableDoneEditButton(true);
-                        ((AppUI) applicationTemplate.getUIComponent()).disableSaveButton(true);
-                        ((AppUI) applicationTemplate.getUIComponent()).disableNewButton(false);
-                        ((AppUI) applicationTemplate.getUIComponent()).enableAlgorithmTypes(true);
-                        ((AppUI) applicationTemplate.getUIComponent()).getSelectionPane().getChildren().clear();
-                        isUnsaved.set(false);
-                        ((AppUI) applicationTemplate.getUIComponent()).getScrnshotButton().setDisable(true);
-                        ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setVisible(false);
-                        isLoadedData = true;
-                        ((AppUI) applicationTemplate.getUIComponent()).resetUI();
-                    } else {
-                        if (((AppUI) applicationTemplate.getUIComponent()).getCurrentText() == null) {
-                            ((AppUI) applicationTemplate.getUIComponent()).enableAlgorithmTypes(false);
-                        }
-                    }
+                load(this::loadFinishedActions);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void loadFinishedActions() {
+        try {
+            if (((AppUI) applicationTemplate.getUIComponent()).getRunningThread() != null) {
+                stopAlgorithm();
+            }
+            if (isDataValid) {
+                ((AppUI) applicationTemplate.getUIComponent()).displayLeftPane();
+                ((AppUI) applicationTemplate.getUIComponent()).disableTextArea(true);
+                ((AppUI) applicationTemplate.getUIComponent()).disableDoneEditButton(true);
+                ((AppUI) applicationTemplate.getUIComponent()).disableSaveButton(true);
+                ((AppUI) applicationTemplate.getUIComponent()).disableNewButton(false);
+                ((AppUI) applicationTemplate.getUIComponent()).enableAlgorithmTypes(true);
+                ((AppUI) applicationTemplate.getUIComponent()).getSelectionPane().getChildren().clear();
+                isUnsaved.set(false);
+                ((AppUI) applicationTemplate.getUIComponent()).getScrnshotButton().setDisable(true);
+                ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setVisible(false);
+                isLoadedData = true;
+                ((AppUI) applicationTemplate.getUIComponent()).resetUI();
+            } else {
+                if (((AppUI) applicationTemplate.getUIComponent()).getCurrentText() == null) {
+                    ((AppUI) applicationTemplate.getUIComponent()).enableAlgorithmTypes(false);
                 }
             }
         } catch (Exception e) {
@@ -23,4 +23,14 @@ public abstract class Classifier implements Algorithm {
 
     public List<Integer> getOutput() { return output; }
 
+    /**
+     * @return the coefficients <code>a, b, c</code> of the line <code>a x + b y + c = 0</code>, at full precision, or
+     * <code>null</code> if there is no line yet. By default they are read from the {@link #output}; a classifier whose
+     * line does not have integer coefficients gives them here.
+     */
+    public double[] getCoefficients() {
+        List<Integer> line = output;
+        return line == null ? null : new double[]{line.get(0), line.get(1), line.get(2)};
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,193 @@
+package algorithms;
+
+import data.DataSet;
+import javafx.application.Platform;
+import settings.AppPropertyTypes;
+import ui.AppUI;
+import ui.DataVisualizer;
+import vilij.propertymanager.PropertyManager;
+import vilij.templates.ApplicationTemplate;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static settings.AppPropertyTypes.DBSCAN_EPSILON;
+import static settings.AppPropertyTypes.DBSCAN_MIN_POINTS;
+import static settings.AppPropertyTypes.DBSCAN_NOISE_LABEL;
+import static settings.AppPropertyTypes.RUN_BUTTON_TEXT;
+
+/**
+ * A clusterer that finds the dense regions of the data as clusters, by DBSCAN as {@link DBSCANEngine} runs it, one
+ * cluster per iteration. The number of clusters is found rather than given, so the number of labels of the run
+ * configuration is not used. The instances in no cluster are labeled as noise, as are those not yet reached when the
+ * maximum number of iterations runs out.
+ * <p>
+ * The radius of the neighborhoods is a fraction of the bounds of the data, by which the x and the y values are scaled
+ * apart, as they are in the chart: a radius of 0.02 is 2% of the width of the chart across and 2% of its height up and
+ * down.
+ */
+public class DBSCANClusterer extends Clusterer {
+
+    ApplicationTemplate applicationTemplate = DataVisualizer.getApplicationTemplate();
+
+    private DataSet      dataset;
+    private DBSCANEngine engine;
+    private int[]        clusterLabelIds = new int[0];   // the id in the dataset of the label of each cluster so far
+    private int          noiseLabelId;
+    private double       epsilon;                        // the radius, or 0 for the radius in the properties
+    private int          minPoints;                      // the density of a core point, or 0 for that in the properties
+
+    private final int           maxIterations;
+    private final int           updateInterval;
+    private final AtomicBoolean tocontinue;
+    private final boolean continuousRun;
+    private boolean stop = false;
+
+    public void setStop(boolean stop) {
+        this.stop = stop;
+    }
+
+    public DBSCANClusterer(DataSet dataset, int maxIterations, int updateInterval, int numberOfClusters, boolean continuousRun) {
+        super(numberOfClusters);
+        this.dataset = dataset;
+        this.maxIterations = maxIterations;
+        this.updateInterval = updateInterval;
+        this.tocontinue = new AtomicBoolean(false);
+        this.continuousRun = continuousRun;
+    }
+
+    @Override
+    public int getMaxIterations() { return maxIterations; }
+
+    @Override
+    public int getUpdateInterval() { return updateInterval; }
+
+    @Override
+    public boolean tocontinue() { return tocontinue.get(); }
+
+    public boolean getContinuousRun() { return continuousRun; }
+
+    /** Sets the radius of the neighborhoods, as a fraction of the width and the height of the bounds of the data. */
+    public void setEpsilon(double epsilon) { this.epsilon = epsilon; }
+
+    /** Sets the number of instances, itself included, within the radius of an instance at the core of a cluster. */
+    public void setMinPoints(int minPoints) { this.minPoints = Math.max(minPoints, 1); }
+
+    @Override
+    public void run() {
+        if(continuousRun) {
+            continuousRun();
+        }
+        else {
+            nonContinuousRun();
+        }
+    }
+
+    /** Indexes the locations of the instances, and labels every instance as noise until it is found in a cluster. */
+    private void initializeClusters() {
+        PropertyManager manager = applicationTemplate.manager;
+        if (epsilon <= 0)
+            epsilon = Double.parseDouble(manager.getPropertyValue(DBSCAN_EPSILON.name()));
+        if (minPoints == 0)
+            minPoints = Math.max(Integer.parseInt(manager.getPropertyValue(DBSCAN_MIN_POINTS.name())), 1);
+        double[] xs   = dataset.getXs();
+        double[] ys   = dataset.getYs();
+        int      size = dataset.size();
+        double   xMin = Double.POSITIVE_INFINITY;
+        double   xMax = Double.NEGATIVE_INFINITY;
+        double   yMin = Double.POSITIVE_INFINITY;
+        double   yMax = Double.NEGATIVE_INFINITY;
+        for (int row = 0; row < size; row++) {
+            xMin = Math.min(xMin, xs[row]);
+            xMax = Math.max(xMax, xs[row]);
+            yMin = Math.min(yMin, ys[row]);
+            yMax = Math.max(yMax, ys[row]);
+        }
+        double xScale = xMax > xMin ? 1 / (xMax - xMin) : 1;
+        double yScale = yMax > yMin ? 1 / (yMax - yMin) : 1;
+        engine = new DBSCANEngine(xs, ys, size, xScale, yScale, epsilon, minPoints);
+        noiseLabelId = dataset.labelIdOf(manager.getPropertyValue(DBSCAN_NOISE_LABEL.name()));
+        for (int row = 0; row < size; row++)
+            dataset.setLabelId(row, noiseLabelId);
+        tocontinue.set(size > 0);
+    }
+
+    /** Writes the cluster of each instance found so far into the dataset as its label. */
+    private void assignLabels() {
+        if (clusterLabelIds.length < engine.getClusterCount()) {
+            int found = clusterLabelIds.length;
+            clusterLabelIds = Arrays.copyOf(clusterLabelIds, engine.getClusterCount());
+            for (int c = found; c < clusterLabelIds.length; c++)
+                clusterLabelIds[c] = dataset.labelIdOf(Integer.toString(c));
+        }
+        int[] clusters = engine.getClusters();
+        for (int row = 0; row < clusters.length; row++)
+            dataset.setLabelId(row, clusters[row] >= 0 ? clusterLabelIds[clusters[row]] : noiseLabelId);
+    }
+
+    /** Has the chart show a copy of the labels assigned so far, while the labels go on changing. */
+    private void publishLabels() {
+        assignLabels();
+        AppUI   ui       = (AppUI) applicationTemplate.getUIComponent();
+        DataSet snapshot = dataset.copyLabels();
+        ui.getUpdateScheduler().publish(() -> ui.updateChart(snapshot));
+    }
+
+    private void continuousRun() {
+        initializeClusters();
+        int iteration = 1;
+        while (iteration++ <= maxIterations & tocontinue.get()) {
+            if (stop) {
+                try {
+                    synchronized (((AppUI) applicationTemplate.getUIComponent()).getRunningThread()) {
+                        Platform.runLater(() -> {
+                            ((AppUI) applicationTemplate.getUIComponent()).setRunningThread(null);
+                        });
+                        ((AppUI) applicationTemplate.getUIComponent()).getRunningThread().wait();
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+            tocontinue.set(engine.nextCluster());
+            if (iteration % updateInterval == 0) {
+                publishLabels();
+                System.out.printf("Iteration number %d: \n", iteration);
+            }
+        }
+        publishLabels();
+        ((AppUI) applicationTemplate.getUIComponent()).algorithmFinished();
+    }
+
+    private void nonContinuousRun() {
+        initializeClusters();
+        int iteration = 1;
+        while (iteration++ <= maxIterations & tocontinue.get()) {
+            tocontinue.set(engine.nextCluster());
+            if (iteration % updateInterval == 0) {
+                System.out.printf("Iteration number %d: \n", iteration);
+                publishLabels();
+                Platform.runLater(() -> {
+                    PropertyManager manager = applicationTemplate.manager;
+                    ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setText(manager.getPropertyValue(AppPropertyTypes.RESUME_BUTTON_TEXT.name()));
+                    if (((AppUI) applicationTemplate.getUIComponent()).getRunningThread() == null) {
+                        ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setText(manager.getPropertyValue(RUN_BUTTON_TEXT.name()));
+                    }
+                });
+                if (iteration != maxIterations) {
+                    try {
+                        synchronized ((((AppUI) applicationTemplate.getUIComponent()).getRunningThread())) {
+                            ((AppUI) applicationTemplate.getUIComponent()).getScrnshotButton().setDisable(false);
+                            ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setDisable(false);
+                            ((AppUI) applicationTemplate.getUIComponent()).getRunningThread().wait();
+                        }
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+        publishLabels();
+        ((AppUI) applicationTemplate.getUIComponent()).algorithmFinished();
+    }
+}
\ No newline at end of file
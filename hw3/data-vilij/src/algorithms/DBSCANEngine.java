@@ -0,0 +1,136 @@
+package algorithms;
+
+import spatial.KdTree;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * The arithmetic of DBSCAN, density-based clustering after Ester, Kriegel, Sander and Xu. A point with at least a
+ * minimum number of points, itself included, within a radius of it is a core point; a cluster is the core points that
+ * are within the radius of one another, one after the other, and the points within the radius of any of them. The
+ * points that belong to no cluster are noise. Unlike k-means, the number of clusters is not fixed beforehand, and
+ * clusters may take any shape.
+ * <p>
+ * The neighbors of a point are found through a {@link KdTree} built once over the points, so that the clustering takes
+ * <i>O(n</i> log <i>n)</i> time for points that are spread out rather than <i>O(n<sup>2</sup>)</i>, and the neighbors
+ * of each point are looked up at most once. Distances are scaled per axis, so that the radius may be given in the
+ * units in which the points are plotted.
+ */
+public final class DBSCANEngine {
+
+    /** The cluster of a point that is in none, noise. */
+    public static final int NOISE = -1;
+
+    /** The cluster of a point not yet reached. */
+    public static final int UNVISITED = -2;
+
+    private final double[] xs;
+    private final double[] ys;
+    private final int      size;
+    private final double   xScale;
+    private final double   yScale;
+    private final double   radius;
+    private final int      minPoints;
+    private final KdTree   tree;
+
+    private final int[]       clusters;                  // the cluster of each point, NOISE, or UNVISITED
+    private final IntConsumer collector = this::collect;
+    private int[]             neighbors = new int[16];   // the neighbors of the point last looked up
+    private int               neighborCount;
+    private int[]             queue     = new int[16];   // the points of the growing cluster yet to be looked up
+    private int               queued;
+    private int               next;                      // the first point that may not have been reached
+    private int               clusterCount;
+
+    /**
+     * @param xs        the x value of each point, read but not copied
+     * @param ys        the y value of each point, read but not copied
+     * @param size      the number of points
+     * @param xScale    the factor differences of x are multiplied by in distances
+     * @param yScale    the factor differences of y are multiplied by in distances
+     * @param radius    the largest scaled distance at which points are neighbors
+     * @param minPoints the number of points, a point itself included, within the radius of a core point
+     */
+    public DBSCANEngine(double[] xs, double[] ys, int size, double xScale, double yScale, double radius,
+                        int minPoints) {
+        this.xs = xs;
+        this.ys = ys;
+        this.size = size;
+        this.xScale = xScale;
+        this.yScale = yScale;
+        this.radius = radius;
+        this.minPoints = Math.max(minPoints, 1);
+        tree = new KdTree(xs, ys, size);
+        clusters = new int[size];
+        Arrays.fill(clusters, UNVISITED);
+    }
+
+    public int getSize()         { return size; }
+
+    /** @return the number of clusters found so far */
+    public int getClusterCount() { return clusterCount; }
+
+    /**
+     * @return the cluster of each point, from 0, or {@link #NOISE} or {@link #UNVISITED}; the array is updated in
+     * place, not copied
+     */
+    public int[] getClusters()   { return clusters; }
+
+    /**
+     * Finds the next cluster, in order of the first of its core points, and marks the points passed over on the way to
+     * it as noise.
+     *
+     * @return <code>false</code> if every point has been reached, and there are no more clusters
+     */
+    public boolean nextCluster() {
+        for (; next < size; next++) {
+            if (clusters[next] != UNVISITED)
+                continue;
+            if (lookUp(next) < minPoints) {
+                clusters[next] = NOISE;         // for now; a core point may yet reach it
+                continue;
+            }
+            int cluster = clusterCount++;
+            clusters[next] = cluster;
+            claimNeighbors(cluster);
+            while (queued > 0) {
+                if (lookUp(queue[--queued]) >= minPoints)
+                    claimNeighbors(cluster);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /** @return the number of neighbors of a point, itself included, which are collected until the next look-up */
+    private int lookUp(int row) {
+        neighborCount = 0;
+        tree.within(xs[row], ys[row], xScale, yScale, radius, collector);
+        return neighborCount;
+    }
+
+    private void collect(int row) {
+        if (neighborCount == neighbors.length)
+            neighbors = Arrays.copyOf(neighbors, 2 * neighborCount);
+        neighbors[neighborCount++] = row;
+    }
+
+    /**
+     * Adds the neighbors of a core point that are in no cluster yet to the given one, queueing those not yet reached
+     * to be looked up in turn.
+     */
+    private void claimNeighbors(int cluster) {
+        for (int i = 0; i < neighborCount; i++) {
+            int row = neighbors[i];
+            if (clusters[row] == UNVISITED) {
+                clusters[row] = cluster;
+                if (queued == queue.length)
+                    queue = Arrays.copyOf(queue, 2 * queued);
+                queue[queued++] = row;
+            } else if (clusters[row] == NOISE) {
+                clusters[row] = cluster;        // a border point, which extends the cluster no further
+            }
+        }
+    }
+}
@@ -2,22 +2,17 @@ package algorithms;
 
 import data.DataSet;
 import javafx.application.Platform;
-import javafx.geometry.Point2D;
 import settings.AppPropertyTypes;
 import ui.AppUI;
 import ui.DataVisualizer;
 import vilij.propertymanager.PropertyManager;
 import vilij.templates.ApplicationTemplate;
 
-import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.*;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static settings.AppPropertyTypes.KMEANS_RESTARTS;
 import static settings.AppPropertyTypes.RUN_BUTTON_TEXT;
 
 /**
@@ -25,10 +20,20 @@ import static settings.AppPropertyTypes.RUN_BUTTON_TEXT;
  */
 public class KMeansClusterer extends Clusterer {
 
+    /**
+     * The number of instances from which iterations are run in parallel. Parallel and sequential iterations give the
+     * same results, so this only decides when splitting the work is worth its overhead.
+     */
+    private static final int PARALLEL_THRESHOLD = 4 * KMeansEngine.BLOCK_SIZE;
+
     ApplicationTemplate applicationTemplate = DataVisualizer.getApplicationTemplate();
 
-    private DataSet dataset;
-    private List<Point2D> centroids;
+    private DataSet        dataset;
+    private KMeansEngine[] engines;           // one per restart
+    private boolean[]      moving;            // whether each restart's centroids moved in its last iteration
+    private int[]          clusterLabelIds;   // the id in the dataset of the label of each cluster
+    private Long           seed;              // the seed of the random seeding, or null for a different one every run
+    private int            restarts;          // the number of restarts, or 0 for the number in the properties
 
     private final int           maxIterations;
     private final int           updateInterval;
@@ -59,6 +64,16 @@ public class KMeansClusterer extends Clusterer {
     public boolean tocontinue() { return tocontinue.get(); }
 
     public boolean getContinuousRun() { return continuousRun; }
+
+    /** Seeds the random choice of initial centroids, so that runs on the same data give the same clusters. */
+    public void setSeed(long seed) { this.seed = seed; }
+
+    /**
+     * Sets the number of times the clustering is restarted from different initial centroids. The restarts run side by
+     * side, and the one with the least within-cluster sum of squares is shown.
+     */
+    public void setRestarts(int restarts) { this.restarts = Math.max(restarts, 1); }
+
     @Override
     public void run() {
         if(continuousRun) {
@@ -70,57 +85,59 @@ public class KMeansClusterer extends Clusterer {
     }
 
     private void initializeCentroids() {
-        Set<String>  chosen        = new HashSet<>();
-        List<String> instanceNames = new ArrayList<>(dataset.getLabels().keySet());
-        Random       r             = new Random();
-        while (chosen.size() < numberOfClusters) {
-            int i = r.nextInt(instanceNames.size());
-            while (chosen.contains(instanceNames.get(i)))
-                i = (++i % instanceNames.size());
-            chosen.add(instanceNames.get(i));
+        if (restarts == 0)
+            restarts = Math.max(Integer.parseInt(applicationTemplate.manager.getPropertyValue(KMEANS_RESTARTS.name())), 1);
+        int    size  = dataset.size();
+        Random seeds = seed == null ? new Random() : new Random(seed);
+        engines = new KMeansEngine[restarts];
+        moving = new boolean[restarts];
+        for (int r = 0; r < restarts; r++) {
+            engines[r] = new KMeansEngine(dataset.getXs(), dataset.getYs(), size, numberOfClusters,
+                                          size >= PARALLEL_THRESHOLD);
+            engines[r].setAccelerated(true);
+            engines[r].seed(new Random(seeds.nextLong()));
+            moving[r] = true;
         }
-        centroids = chosen.stream().map(name -> dataset.getLocations().get(name)).collect(Collectors.toList());
-        tocontinue.set(true);
+        clusterLabelIds = new int[numberOfClusters];
+        for (int c = 0; c < numberOfClusters; c++)
+            clusterLabelIds[c] = dataset.labelIdOf(Integer.toString(c));
+        tocontinue.set(size > 0);
     }
 
-    private void assignLabels() {
-        dataset.getLocations().forEach((instanceName, location) -> {
-            double minDistance      = Double.MAX_VALUE;
-            int    minDistanceIndex = -1;
-            for (int i = 0; i < centroids.size(); i++) {
-                double distance = computeDistance(centroids.get(i), location);
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    minDistanceIndex = i;
-                }
-            }
-            dataset.getLabels().put(instanceName, Integer.toString(minDistanceIndex));
-        });
+    /**
+     * Iterates each restart whose centroids are still moving, the restarts side by side.
+     *
+     * @return whether any restart's centroids moved
+     */
+    private boolean iterate() {
+        if (engines.length == 1)
+            moving[0] = engines[0].iterate();
+        else
+            IntStream.range(0, engines.length).parallel().filter(r -> moving[r]).forEach(r -> moving[r] = engines[r].iterate());
+        boolean anyMoving = false;
+        for (boolean restartMoving : moving)
+            anyMoving |= restartMoving;
+        return anyMoving;
     }
 
-    private void recomputeCentroids() {
-        tocontinue.set(false);
-        IntStream.range(0, numberOfClusters).forEach(i -> {
-            AtomicInteger clusterSize = new AtomicInteger();
-            Point2D sum = dataset.getLabels()
-                    .entrySet()
-                    .stream()
-                    .filter(entry -> i == Integer.parseInt(entry.getValue()))
-                    .map(entry -> dataset.getLocations().get(entry.getKey()))
-                    .reduce(new Point2D(0, 0), (p, q) -> {
-                        clusterSize.incrementAndGet();
-                        return new Point2D(p.getX() + q.getX(), p.getY() + q.getY());
-                    });
-            Point2D newCentroid = new Point2D(sum.getX() / clusterSize.get(), sum.getY() / clusterSize.get());
-            if (!newCentroid.equals(centroids.get(i))) {
-                centroids.set(i, newCentroid);
-                tocontinue.set(true);
-            }
-        });
+    /** Writes the cluster of each instance in the restart with the least inertia into the dataset as its label. */
+    private void assignLabels() {
+        KMeansEngine best = engines[0];
+        for (KMeansEngine engine : engines) {
+            if (engine.getInertia() < best.getInertia())
+                best = engine;
+        }
+        int[] assignments = best.getAssignments();
+        for (int row = 0; row < assignments.length; row++)
+            dataset.setLabelId(row, clusterLabelIds[assignments[row]]);
     }
 
-    private static double computeDistance(Point2D p, Point2D q) {
-        return Math.sqrt(Math.pow(p.getX() - q.getX(), 2) + Math.pow(p.getY() - q.getY(), 2));
+    /** Has the chart show a copy of the labels assigned so far, while the labels go on changing. */
+    private void publishLabels() {
+        assignLabels();
+        AppUI   ui       = (AppUI) applicationTemplate.getUIComponent();
+        DataSet snapshot = dataset.copyLabels();
+        ui.getUpdateScheduler().publish(() -> ui.updateChart(snapshot));
     }
 
     private void continuousRun() {
@@ -139,20 +156,13 @@ public class KMeansClusterer extends Clusterer {
                     e.printStackTrace();
                 }
             }
-            assignLabels();
+            tocontinue.set(iterate());
             if (iteration % updateInterval == 0) {
-                Platform.runLater(() -> {
-                    ((AppUI) applicationTemplate.getUIComponent()).updateChart(dataset.getLabels(), dataset.getLocations());
-                });
+                publishLabels();
                 System.out.printf("Iteration number %d: \n", iteration);
-                try {
-                    Thread.sleep(1000);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
             }
-            recomputeCentroids();
         }
+        publishLabels();
         ((AppUI) applicationTemplate.getUIComponent()).algorithmFinished();
     }
 
@@ -160,12 +170,12 @@ public class KMeansClusterer extends Clusterer {
         initializeCentroids();
         int iteration = 1;
         while (iteration++ <= maxIterations & tocontinue.get()) {
-            assignLabels();
+            tocontinue.set(iterate());
             if (iteration % updateInterval == 0) {
                 System.out.printf("Iteration number %d: \n", iteration);
+                publishLabels();
                 Platform.runLater(() -> {
                     PropertyManager manager = applicationTemplate.manager;
-                    ((AppUI) applicationTemplate.getUIComponent()).updateChart(dataset.getLabels(), dataset.getLocations());
                     ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setText(manager.getPropertyValue(AppPropertyTypes.RESUME_BUTTON_TEXT.name()));
                     if (((AppUI) applicationTemplate.getUIComponent()).getRunningThread() == null) {
                         ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setText(manager.getPropertyValue(RUN_BUTTON_TEXT.name()));
@@ -183,8 +193,8 @@ public class KMeansClusterer extends Clusterer {
                     }
                 }
             }
-            recomputeCentroids();
         }
+        publishLabels();
         ((AppUI) applicationTemplate.getUIComponent()).algorithmFinished();
     }
 }
\ No newline at end of file
@@ -0,0 +1,325 @@
+package algorithms;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The arithmetic of k-means over the columns of a {@link data.DataSet}. Points are read from the <code>double[]</code>
+ * location columns, the cluster of each point is kept in an <code>int[]</code>, and the centroids and the running sums
+ * they are recomputed from are arrays allocated once, so an iteration allocates nothing.
+ * <p>
+ * Each {@link #iterate() iteration} is a single pass over the points that assigns each point to its nearest centroid,
+ * by squared distance, and adds it to the sums of that cluster; the centroids are then moved to the means of their
+ * clusters. A centroid whose cluster is empty stays where it is. The centroids are either placed by the caller or
+ * {@link #seed(Random) seeded} by k-means++.
+ * <p>
+ * The points are split into blocks of a fixed size, each with its own partial sums, and the partial sums are added up
+ * block by block in order. In parallel mode, the blocks are assigned on {@link ForkJoinPool} workers, but since the
+ * blocks and the order their sums are added in are the same in both modes, both modes compute bit-identical
+ * centroids and assignments.
+ * <p>
+ * An {@link #setAccelerated(boolean) accelerated} engine skips the distances that cannot change a point's cluster, as
+ * in Hamerly's algorithm. It keeps, for each point, an upper bound on its distance to its own centroid and a lower
+ * bound on its distance to any other; by the triangle inequality, moving the centroids loosens the bounds by no more
+ * than the centroids moved. A point needs no distances at all when its upper bound is below both its lower bound and
+ * half the distance from its centroid to the nearest other centroid, and one distance when tightening the upper bound
+ * is enough; only the remaining points are compared with every centroid. Once most points have settled into their
+ * clusters, an iteration costs little more than adding up the sums. The clusters are those of the plain algorithm,
+ * but for points equally near two centroids.
+ */
+public final class KMeansEngine {
+
+    /** The number of points in a block of partial sums. */
+    static final int BLOCK_SIZE = 1 << 13;
+
+    /** The number of tasks a parallel iteration is split into per worker, to even out the load. */
+    private static final int TASKS_PER_WORKER = 4;
+
+    private final double[]    xs;
+    private final double[]    ys;
+    private final int         size;
+    private final int         k;
+
+    private final int[]       assignments;
+    private final double[]    centroidXs;
+    private final double[]    centroidYs;
+    private final int         blocks;
+    private final double[]    sumXs;        // the partial sums of each block, k per block
+    private final double[]    sumYs;
+    private final int[]       counts;
+    private final BlockTask[] tasks;        // the tasks of a parallel iteration, reused from one to the next
+    private double            inertia = Double.NaN;     // NaN until computed for the current clustering
+
+    private double[]          upper;        // the bounds of an accelerated engine, by point
+    private double[]          lower;
+    private boolean           boundsValid;  // whether the bounds hold for the centroids before their last move
+    private final double[]    halfGaps;     // half the distance from each centroid to the nearest other centroid
+    private final double[]    moves;        // how far each centroid moved in the last iteration
+    private int               farthestMoved;
+    private double            farthestMove;
+    private double            secondFarthestMove;
+
+    /**
+     * @param xs   the x value of each point, read but not copied
+     * @param ys   the y value of each point, read but not copied
+     * @param size the number of points
+     * @param k    the number of clusters
+     */
+    public KMeansEngine(double[] xs, double[] ys, int size, int k) {
+        this(xs, ys, size, k, false);
+    }
+
+    /**
+     * @param parallel whether to assign the points on {@link ForkJoinPool} workers
+     */
+    public KMeansEngine(double[] xs, double[] ys, int size, int k, boolean parallel) {
+        this.xs = xs;
+        this.ys = ys;
+        this.size = size;
+        this.k = k;
+        assignments = new int[size];
+        centroidXs = new double[k];
+        centroidYs = new double[k];
+        blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        sumXs = new double[blocks * k];
+        sumYs = new double[blocks * k];
+        counts = new int[blocks * k];
+        halfGaps = new double[k];
+        moves = new double[k];
+        int taskCount = parallel ? Math.min(blocks, ForkJoinPool.getCommonPoolParallelism() * TASKS_PER_WORKER) : 0;
+        tasks = new BlockTask[taskCount > 1 ? taskCount : 0];
+        for (int t = 0; t < tasks.length; t++)
+            tasks[t] = new BlockTask(blocks * t / tasks.length, blocks * (t + 1) / tasks.length);
+    }
+
+    public int getSize()              { return size; }
+
+    public int getNumberOfClusters()  { return k; }
+
+    /** @return the cluster of each point as of the last iteration; the array is reused, not copied */
+    public int[] getAssignments()     { return assignments; }
+
+    public double getCentroidX(int c) { return centroidXs[c]; }
+
+    public double getCentroidY(int c) { return centroidYs[c]; }
+
+    /**
+     * Turns on or off the skipping of distances by bounds. An accelerated engine keeps two more <code>double</code>s
+     * per point.
+     */
+    public void setAccelerated(boolean accelerated) {
+        upper = accelerated ? new double[size] : null;
+        lower = accelerated ? new double[size] : null;
+        boundsValid = false;
+    }
+
+    /**
+     * @return the sum of the squared distances from each point to the centroid of its cluster, the within-cluster sum
+     * of squares by which restarts from different seeds are compared; it takes a pass over the points the first time
+     * it is asked for after an iteration
+     */
+    public double getInertia() {
+        if (Double.isNaN(inertia)) {
+            double sum = 0;
+            for (int row = 0; row < size; row++) {
+                double dx = xs[row] - centroidXs[assignments[row]];
+                double dy = ys[row] - centroidYs[assignments[row]];
+                sum += dx * dx + dy * dy;
+            }
+            inertia = sum;
+        }
+        return inertia;
+    }
+
+    /** Places a centroid, as when seeding the clusters before the first iteration. */
+    public void setCentroid(int c, double x, double y) {
+        centroidXs[c] = x;
+        centroidYs[c] = y;
+        boundsValid = false;
+        inertia = Double.NaN;
+    }
+
+    /**
+     * Seeds the centroids by k-means++: the first centroid is a point chosen uniformly at random, and each next one a
+     * point chosen with a probability proportional to its squared distance from the nearest centroid chosen so far.
+     * Centroids seeded this way start out spread over the data, so that runs converge in fewer iterations and less
+     * often to a poor clustering.
+     */
+    public void seed(Random random) {
+        if (size == 0)
+            return;
+        double[] nearestSquared = new double[size];
+        Arrays.fill(nearestSquared, Double.POSITIVE_INFINITY);
+        int chosen = random.nextInt(size);
+        setCentroid(0, xs[chosen], ys[chosen]);
+        for (int c = 1; c < k; c++) {
+            double total = 0;
+            for (int row = 0; row < size; row++) {
+                double dx      = xs[row] - centroidXs[c - 1];
+                double dy      = ys[row] - centroidYs[c - 1];
+                double squared = dx * dx + dy * dy;
+                if (squared < nearestSquared[row])
+                    nearestSquared[row] = squared;
+                total += nearestSquared[row];
+            }
+            if (total > 0) {
+                double target = random.nextDouble() * total;
+                chosen = size - 1;
+                for (int row = 0; row < size; row++) {
+                    target -= nearestSquared[row];
+                    if (target < 0) {
+                        chosen = row;
+                        break;
+                    }
+                }
+            } else {
+                chosen = random.nextInt(size);      // every point is on a centroid already
+            }
+            setCentroid(c, xs[chosen], ys[chosen]);
+        }
+    }
+
+    /**
+     * Assigns every point to its nearest centroid and moves each centroid to the mean of its points.
+     *
+     * @return whether any centroid moved
+     */
+    public boolean iterate() {
+        if (boundsValid) {
+            for (int c = 0; c < k; c++) {
+                double gap = Double.POSITIVE_INFINITY;
+                for (int other = 0; other < k; other++) {
+                    if (other != c)
+                        gap = Math.min(gap, distance(centroidXs[c], centroidYs[c], centroidXs[other], centroidYs[other]));
+                }
+                halfGaps[c] = gap / 2;
+            }
+        }
+        if (tasks.length == 0) {
+            assign(0, blocks);
+        } else {
+            for (BlockTask task : tasks) {
+                task.reinitialize();
+                task.fork();
+            }
+            for (BlockTask task : tasks)
+                task.join();
+        }
+        inertia = Double.NaN;
+        farthestMoved = -1;
+        farthestMove = 0;
+        secondFarthestMove = 0;
+        boolean moved = false;
+        for (int c = 0; c < k; c++) {
+            double sumX  = 0;
+            double sumY  = 0;
+            int    count = 0;
+            for (int b = c; b < counts.length; b += k) {
+                sumX += sumXs[b];
+                sumY += sumYs[b];
+                count += counts[b];
+            }
+            moves[c] = 0;
+            if (count == 0)
+                continue;
+            double x = sumX / count;
+            double y = sumY / count;
+            if (x != centroidXs[c] || y != centroidYs[c]) {
+                moves[c] = distance(x, y, centroidXs[c], centroidYs[c]);
+                centroidXs[c] = x;
+                centroidYs[c] = y;
+                moved = true;
+            }
+            if (moves[c] > farthestMove) {
+                secondFarthestMove = farthestMove;
+                farthestMove = moves[c];
+                farthestMoved = c;
+            } else if (moves[c] > secondFarthestMove) {
+                secondFarthestMove = moves[c];
+            }
+        }
+        boundsValid = upper != null;
+        return moved;
+    }
+
+    /** Assigns the points of the blocks in <code>[from, to)</code>, and sums each block's clusters apart. */
+    private void assign(int from, int to) {
+        for (int b = from; b < to; b++) {
+            int offset = b * k;
+            for (int c = 0; c < k; c++) {
+                sumXs[offset + c] = 0;
+                sumYs[offset + c] = 0;
+                counts[offset + c] = 0;
+            }
+            for (int row = b * BLOCK_SIZE, end = Math.min(row + BLOCK_SIZE, size); row < end; row++) {
+                double x    = xs[row];
+                double y    = ys[row];
+                int    best = assignments[row];
+                if (boundsValid) {
+                    // The bounds loosen by how far the centroids moved since they were set.
+                    double upperBound = upper[row] + moves[best];
+                    double lowerBound = lower[row] - (best == farthestMoved ? secondFarthestMove : farthestMove);
+                    double bound      = Math.max(halfGaps[best], lowerBound);
+                    if (upperBound > bound)
+                        upperBound = distance(x, y, centroidXs[best], centroidYs[best]);
+                    upper[row] = upperBound;
+                    lower[row] = lowerBound;
+                    if (upperBound <= bound) {
+                        sumXs[offset + best] += x;
+                        sumYs[offset + best] += y;
+                        counts[offset + best]++;
+                        continue;
+                    }
+                }
+                double bestSquared   = Double.POSITIVE_INFINITY;
+                double secondSquared = Double.POSITIVE_INFINITY;
+                for (int c = 0; c < k; c++) {
+                    double dx      = x - centroidXs[c];
+                    double dy      = y - centroidYs[c];
+                    double squared = dx * dx + dy * dy;
+                    if (squared < bestSquared) {
+                        secondSquared = bestSquared;
+                        bestSquared = squared;
+                        best = c;
+                    } else if (squared < secondSquared) {
+                        secondSquared = squared;
+                    }
+                }
+                if (upper != null) {
+                    upper[row] = Math.sqrt(bestSquared);
+                    lower[row] = Math.sqrt(secondSquared);
+                }
+                assignments[row] = best;
+                sumXs[offset + best] += x;
+                sumYs[offset + best] += y;
+                counts[offset + best]++;
+            }
+        }
+    }
+
+    private static double distance(double x1, double y1, double x2, double y2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private final class BlockTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        BlockTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            assign(from, to);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package algorithms;
+
+import data.DataSet;
+import javafx.application.Platform;
+import settings.AppPropertyTypes;
+import ui.AppUI;
+import ui.DataVisualizer;
+import vilij.propertymanager.PropertyManager;
+import vilij.templates.ApplicationTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static settings.AppPropertyTypes.NULL_LABEL;
+import static settings.AppPropertyTypes.RUN_BUTTON_TEXT;
+import static settings.AppPropertyTypes.SGD_THREADS;
+
+/**
+ * A classifier that learns the line between the instances of two labels by logistic regression, as
+ * {@link LogisticRegressionEngine} trains it, an epoch per iteration. The two labels are the first two of the dataset,
+ * leaving out the null label, and the instances of any other label are left out of training. Training stops when the
+ * loss stops falling, or after the maximum number of iterations.
+ */
+public class LinearClassifier extends Classifier {
+
+    /** The largest magnitude of the integer coefficients of the {@link #output}, which are scaled to keep the line. */
+    private static final double OUTPUT_SCALE = 1e6;
+
+    /**
+     * The number of instances from which epochs are split among workers. Below it, the workers would mostly wait on
+     * one another, and their stale updates would cost more epochs than they save.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    ApplicationTemplate applicationTemplate = DataVisualizer.getApplicationTemplate();
+
+    private DataSet                  dataset;
+    private LogisticRegressionEngine engine;
+    private Long                     seed;            // the seed of the shuffle, or null for a new one every run
+    private volatile double[]        coefficients;    // the line as of the last update, replaced, never changed
+    private int                      threads = -1;    // the number of workers, 0 for one per processor, or -1 for
+                                                      // the number in the properties
+
+    private final int           maxIterations;
+    private final int           updateInterval;
+    private final AtomicBoolean tocontinue;
+    private final boolean continuousRun;
+    private boolean stop = false;
+
+    public void setStop(boolean stop) {
+        this.stop = stop;
+    }
+
+    public LinearClassifier(DataSet dataset, int maxIterations, int updateInterval, boolean continuousRun) {
+        this.dataset = dataset;
+        this.maxIterations = maxIterations;
+        this.updateInterval = updateInterval;
+        this.tocontinue = new AtomicBoolean(false);
+        this.continuousRun = continuousRun;
+    }
+
+    @Override
+    public int getMaxIterations() { return maxIterations; }
+
+    @Override
+    public int getUpdateInterval() { return updateInterval; }
+
+    @Override
+    public boolean tocontinue() { return tocontinue.get(); }
+
+    public boolean getContinuousRun() { return continuousRun; }
+
+    /** Seeds the shuffle of the instances, so that sequential runs on the same data give the same line. */
+    public void setSeed(long seed) { this.seed = seed; }
+
+    /**
+     * Sets the number of workers that train on shards of the instances side by side, sharing the line without locks.
+     * The workers meet at the end of every epoch, so the line shown at each update is the one they agreed on.
+     *
+     * @param threads the number of workers, or 0 for one per processor
+     */
+    public void setThreads(int threads) { this.threads = Math.max(threads, 0); }
+
+    @Override
+    public double[] getCoefficients() { return coefficients; }
+
+    @Override
+    public void run() {
+        if(continuousRun) {
+            continuousRun();
+        }
+        else {
+            nonContinuousRun();
+        }
+    }
+
+    /** Copies the locations of the instances of the two labels, and which of the two each has, into a new engine. */
+    private void initializeTraining() {
+        String       nullLabel = applicationTemplate.manager.getPropertyValue(NULL_LABEL.name());
+        List<String> labels    = dataset.getLabelDictionary();
+        int[]        labelIds  = dataset.getLabelIds();
+        int          negative  = -1;
+        int          positive  = -1;
+        for (int id = 0; id < labels.size() && positive < 0; id++) {
+            if (labels.get(id).equals(nullLabel))
+                continue;
+            if (negative < 0)
+                negative = id;
+            else
+                positive = id;
+        }
+        double[]  xs         = new double[dataset.size()];
+        double[]  ys         = new double[dataset.size()];
+        boolean[] isPositive = new boolean[dataset.size()];
+        int       size       = 0;
+        for (int row = 0; row < dataset.size(); row++) {
+            if (labelIds[row] != negative && labelIds[row] != positive)
+                continue;
+            xs[size] = dataset.getXs()[row];
+            ys[size] = dataset.getYs()[row];
+            isPositive[size++] = labelIds[row] == positive;
+        }
+        engine = new LogisticRegressionEngine(xs, ys, isPositive, positive < 0 ? 0 : size,
+                                              seed == null ? new Random() : new Random(seed));
+        if (threads < 0)
+            threads = Math.max(Integer.parseInt(applicationTemplate.manager.getPropertyValue(SGD_THREADS.name())), 0);
+        if (size >= PARALLEL_THRESHOLD)
+            engine.setThreads(threads);
+        tocontinue.set(engine.getSize() > 0);
+    }
+
+    /**
+     * Has the chart show the line learned so far. The coefficients are copied out of the engine first, so the chart
+     * draws them as they were while training goes on.
+     */
+    private void publishLine() {
+        double[] line  = {engine.getXCoefficient(), engine.getYCoefficient(), engine.getConstant()};
+        double   scale = OUTPUT_SCALE / Math.max(Math.max(Math.abs(line[0]), Math.abs(line[1])),
+                                                 Math.max(Math.abs(line[2]), Double.MIN_NORMAL));
+        output = Arrays.asList((int) Math.round(line[0] * scale), (int) Math.round(line[1] * scale),
+                               (int) Math.round(line[2] * scale));
+        coefficients = line;
+        AppUI ui = (AppUI) applicationTemplate.getUIComponent();
+        ui.getUpdateScheduler().publish(ui::updateChart);
+    }
+
+    private void continuousRun() {
+        initializeTraining();
+        int iteration = 1;
+        while (iteration++ <= maxIterations & tocontinue.get()) {
+            if (stop) {
+                try {
+                    synchronized (((AppUI) applicationTemplate.getUIComponent()).getRunningThread()) {
+                        Platform.runLater(() -> {
+                            ((AppUI) applicationTemplate.getUIComponent()).setRunningThread(null);
+                        });
+                        ((AppUI) applicationTemplate.getUIComponent()).getRunningThread().wait();
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+            tocontinue.set(engine.epoch());
+            if (iteration % updateInterval == 0) {
+                publishLine();
+                System.out.printf("Iteration number %d: \n", iteration);
+            }
+        }
+        publishLine();
+        ((AppUI) applicationTemplate.getUIComponent()).algorithmFinished();
+    }
+
+    private void nonContinuousRun() {
+        initializeTraining();
+        int iteration = 1;
+        while (iteration++ <= maxIterations & tocontinue.get()) {
+            tocontinue.set(engine.epoch());
+            if (iteration % updateInterval == 0) {
+                System.out.printf("Iteration number %d: \n", iteration);
+                publishLine();
+                Platform.runLater(() -> {
+                    PropertyManager manager = applicationTemplate.manager;
+                    ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setText(manager.getPropertyValue(AppPropertyTypes.RESUME_BUTTON_TEXT.name()));
+                    if (((AppUI) applicationTemplate.getUIComponent()).getRunningThread() == null) {
+                        ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setText(manager.getPropertyValue(RUN_BUTTON_TEXT.name()));
+                    }
+                });
+                if (iteration != maxIterations) {
+                    try {
+                        synchronized ((((AppUI) applicationTemplate.getUIComponent()).getRunningThread())) {
+                            ((AppUI) applicationTemplate.getUIComponent()).getScrnshotButton().setDisable(false);
+                            ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setDisable(false);
+                            ((AppUI) applicationTemplate.getUIComponent()).getRunningThread().wait();
+                        }
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+        publishLine();
+        ((AppUI) applicationTemplate.getUIComponent()).algorithmFinished();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,241 @@
+package algorithms;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The arithmetic of a linear classifier of points in the plane, trained by stochastic gradient descent on the
+ * logistic loss. The classifier is a line <code>a x + b y + c = 0</code>, with the points of one label on the side
+ * where <code>a x + b y + c</code> is positive and those of the other on the side where it is negative.
+ * <p>
+ * The points are copied once into <code>double[]</code> columns, standardized to zero mean and unit variance so that
+ * one learning rate suits data of any scale, and shuffled, so that an {@link #epoch() epoch} is a sequential pass over
+ * the columns that updates the weights after every point and allocates nothing. The learning rate decays from epoch to
+ * epoch, and a little L2 regularization keeps the weights finite when the labels are separable. The loss of each point
+ * is added up as the point is visited, before the weights are updated by it, so the mean loss of an epoch comes with
+ * the pass, and training has converged when an epoch no longer lowers it by more than a small fraction.
+ * <p>
+ * An epoch may be {@link #setThreads(int) split} among workers in the manner of Hogwild: each worker takes a shard of
+ * the points and updates weights shared by all of them, without locks, so that updates may now and then be lost. As
+ * the weights are few and every point updates all of them, a worker does not write them for every point, which would
+ * only pass them from core to core, but descends by a chunk of points from the shared weights it last read and then
+ * adds what it moved them by to the shared weights. The workers meet at the end of the epoch, so the weights, the loss
+ * and the line are consistent from one epoch to the next.
+ */
+public final class LogisticRegressionEngine {
+
+    /** The learning rate of the first epoch; the rate of epoch <i>t</i>, from 0, is this over <i>1 + t</i>. */
+    private static final double LEARNING_RATE = 0.1;
+
+    /** The weight of the L2 regularization of the coefficients of x and y. */
+    private static final double REGULARIZATION = 1e-4;
+
+    /** The fraction of the mean loss below which an improvement from one epoch to the next counts as convergence. */
+    private static final double TOLERANCE = 1e-4;
+
+    /** The number of points a worker descends by between reads and writes of the shared weights. */
+    private static final int CHUNK_SIZE = 256;
+
+    private final double[] us;              // the standardized x values, shuffled
+    private final double[] vs;              // the standardized y values, in the same order
+    private final double[] targets;         // +1 or -1 for each point, in the same order
+    private final int      size;
+    private final double   xMean;
+    private final double   yMean;
+    private final double   xScale;          // one over the standard deviation of x, or 1 if x is constant
+    private final double   yScale;
+
+    private final double[] weights = new double[3];     // of x, y and the bias, over the standardized values
+    private int            epochs;
+    private double         loss = Double.NaN;           // the mean loss over the last epoch
+
+    private ShardTask[]     tasks = new ShardTask[0];   // the workers of a parallel epoch, reused from one to the next
+    private AtomicLongArray shared;                     // the bits of the weights the workers share
+
+    /**
+     * @param xs       the x value of each point
+     * @param ys       the y value of each point
+     * @param positive whether each point has the label on the positive side of the line
+     * @param size     the number of points
+     * @param random   the source of the shuffle
+     */
+    public LogisticRegressionEngine(double[] xs, double[] ys, boolean[] positive, int size, Random random) {
+        this.size = size;
+        us = new double[size];
+        vs = new double[size];
+        targets = new double[size];
+        double xSum = 0;
+        double ySum = 0;
+        for (int row = 0; row < size; row++) {
+            xSum += xs[row];
+            ySum += ys[row];
+        }
+        xMean = size > 0 ? xSum / size : 0;
+        yMean = size > 0 ? ySum / size : 0;
+        double xSquares = 0;
+        double ySquares = 0;
+        for (int row = 0; row < size; row++) {
+            xSquares += (xs[row] - xMean) * (xs[row] - xMean);
+            ySquares += (ys[row] - yMean) * (ys[row] - yMean);
+        }
+        xScale = xSquares > 0 ? 1 / Math.sqrt(xSquares / size) : 1;
+        yScale = ySquares > 0 ? 1 / Math.sqrt(ySquares / size) : 1;
+
+        // A Fisher-Yates shuffle, drawing each point into its place as the columns are filled.
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        for (int i = 0; i < size; i++) {
+            int row = order[i];
+            us[i] = (xs[row] - xMean) * xScale;
+            vs[i] = (ys[row] - yMean) * yScale;
+            targets[i] = positive[row] ? 1 : -1;
+        }
+    }
+
+    public int getSize()     { return size; }
+
+    /** @return the number of epochs trained so far */
+    public int getEpochs()   { return epochs; }
+
+    /** @return the mean logistic loss over the last epoch, or <code>NaN</code> before the first */
+    public double getLoss()  { return loss; }
+
+    /** @return the coefficient <code>a</code> of x in the line <code>a x + b y + c = 0</code> */
+    public double getXCoefficient() { return weights[0] * xScale; }
+
+    /** @return the coefficient <code>b</code> of y in the line <code>a x + b y + c = 0</code> */
+    public double getYCoefficient() { return weights[1] * yScale; }
+
+    /** @return the constant <code>c</code> of the line <code>a x + b y + c = 0</code> */
+    public double getConstant()     { return weights[2] - getXCoefficient() * xMean - getYCoefficient() * yMean; }
+
+    /**
+     * Sets the number of workers an epoch is split among. One worker trains sequentially and deterministically; more
+     * train on {@link ForkJoinPool} workers, with results that depend on how their updates interleave.
+     *
+     * @param threads the number of workers, or 0 for one per processor
+     */
+    public void setThreads(int threads) {
+        if (threads <= 0)
+            threads = ForkJoinPool.getCommonPoolParallelism();
+        threads = Math.min(threads, Math.max(size / CHUNK_SIZE, 1));
+        tasks = new ShardTask[threads > 1 ? threads : 0];
+        for (int t = 0; t < tasks.length; t++)
+            tasks[t] = new ShardTask((int) ((long) size * t / tasks.length),
+                                     (int) ((long) size * (t + 1) / tasks.length));
+        shared = tasks.length > 0 ? new AtomicLongArray(3) : null;
+    }
+
+    public int getThreads()         { return Math.max(tasks.length, 1); }
+
+    /**
+     * Trains for one pass over the points.
+     *
+     * @return whether the mean loss of the epoch fell by more than a small fraction from the one before
+     */
+    public boolean epoch() {
+        if (size == 0)
+            return false;
+        double rate   = LEARNING_RATE / (1 + epochs);
+        double shrink = 1 - rate * REGULARIZATION;
+        double sum    = 0;
+        if (tasks.length == 0) {
+            sum = descend(0, size, rate, shrink, weights);
+        } else {
+            for (int w = 0; w < 3; w++)
+                shared.set(w, Double.doubleToRawLongBits(weights[w]));
+            for (ShardTask task : tasks) {
+                task.rate = rate;
+                task.shrink = shrink;
+                task.reinitialize();
+                task.fork();
+            }
+            for (ShardTask task : tasks) {
+                task.join();
+                sum += task.lossSum;
+            }
+            for (int w = 0; w < 3; w++)
+                weights[w] = Double.longBitsToDouble(shared.get(w));
+        }
+        epochs++;
+        double previous = loss;
+        loss = sum / size;
+        return Double.isNaN(previous) || previous - loss > TOLERANCE * previous;
+    }
+
+    /**
+     * Descends by the points in <code>[from, to)</code>, one at a time, from the given weights.
+     *
+     * @param weights the weights of x, y and the bias, updated in place
+     * @return the sum of the losses of the points, each before the weights were updated by it
+     */
+    private double descend(int from, int to, double rate, double shrink, double[] weights) {
+        double u   = weights[0];                // kept in locals so the pass runs in registers
+        double v   = weights[1];
+        double b   = weights[2];
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            double target = targets[i];
+            double margin = target * (u * us[i] + v * vs[i] + b);
+
+            // log(1 + e^-m) and the sigmoid of -m, from the one exponential that cannot overflow
+            double e = Math.exp(-Math.abs(margin));
+            double step;
+            if (margin >= 0) {
+                sum += Math.log1p(e);
+                step = rate * target * e / (1 + e);
+            } else {
+                sum += Math.log1p(e) - margin;
+                step = rate * target / (1 + e);
+            }
+            u = u * shrink + step * us[i];
+            v = v * shrink + step * vs[i];
+            b += step;
+        }
+        weights[0] = u;
+        weights[1] = v;
+        weights[2] = b;
+        return sum;
+    }
+
+    /** A worker of a parallel epoch, descending by a shard of the points from the shared weights, a chunk at a time. */
+    private final class ShardTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int      from;
+        private final int      to;
+        private final double[] start = new double[3];
+        private final double[] local = new double[3];
+        double                 rate;
+        double                 shrink;
+        double                 lossSum;         // the sum of the losses of the shard over the epoch
+
+        ShardTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            lossSum = 0;
+            for (int chunk = from; chunk < to; chunk += CHUNK_SIZE) {
+                for (int w = 0; w < 3; w++)
+                    start[w] = local[w] = Double.longBitsToDouble(shared.get(w));
+                lossSum += descend(chunk, Math.min(chunk + CHUNK_SIZE, to), rate, shrink, local);
+
+                // Racy on purpose: another worker's update between the read and the write is lost.
+                for (int w = 0; w < 3; w++) {
+                    double current = Double.longBitsToDouble(shared.get(w));
+                    shared.lazySet(w, Double.doubleToRawLongBits(current + local[w] - start[w]));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package algorithms;
+
+import data.DataSet;
+import javafx.application.Platform;
+import settings.AppPropertyTypes;
+import ui.AppUI;
+import ui.DataVisualizer;
+import vilij.propertymanager.PropertyManager;
+import vilij.templates.ApplicationTemplate;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static settings.AppPropertyTypes.MINI_BATCH_SIZE;
+import static settings.AppPropertyTypes.RUN_BUTTON_TEXT;
+
+/**
+ * A k-means clusterer for datasets too large for a pass over every instance per iteration. Each iteration moves the
+ * centroids by a small random batch of instances, as {@link MiniBatchKMeansEngine} does, and the instances are only
+ * assigned to their clusters every update interval, when the labels are shown. The clusters come close to those of
+ * {@link KMeansClusterer} at a fraction of the cost.
+ */
+public class MiniBatchKMeansClusterer extends Clusterer {
+
+    ApplicationTemplate applicationTemplate = DataVisualizer.getApplicationTemplate();
+
+    private DataSet               dataset;
+    private MiniBatchKMeansEngine engine;
+    private int[]                 clusterLabelIds;   // the id in the dataset of the label of each cluster
+    private Long                  seed;              // the seed of the batches, or null for different ones every run
+    private int                   batchSize;         // the size of a batch, or 0 for the size in the properties
+
+    private final int           maxIterations;
+    private final int           updateInterval;
+    private final AtomicBoolean tocontinue;
+    private final boolean continuousRun;
+    private boolean stop = false;
+
+    public void setStop(boolean stop) {
+        this.stop = stop;
+    }
+
+    public MiniBatchKMeansClusterer(DataSet dataset, int maxIterations, int updateInterval, int numberOfClusters, boolean continuousRun) {
+        super(numberOfClusters);
+        this.dataset = dataset;
+        this.maxIterations = maxIterations;
+        this.updateInterval = updateInterval;
+        this.tocontinue = new AtomicBoolean(false);
+        this.continuousRun = continuousRun;
+    }
+
+    @Override
+    public int getMaxIterations() { return maxIterations; }
+
+    @Override
+    public int getUpdateInterval() { return updateInterval; }
+
+    @Override
+    public boolean tocontinue() { return tocontinue.get(); }
+
+    public boolean getContinuousRun() { return continuousRun; }
+
+    /** Seeds the random choice of initial centroids and batches, so that runs on the same data give the same clusters. */
+    public void setSeed(long seed) { this.seed = seed; }
+
+    /**
+     * Sets the number of instances drawn in an iteration. Larger batches give clusters nearer those of k-means, at a
+     * cost per iteration that grows with the batch rather than with the dataset.
+     */
+    public void setBatchSize(int batchSize) { this.batchSize = Math.max(batchSize, 1); }
+
+    @Override
+    public void run() {
+        if(continuousRun) {
+            continuousRun();
+        }
+        else {
+            nonContinuousRun();
+        }
+    }
+
+    private void initializeCentroids() {
+        if (batchSize == 0)
+            batchSize = Math.max(Integer.parseInt(applicationTemplate.manager.getPropertyValue(MINI_BATCH_SIZE.name())), 1);
+        Random random = seed == null ? new Random() : new Random(seed);
+        engine = new MiniBatchKMeansEngine(dataset.getXs(), dataset.getYs(), dataset.size(), numberOfClusters,
+                                           batchSize, random);
+        engine.seed();
+        clusterLabelIds = new int[numberOfClusters];
+        for (int c = 0; c < numberOfClusters; c++)
+            clusterLabelIds[c] = dataset.labelIdOf(Integer.toString(c));
+        tocontinue.set(dataset.size() > 0);
+    }
+
+    /**
+     * Writes the cluster of each instance into the dataset as its label. This is the one pass over every instance, so
+     * it is only taken when the labels are shown.
+     */
+    private void assignLabels() {
+        double[] xs = dataset.getXs();
+        double[] ys = dataset.getYs();
+        IntStream.range(0, dataset.size()).parallel()
+                 .forEach(row -> dataset.setLabelId(row, clusterLabelIds[engine.nearest(xs[row], ys[row])]));
+    }
+
+    /** Has the chart show a copy of the labels assigned so far, while the labels go on changing. */
+    private void publishLabels() {
+        assignLabels();
+        AppUI   ui       = (AppUI) applicationTemplate.getUIComponent();
+        DataSet snapshot = dataset.copyLabels();
+        ui.getUpdateScheduler().publish(() -> ui.updateChart(snapshot));
+    }
+
+    private void continuousRun() {
+        initializeCentroids();
+        int iteration = 1;
+        while (iteration++ <= maxIterations & tocontinue.get()) {
+            if (stop) {
+                try {
+                    synchronized (((AppUI) applicationTemplate.getUIComponent()).getRunningThread()) {
+                        Platform.runLater(() -> {
+                            ((AppUI) applicationTemplate.getUIComponent()).setRunningThread(null);
+                        });
+                        ((AppUI) applicationTemplate.getUIComponent()).getRunningThread().wait();
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+            tocontinue.set(engine.iterate());
+            if (iteration % updateInterval == 0) {
+                publishLabels();
+                System.out.printf("Iteration number %d: \n", iteration);
+            }
+        }
+        publishLabels();        // the instances are only assigned when shown, so show where the run ended
+        ((AppUI) applicationTemplate.getUIComponent()).algorithmFinished();
+    }
+
+    private void nonContinuousRun() {
+        initializeCentroids();
+        int iteration = 1;
+        while (iteration++ <= maxIterations & tocontinue.get()) {
+            tocontinue.set(engine.iterate());
+            if (iteration % updateInterval == 0) {
+                System.out.printf("Iteration number %d: \n", iteration);
+                publishLabels();
+                Platform.runLater(() -> {
+                    PropertyManager manager = applicationTemplate.manager;
+                    ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setText(manager.getPropertyValue(AppPropertyTypes.RESUME_BUTTON_TEXT.name()));
+                    if (((AppUI) applicationTemplate.getUIComponent()).getRunningThread() == null) {
+                        ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setText(manager.getPropertyValue(RUN_BUTTON_TEXT.name()));
+                    }
+                });
+                if (iteration != maxIterations) {
+                    try {
+                        synchronized ((((AppUI) applicationTemplate.getUIComponent()).getRunningThread())) {
+                            ((AppUI) applicationTemplate.getUIComponent()).getScrnshotButton().setDisable(false);
+                            ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setDisable(false);
+                            ((AppUI) applicationTemplate.getUIComponent()).getRunningThread().wait();
+                        }
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+        publishLabels();        // the instances are only assigned when shown, so show where the run ended
+        ((AppUI) applicationTemplate.getUIComponent()).algorithmFinished();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,152 @@
+package algorithms;
+
+import java.util.Random;
+
+/**
+ * The arithmetic of mini-batch k-means, after Sculley's <i>Web-scale k-means clustering</i>. Instead of a pass over
+ * every point, each {@link #iterate() iteration} draws a batch of points at random, assigns each to its nearest
+ * centroid, and pulls that centroid towards the point by a learning rate of one over the number of points the centroid
+ * has been pulled by so far. Each centroid thus moves to the running mean of the points it was given, by its own rate,
+ * and settles down as it sees more of them. An iteration costs a batch, not a pass, and allocates nothing.
+ * <p>
+ * The centroids are {@link #seed() seeded} by k-means++ on a sample of the points, and the points themselves are only
+ * {@link #nearest assigned} to the centroids when the caller needs their clusters.
+ */
+public final class MiniBatchKMeansEngine {
+
+    /** The size, in batches, of the sample the centroids are seeded from. */
+    private static final int    SEED_SAMPLE_BATCHES = 4;
+
+    /** How far, relative to the spread of the seeding sample, centroids may still move once they have converged. */
+    private static final double TOLERANCE           = 1e-4;
+
+    private final double[] xs;
+    private final double[] ys;
+    private final int      size;
+    private final int      k;
+    private final int      batchSize;
+    private final Random   random;
+
+    private final double[] centroidXs;
+    private final double[] centroidYs;
+    private final double[] startXs;         // the centroids before the last batch
+    private final double[] startYs;
+    private final long[]   counts;          // the number of points each centroid has been pulled by
+    private final int[]    batchRows;
+    private final int[]    batchClusters;
+    private double         tolerance;
+
+    /**
+     * @param xs        the x value of each point, read but not copied
+     * @param ys        the y value of each point, read but not copied
+     * @param size      the number of points
+     * @param k         the number of clusters
+     * @param batchSize the number of points drawn in an iteration
+     * @param random    the source of the seeding and of the batches
+     */
+    public MiniBatchKMeansEngine(double[] xs, double[] ys, int size, int k, int batchSize, Random random) {
+        this.xs = xs;
+        this.ys = ys;
+        this.size = size;
+        this.k = k;
+        this.batchSize = Math.max(batchSize, 1);
+        this.random = random;
+        centroidXs = new double[k];
+        centroidYs = new double[k];
+        startXs = new double[k];
+        startYs = new double[k];
+        counts = new long[k];
+        batchRows = new int[this.batchSize];
+        batchClusters = new int[this.batchSize];
+    }
+
+    public int getSize()              { return size; }
+
+    public int getNumberOfClusters()  { return k; }
+
+    public int getBatchSize()         { return batchSize; }
+
+    public double getCentroidX(int c) { return centroidXs[c]; }
+
+    public double getCentroidY(int c) { return centroidYs[c]; }
+
+    /**
+     * Seeds the centroids by k-means++ on a sample of a few batches' worth of points drawn at random, and forgets how
+     * many points each centroid has been pulled by.
+     */
+    public void seed() {
+        if (size == 0)
+            return;
+        int      sampleSize = (int) Math.min(size, (long) SEED_SAMPLE_BATCHES * batchSize);
+        double[] sampleXs   = new double[sampleSize];
+        double[] sampleYs   = new double[sampleSize];
+        double   xMin       = Double.POSITIVE_INFINITY;
+        double   xMax       = Double.NEGATIVE_INFINITY;
+        double   yMin       = Double.POSITIVE_INFINITY;
+        double   yMax       = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < sampleSize; i++) {
+            int row = sampleSize == size ? i : random.nextInt(size);
+            sampleXs[i] = xs[row];
+            sampleYs[i] = ys[row];
+            xMin = Math.min(xMin, xs[row]);
+            xMax = Math.max(xMax, xs[row]);
+            yMin = Math.min(yMin, ys[row]);
+            yMax = Math.max(yMax, ys[row]);
+        }
+        KMeansEngine sample = new KMeansEngine(sampleXs, sampleYs, sampleSize, k);
+        sample.seed(random);
+        for (int c = 0; c < k; c++) {
+            centroidXs[c] = sample.getCentroidX(c);
+            centroidYs[c] = sample.getCentroidY(c);
+            counts[c] = 0;
+        }
+        tolerance = TOLERANCE * Math.hypot(xMax - xMin, yMax - yMin);
+    }
+
+    /**
+     * Draws a batch of points, assigns each to its nearest centroid, and then pulls each centroid towards the points
+     * assigned to it, one point at a time.
+     *
+     * @return whether any centroid moved by more than a small fraction of the spread of the points
+     */
+    public boolean iterate() {
+        if (size == 0)
+            return false;
+        for (int i = 0; i < batchSize; i++) {
+            int row = random.nextInt(size);
+            batchRows[i] = row;
+            batchClusters[i] = nearest(xs[row], ys[row]);
+        }
+        System.arraycopy(centroidXs, 0, startXs, 0, k);
+        System.arraycopy(centroidYs, 0, startYs, 0, k);
+        for (int i = 0; i < batchSize; i++) {
+            int    c    = batchClusters[i];
+            double rate = 1.0 / ++counts[c];
+            centroidXs[c] += rate * (xs[batchRows[i]] - centroidXs[c]);
+            centroidYs[c] += rate * (ys[batchRows[i]] - centroidYs[c]);
+        }
+        double farthestSquared = 0;
+        for (int c = 0; c < k; c++) {
+            double dx = centroidXs[c] - startXs[c];
+            double dy = centroidYs[c] - startYs[c];
+            farthestSquared = Math.max(farthestSquared, dx * dx + dy * dy);
+        }
+        return farthestSquared > tolerance * tolerance;
+    }
+
+    /** @return the centroid nearest to the given point */
+    public int nearest(double x, double y) {
+        int    best        = 0;
+        double bestSquared = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < k; c++) {
+            double dx      = x - centroidXs[c];
+            double dy      = y - centroidYs[c];
+            double squared = dx * dx + dy * dy;
+            if (squared < bestSquared) {
+                bestSquared = squared;
+                best = c;
+            }
+        }
+        return best;
+    }
+}
@@ -116,9 +116,8 @@ public class RandomClassifier extends Classifier {
             if (i % updateInterval == 0) {
                 System.out.printf("Iteration number %d: ", i); //
                 flush();
-                Platform.runLater(() -> {
-                    ((AppUI) applicationTemplate.getUIComponent()).updateChart();
-                });
+                AppUI ui = (AppUI) applicationTemplate.getUIComponent();
+                ui.getUpdateScheduler().publish(ui::updateChart);
             }
             if (i > maxIterations * .6 && RAND.nextDouble() < 0.05) {
                 System.out.printf("Iteration number %d: ", i);
@@ -126,11 +125,6 @@ public class RandomClassifier extends Classifier {
                 ((AppUI) applicationTemplate.getUIComponent()).setRunningThread(null);
                 break;
             }
-            try {
-                Thread.sleep(500);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
         }
         ((AppUI) applicationTemplate.getUIComponent()).algorithmFinished();
     }
@@ -149,9 +143,10 @@ public class RandomClassifier extends Classifier {
             if (i % updateInterval == 0) {
                 System.out.printf("Iteration number %d: ", i); //
                 flush();
+                AppUI ui = (AppUI) applicationTemplate.getUIComponent();
+                ui.getUpdateScheduler().publish(ui::updateChart);
                 Platform.runLater(() -> {
                     PropertyManager manager = applicationTemplate.manager;
-                    ((AppUI) applicationTemplate.getUIComponent()).updateChart();
                     ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setText(manager.getPropertyValue(AppPropertyTypes.RESUME_BUTTON_TEXT.name()));
                     if (((AppUI) applicationTemplate.getUIComponent()).getRunningThread() == null) {
                         ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setText(manager.getPropertyValue(RUN_BUTTON_TEXT.name()));
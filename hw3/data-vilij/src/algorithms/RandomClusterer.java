@@ -69,6 +69,13 @@ public class RandomClusterer extends Clusterer {
         }
     }
 
+    /** Has the chart show a copy of the labels assigned so far, while the labels go on changing. */
+    private void publishLabels() {
+        AppUI   ui       = (AppUI) applicationTemplate.getUIComponent();
+        DataSet snapshot = dataset.copyLabels();
+        ui.getUpdateScheduler().publish(() -> ui.updateChart(snapshot));
+    }
+
     private void continuousRun() {
         for (int i = 1; i <= maxIterations; i++) {
             if (stop) {
@@ -88,14 +95,7 @@ public class RandomClusterer extends Clusterer {
             }
             if (i % updateInterval == 0) {
                 System.out.printf("Iteration number %d: \n", i);
-                Platform.runLater(() -> {
-                    ((AppUI) applicationTemplate.getUIComponent()).updateChart(dataset.getLabels(), dataset.getLocations());
-                });
-            }
-            try {
-                Thread.sleep(500);
-            } catch (Exception e) {
-                e.printStackTrace();
+                publishLabels();
             }
         }
         ((AppUI) applicationTemplate.getUIComponent()).algorithmFinished();
@@ -109,8 +109,8 @@ public class RandomClusterer extends Clusterer {
             if (i % updateInterval == 0) {
                 System.out.printf("Iteration number %d: \n", i);
                 PropertyManager manager = applicationTemplate.manager;
+                publishLabels();
                 Platform.runLater(() -> {
-                    ((AppUI) applicationTemplate.getUIComponent()).updateChart(dataset.getLabels(), dataset.getLocations());
                     ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setText(manager.getPropertyValue(AppPropertyTypes.RESUME_BUTTON_TEXT.name()));
                     if (((AppUI) applicationTemplate.getUIComponent()).getRunningThread() == null) {
                         ((AppUI) applicationTemplate.getUIComponent()).getRunButton().setText(manager.getPropertyValue(RUN_BUTTON_TEXT.name()));
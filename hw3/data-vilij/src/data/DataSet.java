@@ -3,11 +3,18 @@ package data;
 import javafx.geometry.Point2D;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * This class specifies how an algorithm will expect the dataset to be. It is
@@ -16,8 +23,17 @@ import java.util.NoSuchElementException;
  * completely write your own class to represent a set of data instances as long
  * as the algorithm can read from and write into two {@link java.util.Map}
  * objects representing the name-to-label map and the name-to-location (i.e.,
- * the x,y values) map. These two are the {@link DataSet#labels} and
- * {@link DataSet#locations} maps in this class.
+ * the x,y values) map. These two are the {@link DataSet#getLabels()} and
+ * {@link DataSet#getLocations()} maps in this class.
+ * <p>
+ * Internally, the instances are stored column by column: one <code>double[]</code> each for the x and y values, an
+ * <code>int[]</code> of label ids into a dictionary of distinct labels, and an index from instance names to rows. The
+ * two maps are views over these columns, and algorithms that need to go fast can read the raw columns directly
+ * through {@link #getXs()}, {@link #getYs()} and {@link #getLabelIds()}.
+ * <p>
+ * A dataset can be {@link #freeze() frozen}, after which it can be shared freely: every attempt to modify it throws an
+ * {@link UnsupportedOperationException}. A {@link #copy()} of a frozen dataset shares its names, locations and name
+ * index until the copy first changes them, so copying only costs a copy of the label column.
  *
  * @author Ritwik Banerjee
  */
@@ -32,51 +48,407 @@ public class DataSet {
         }
     }
 
+    private static final int DEFAULT_CAPACITY = 16;
+
     private static String nameFormatCheck(String name) throws InvalidDataNameException {
         if (!name.startsWith("@"))
             throw new InvalidDataNameException(name);
         return name;
     }
 
-    private static Point2D locationOf(String locationString) {
-        String[] coordinateStrings = locationString.trim().split(",");
-        return new Point2D(Double.parseDouble(coordinateStrings[0]), Double.parseDouble(coordinateStrings[1]));
-    }
+    private String[] names;
+    private double[] xs;
+    private double[] ys;
+    private int[]    labelIds;
+    private int      size;
+
+    private NameIndex                  nameIndex;
+    private boolean                    frozen;
+    private boolean                    sharesColumns;
+    private final List<String>         labelDictionary;
+    private final Map<String, Integer> labelIndex;
 
-    private Map<String, String>  labels;
-    private Map<String, Point2D> locations;
+    private final Map<String, String>  labels    = new LabelView();
+    private final Map<String, Point2D> locations = new LocationView();
 
     /** Creates an empty dataset. */
     public DataSet() {
-        labels = new HashMap<>();
-        locations = new HashMap<>();
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** Creates an empty dataset with room for the given number of instances. */
+    public DataSet(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, DEFAULT_CAPACITY);
+        names = new String[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        labelIds = new int[capacity];
+        nameIndex = new NameIndex(capacity);
+        labelDictionary = new ArrayList<>();
+        labelIndex = new HashMap<>();
+    }
+
+    /**
+     * Creates a dataset over existing columns, which it takes ownership of. Names must be distinct, and label ids must
+     * index the given labels.
+     */
+    DataSet(List<String> labels, String[] names, double[] xs, double[] ys, int[] labelIds) {
+        this.names = names;
+        this.xs = xs;
+        this.ys = ys;
+        this.labelIds = labelIds;
+        this.size = names.length;
+        nameIndex = new NameIndex(size);
+        for (int row = 0; row < size; row++) {
+            if (nameIndex.putIfAbsent(names[row], row) >= 0)
+                throw new IllegalArgumentException("Duplicate instance name " + names[row]);
+        }
+        labelDictionary = new ArrayList<>();
+        labelIndex = new HashMap<>();
+        for (String label : labels)
+            labelIdOf(label);
+    }
+
+    /** Copies a dataset, sharing the columns of a frozen one. */
+    private DataSet(DataSet other) {
+        this(other, other.frozen);
+    }
+
+    private DataSet(DataSet other, boolean shareColumns) {
+        sharesColumns = shareColumns;
+        names = sharesColumns ? other.names : other.names.clone();
+        xs = sharesColumns ? other.xs : other.xs.clone();
+        ys = sharesColumns ? other.ys : other.ys.clone();
+        nameIndex = sharesColumns ? other.nameIndex : other.nameIndex.copy();
+        labelIds = other.labelIds.clone();
+        size = other.size;
+        labelDictionary = new ArrayList<>(other.labelDictionary);
+        labelIndex = new HashMap<>(other.labelIndex);
+    }
+
+    /**
+     * Makes this dataset read-only, so that it can be shared between threads and with copies.
+     *
+     * @return this dataset
+     */
+    public DataSet freeze() {
+        frozen = true;
+        return this;
     }
 
+    public boolean isFrozen()                  { return frozen; }
+
+    /** @return a modifiable copy of this dataset */
+    public DataSet copy()                      { return new DataSet(this); }
+
+    /**
+     * Copies the labels of this dataset, and shares its names and locations as a copy of a frozen dataset would. This
+     * lets an algorithm hand the labels it has assigned so far to another thread and go on relabeling, as long as it
+     * changes no names or locations while the copy is in use.
+     */
+    public DataSet copyLabels()                { return new DataSet(this, true); }
+
     public Map<String, String> getLabels()     { return labels; }
 
     public Map<String, Point2D> getLocations() { return locations; }
 
+    /** @return the number of instances in this dataset */
+    public int size()                          { return size; }
+
+    /**
+     * The x column. The array may be longer than {@link #size()}; only its first <code>size()</code> entries hold
+     * instances. The array is the dataset's own storage, so it must be treated as read-only.
+     */
+    public double[] getXs()                    { return xs; }
+
+    /** The y column, with the same layout as {@link #getXs()}. */
+    public double[] getYs()                    { return ys; }
+
+    /** The label id column, with the same layout as {@link #getXs()}. Ids index {@link #getLabelDictionary()}. */
+    public int[] getLabelIds()                 { return labelIds; }
+
+    /** @return the distinct labels of this dataset, indexed by label id, in order of first appearance */
+    public List<String> getLabelDictionary()   { return Collections.unmodifiableList(labelDictionary); }
+
+    public String getName(int row)             { return names[checkedRow(row)]; }
+
+    public String getLabel(int row)            { return labelDictionary.get(labelIds[checkedRow(row)]); }
+
+    public double getX(int row)                { return xs[checkedRow(row)]; }
+
+    public double getY(int row)                { return ys[checkedRow(row)]; }
+
+    /** @return the row of the named instance, or <code>-1</code> if there is no such instance */
+    public int indexOf(String instanceName)    { return nameIndex.get(instanceName); }
+
+    /**
+     * Returns the id of the given label, adding it to the label dictionary if this dataset has not seen it before.
+     *
+     * @param label the label
+     * @return the id of the label
+     */
+    public int labelIdOf(String label) {
+        Integer id = labelIndex.get(label);
+        if (id == null) {
+            checkMutable();
+            id = labelDictionary.size();
+            labelDictionary.add(label);
+            labelIndex.put(label, id);
+        }
+        return id;
+    }
+
+    public void setLabelId(int row, int labelId) {
+        if (labelId < 0 || labelId >= labelDictionary.size())
+            throw new IllegalArgumentException(String.valueOf(labelId));
+        checkMutable();
+        labelIds[checkedRow(row)] = labelId;
+    }
+
     public void updateLabel(String instanceName, String newlabel) {
-        if (labels.get(instanceName) == null)
+        int row = nameIndex.get(instanceName);
+        if (row < 0)
             throw new NoSuchElementException();
-        labels.put(instanceName, newlabel);
+        checkMutable();
+        labelIds[row] = labelIdOf(newlabel);
     }
 
     public void addInstance(String tsdLine) throws InvalidDataNameException {
         String[] arr = tsdLine.split("\t");
-        labels.put(nameFormatCheck(arr[0]), arr[1]);
-        locations.put(arr[0], locationOf(arr[2]));
+        String[] coordinateStrings = arr[2].trim().split(",");
+        addInstance(nameFormatCheck(arr[0]), arr[1],
+                    Double.parseDouble(coordinateStrings[0]), Double.parseDouble(coordinateStrings[1]));
+    }
+
+    /**
+     * Adds an instance to this dataset. As with a map, an instance that has the same name as an existing one replaces
+     * the label and location of the existing instance.
+     */
+    public void addInstance(String name, String label, double x, double y) {
+        ownColumns();
+        int labelId = labelIdOf(label);
+        int row     = nameIndex.putIfAbsent(name, size);
+        if (row < 0) {
+            ensureCapacity(size + 1);
+            row = size++;
+            names[row] = name;
+        }
+        xs[row] = x;
+        ys[row] = y;
+        labelIds[row] = labelId;
+    }
+
+    /**
+     * Adds an instance whose name is not in this dataset yet.
+     *
+     * @return <code>false</code>, leaving the dataset unchanged, if there already is an instance with this name
+     */
+    boolean addNewInstance(String name, int labelId, double x, double y) {
+        ownColumns();
+        if (nameIndex.putIfAbsent(name, size) >= 0)
+            return false;
+        ensureCapacity(size + 1);
+        names[size] = name;
+        xs[size] = x;
+        ys[size] = y;
+        labelIds[size] = labelId;
+        size++;
+        return true;
+    }
+
+    /**
+     * Appends all instances of another dataset, in order, translating its label ids into this dataset's dictionary.
+     *
+     * @return the row in <code>other</code> of the first instance whose name is already in this dataset, or
+     * <code>-1</code> if all instances were appended; the instances before that row have been appended
+     */
+    int append(DataSet other) {
+        ownColumns();
+        ensureCapacity(size + other.size);
+        int[] labelMap = new int[other.labelDictionary.size()];
+        for (int i = 0; i < labelMap.length; i++)
+            labelMap[i] = labelIdOf(other.labelDictionary.get(i));
+        for (int row = 0; row < other.size; row++) {
+            if (nameIndex.putIfAbsent(other.names[row], size) >= 0)
+                return row;
+            names[size] = other.names[row];
+            xs[size] = other.xs[row];
+            ys[size] = other.ys[row];
+            labelIds[size] = labelMap[other.labelIds[row]];
+            size++;
+        }
+        return -1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > names.length) {
+            int newCapacity = Math.max(capacity, names.length + (names.length >> 1));
+            names = Arrays.copyOf(names, newCapacity);
+            xs = Arrays.copyOf(xs, newCapacity);
+            ys = Arrays.copyOf(ys, newCapacity);
+            labelIds = Arrays.copyOf(labelIds, newCapacity);
+        }
     }
 
+    private void checkMutable() {
+        if (frozen)
+            throw new UnsupportedOperationException("The dataset is frozen; modify a copy of it instead.");
+    }
+
+    /** Makes sure this dataset may change its names and locations, taking private copies of shared columns. */
+    private void ownColumns() {
+        checkMutable();
+        if (sharesColumns) {
+            names = names.clone();
+            xs = xs.clone();
+            ys = ys.clone();
+            nameIndex = nameIndex.copy();
+            sharesColumns = false;
+        }
+    }
+
+    private int checkedRow(int row) {
+        if (row < 0 || row >= size)
+            throw new IndexOutOfBoundsException(String.valueOf(row));
+        return row;
+    }
+
+    /**
+     * Loads a dataset from a <code>.tsd</code> file through a memory map of the file.
+     *
+     * @throws TSDFormatException if a line of the file is not in the data format
+     */
     public static DataSet fromTSDFile(Path tsdFilePath) throws IOException {
-        DataSet dataset = new DataSet();
-        Files.lines(tsdFilePath).forEach(line -> {
-            try {
-                dataset.addInstance(line);
-            } catch (InvalidDataNameException e) {
-                e.printStackTrace();
+        return fromTSDFile(tsdFilePath, false);
+    }
+
+    /**
+     * Loads a dataset from a <code>.tsd</code> file, optionally parsing chunks of the file on all cores. Both modes
+     * produce the same dataset, and report the same first error.
+     *
+     * @throws TSDFormatException if a line of the file is not in the data format
+     */
+    public static DataSet fromTSDFile(Path tsdFilePath, boolean parallel) throws IOException {
+        return fromTSDFile(tsdFilePath, parallel, new LoadProgress());
+    }
+
+    /**
+     * Loads a dataset from a <code>.tsd</code> file as {@link #fromTSDFile(Path, boolean)} does, reporting progress
+     * as it goes.
+     *
+     * @throws TSDFormatException if a line of the file is not in the data format
+     * @throws java.util.concurrent.CancellationException if the load was cancelled through its progress
+     */
+    public static DataSet fromTSDFile(Path tsdFilePath, boolean parallel, LoadProgress progress) throws IOException {
+        return MappedTSDLoader.load(tsdFilePath, parallel, progress);
+    }
+
+    /** Common row iteration for the two map views; each entry reads and writes its row in place. */
+    private abstract class ColumnView<V> extends AbstractMap<String, V> {
+
+        abstract V valueAt(int row);
+
+        abstract void setValueAt(int row, V value);
+
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public boolean containsKey(Object key) { return nameIndex.get(key) >= 0; }
+
+        @Override
+        public V get(Object key) {
+            int row = nameIndex.get(key);
+            return row < 0 ? null : valueAt(row);
+        }
+
+        /** Replaces the value of an existing instance. New instances must be added through the dataset. */
+        @Override
+        public V put(String key, V value) {
+            int row = nameIndex.get(key);
+            if (row < 0)
+                throw new NoSuchElementException(key);
+            V previous = valueAt(row);
+            setValueAt(row, value);
+            return previous;
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet() {
+            return new AbstractSet<Entry<String, V>>() {
+                @Override
+                public int size() { return size; }
+
+                @Override
+                public Iterator<Entry<String, V>> iterator() {
+                    return new Iterator<Entry<String, V>>() {
+                        private int next = 0;
+
+                        @Override
+                        public boolean hasNext() { return next < size; }
+
+                        @Override
+                        public Entry<String, V> next() {
+                            if (next >= size)
+                                throw new NoSuchElementException();
+                            return new RowEntry(next++);
+                        }
+                    };
+                }
+            };
+        }
+
+        private final class RowEntry implements Entry<String, V> {
+            private final int row;
+
+            RowEntry(int row) { this.row = row; }
+
+            @Override
+            public String getKey() { return names[row]; }
+
+            @Override
+            public V getValue() { return valueAt(row); }
+
+            @Override
+            public V setValue(V value) {
+                V previous = valueAt(row);
+                setValueAt(row, value);
+                return previous;
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (!(o instanceof Entry))
+                    return false;
+                Entry<?, ?> e = (Entry<?, ?>) o;
+                return getKey().equals(e.getKey()) && getValue().equals(e.getValue());
             }
-        });
-        return dataset;
+
+            @Override
+            public int hashCode() { return getKey().hashCode() ^ getValue().hashCode(); }
+        }
+    }
+
+    private final class LabelView extends ColumnView<String> {
+        @Override
+        String valueAt(int row) { return labelDictionary.get(labelIds[row]); }
+
+        @Override
+        void setValueAt(int row, String label) {
+            checkMutable();
+            labelIds[row] = labelIdOf(label);
+        }
+    }
+
+    private final class LocationView extends ColumnView<Point2D> {
+        @Override
+        Point2D valueAt(int row) { return new Point2D(xs[row], ys[row]); }
+
+        @Override
+        void setValueAt(int row, Point2D location) {
+            ownColumns();
+            xs[row] = location.getX();
+            ys[row] = location.getY();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,122 @@
+package data;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Keeps the dataset of the most recently loaded <code>.tsd</code> file, so that loading, running an algorithm and
+ * redrawing the chart all share one parse of the file. The dataset is {@link DataSet#freeze() frozen}; callers that
+ * need to change it work on a {@link DataSet#copy()}.
+ * <p>
+ * A cached dataset is keyed by the path of its file and the file's {@link FileFingerprint}. While the size and
+ * modification time of the file are unchanged, the cached dataset is returned as is. Otherwise the file is hashed
+ * again: if only its modification time changed, the dataset is kept, and if its contents changed, it is loaded again.
+ * A file is loaded from its {@link TSDSnapshot} if that is up to date, and is parsed otherwise, after which a new
+ * snapshot is written.
+ * <p>
+ * The {@link LineIndex} of the cached file is kept with its dataset. It is built while the file is parsed, or read
+ * from the index file next to the file, and written to that index file whenever it had to be built. So are the
+ * {@link DatasetStats} of the dataset, which are gathered while the file is parsed, or from the columns of a dataset
+ * read from its snapshot the first time they are asked for.
+ */
+public final class DataSetCache {
+
+    private Path            path;
+    private FileFingerprint fingerprint;
+    private DataSet         dataSet;
+    private LineIndex       lineIndex;          // null until it is needed if the dataset came from a snapshot
+    private DatasetStats    stats;              // likewise
+
+    /**
+     * @return the frozen dataset of the given file, up to date with its contents
+     * @throws TSDFormatException if a line of the file is not in the data format
+     */
+    public DataSet get(Path tsdFilePath) throws IOException {
+        return get(tsdFilePath, new LoadProgress());
+    }
+
+    /**
+     * @return the frozen dataset of the given file, up to date with its contents
+     * @throws TSDFormatException if a line of the file is not in the data format
+     * @throws java.util.concurrent.CancellationException if the load was cancelled through its progress
+     */
+    public synchronized DataSet get(Path tsdFilePath, LoadProgress progress) throws IOException {
+        Path key = tsdFilePath.toAbsolutePath().normalize();
+        if (key.equals(path) && fingerprint.hasSameStat(key))
+            return dataSet;
+        FileFingerprint current = FileFingerprint.of(key, progress);
+        if (key.equals(path) && fingerprint.hasSameContent(current)) {
+            fingerprint = current;
+            return dataSet;
+        }
+        DataSet      loaded  = TSDSnapshot.loadIfFresh(key, current);
+        LineIndex    indexed;
+        DatasetStats summary = null;
+        if (loaded != null) {
+            progress.addParsed(current.getSize(), loaded.size(), true);
+            indexed = LineIndex.loadIfFresh(key, current);
+        } else {
+            LineIndex.Builder lines = new LineIndex.Builder();
+            summary = new DatasetStats();
+            loaded = MappedTSDLoader.load(key, true, progress, lines, summary);
+            indexed = lines.build();
+            try {
+                TSDSnapshot.write(loaded, key, current, progress);
+                indexed.write(key, current, progress);
+            } catch (IOException e) {
+                System.err.println(e.getMessage());             // both files only speed up the next load
+            }
+        }
+        path = key;
+        fingerprint = current;
+        dataSet = loaded.freeze();
+        lineIndex = indexed;
+        stats = summary;
+        return dataSet;
+    }
+
+    /**
+     * @return the statistics of the dataset of the given file, up to date with its contents
+     * @throws TSDFormatException if a line of the file is not in the data format
+     * @throws java.util.concurrent.CancellationException if a load was cancelled through its progress
+     */
+    public synchronized DatasetStats getStats(Path tsdFilePath, LoadProgress progress) throws IOException {
+        DataSet current = get(tsdFilePath, progress);
+        if (stats == null)
+            stats = DatasetStats.of(current, true);
+        return stats;
+    }
+
+    /**
+     * @return the line index of the given file; if it is the file of the cached dataset, the index is kept with it,
+     * and otherwise the file is scanned
+     * @throws java.util.concurrent.CancellationException if a scan was cancelled through its progress
+     */
+    public synchronized LineIndex getLineIndex(Path tsdFilePath, LoadProgress progress) throws IOException {
+        Path key = tsdFilePath.toAbsolutePath().normalize();
+        if (!key.equals(path) || !fingerprint.hasSameStat(key))
+            return LineIndex.scan(key, progress);
+        if (lineIndex == null) {
+            lineIndex = LineIndex.scan(key, progress);
+            writeIndex(key, fingerprint, progress);
+        }
+        return lineIndex;
+    }
+
+    /** Drops the cached dataset. */
+    public synchronized void invalidate() {
+        path = null;
+        fingerprint = null;
+        dataSet = null;
+        lineIndex = null;
+        stats = null;
+    }
+
+    private void writeIndex(Path tsdFilePath, FileFingerprint source, LoadProgress progress) {
+        try {
+            lineIndex.write(tsdFilePath, source, progress);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Summary statistics of a set of data instances: the distinct labels in order of first appearance, the number of
+ * instances with each label, and the bounds of the x and y values. Statistics are gathered in a single pass, either
+ * one instance at a time through {@link #add(String, double, double)}, straight from the columns of a
+ * {@link DataSet}, or by the loader of a data file as it parses the file. Statistics of consecutive parts of the data
+ * can be combined with {@link #merge(DatasetStats)}.
+ */
+public final class DatasetStats {
+
+    /** Row ranges smaller than this are not split further when gathering statistics in parallel. */
+    private static final int MIN_PARALLEL_ROWS = 1 << 16;
+
+    private final List<String>         labels     = new ArrayList<>();
+    private final Map<String, Integer> labelIndex = new HashMap<>();
+    private int[]                      counts     = new int[8];
+    private int[]                      dataSetIds = new int[0];    // the id of each label id of a dataset, or -1
+    private int                        size;
+    private double                     xMin       = Double.POSITIVE_INFINITY;
+    private double                     xMax       = Double.NEGATIVE_INFINITY;
+    private double                     yMin       = Double.POSITIVE_INFINITY;
+    private double                     yMax       = Double.NEGATIVE_INFINITY;
+
+    /** @return the statistics of all instances in the dataset */
+    public static DatasetStats of(DataSet dataSet) {
+        return of(dataSet, 0, dataSet.size());
+    }
+
+    /**
+     * @return the statistics of all instances in the dataset, optionally gathered from row ranges on all cores and
+     * merged in row order, which gives the same result as {@link #of(DataSet)}
+     */
+    public static DatasetStats of(DataSet dataSet, boolean parallel) {
+        return parallel ? new RangeTask(dataSet, 0, dataSet.size()).invoke() : of(dataSet);
+    }
+
+    private static DatasetStats of(DataSet dataSet, int from, int to) {
+        DatasetStats stats    = new DatasetStats();
+        double[]     xs       = dataSet.getXs();
+        double[]     ys       = dataSet.getYs();
+        int[]        labelIds = dataSet.getLabelIds();
+        for (int row = from; row < to; row++)
+            stats.add(dataSet, labelIds[row], xs[row], ys[row]);
+        return stats;
+    }
+
+    /** Adds one instance to the statistics. */
+    public void add(String label, double x, double y) {
+        counts[idOf(label)]++;
+        include(x, y);
+        size++;
+    }
+
+    /**
+     * Adds one instance of a dataset by the id of its label in the dataset, so that each label is only looked up the
+     * first time it is seen. Every instance added this way must be of the same dataset.
+     */
+    void add(DataSet dataSet, int labelId, double x, double y) {
+        if (labelId >= dataSetIds.length) {
+            int length = dataSetIds.length;
+            dataSetIds = Arrays.copyOf(dataSetIds, Math.max(2 * length, labelId + 1));
+            Arrays.fill(dataSetIds, length, dataSetIds.length, -1);
+        }
+        int id = dataSetIds[labelId];
+        if (id < 0)
+            id = dataSetIds[labelId] = idOf(dataSet.getLabelDictionary().get(labelId));
+        counts[id]++;
+        include(x, y);
+        size++;
+    }
+
+    /** Adds the statistics of instances that come after the ones already added. */
+    public void merge(DatasetStats other) {
+        for (int i = 0; i < other.labels.size(); i++)
+            counts[idOf(other.labels.get(i))] += other.counts[i];
+        xMin = Math.min(xMin, other.xMin);
+        xMax = Math.max(xMax, other.xMax);
+        yMin = Math.min(yMin, other.yMin);
+        yMax = Math.max(yMax, other.yMax);
+        size += other.size;
+    }
+
+    /** @return the number of instances */
+    public int size()                  { return size; }
+
+    public boolean isEmpty()           { return size == 0; }
+
+    /** @return the distinct labels, in order of first appearance */
+    public List<String> getLabels()    { return Collections.unmodifiableList(labels); }
+
+    /** @return the number of instances with the given label */
+    public int getCount(String label) {
+        Integer id = labelIndex.get(label);
+        return id == null ? 0 : counts[id];
+    }
+
+    /**
+     * @param nullLabel the label that marks instances as unlabeled, in lower case
+     * @return the number of distinct labels, not counting the null label in any letter case
+     */
+    public int getLabelCount(String nullLabel) {
+        int count = labels.size();
+        for (String label : labels) {
+            if (label.toLowerCase().equals(nullLabel))
+                count--;
+        }
+        return count;
+    }
+
+    /** The bounds are infinite while there are no instances. */
+    public double getXMin()            { return xMin; }
+
+    public double getXMax()            { return xMax; }
+
+    public double getYMin()            { return yMin; }
+
+    public double getYMax()            { return yMax; }
+
+    private int idOf(String label) {
+        Integer id = labelIndex.get(label);
+        if (id == null) {
+            id = labels.size();
+            labels.add(label);
+            labelIndex.put(label, id);
+            if (id == counts.length)
+                counts = Arrays.copyOf(counts, id * 2);
+        }
+        return id;
+    }
+
+    private void include(double x, double y) {
+        if (x < xMin) xMin = x;
+        if (x > xMax) xMax = x;
+        if (y < yMin) yMin = y;
+        if (y > yMax) yMax = y;
+    }
+
+    private static final class RangeTask extends RecursiveTask<DatasetStats> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final DataSet dataSet;
+        private final int     from;
+        private final int     to;
+
+        RangeTask(DataSet dataSet, int from, int to) {
+            this.dataSet = dataSet;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected DatasetStats compute() {
+            if (to - from <= MIN_PARALLEL_ROWS)
+                return of(dataSet, from, to);
+            int       middle = (from + to) >>> 1;
+            RangeTask second = new RangeTask(dataSet, middle, to);
+            second.fork();
+            DatasetStats stats = new RangeTask(dataSet, from, middle).compute();
+            stats.merge(second.join());
+            return stats;
+        }
+    }
+}
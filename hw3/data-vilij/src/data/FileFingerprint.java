@@ -0,0 +1,90 @@
+package data;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Identifies the contents of a file by its size, its last modification time and a CRC-32 checksum of its bytes. Two
+ * fingerprints of the same path are equal only if the file is unchanged. Since the checksum requires reading the whole
+ * file, {@link #hasSameStat(Path)} offers a cheaper check of the size and modification time alone, and the checksum
+ * may be computed with its progress reported to a {@link LoadProgress}, which can cancel it.
+ */
+public final class FileFingerprint {
+
+    private static final int WINDOW_SIZE = 1 << 28;
+    private static final int CHECK_SIZE  = 1 << 20;
+
+    private final long size;
+    private final long lastModified;
+    private final long checksum;
+
+    public FileFingerprint(long size, long lastModified, long checksum) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.checksum = checksum;
+    }
+
+    public static FileFingerprint of(Path path) throws IOException {
+        return of(path, new LoadProgress());
+    }
+
+    /**
+     * Fingerprints a file, reporting the bytes hashed and checking for cancellation every {@value #CHECK_SIZE} bytes.
+     *
+     * @throws java.util.concurrent.CancellationException if the progress was cancelled
+     */
+    public static FileFingerprint of(Path path, LoadProgress progress) throws IOException {
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long  size = channel.size();
+            CRC32 crc  = new CRC32();
+            for (long position = 0; position < size; position += WINDOW_SIZE) {
+                int              length = (int) Math.min(WINDOW_SIZE, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                while (window.hasRemaining()) {
+                    progress.checkCancelled();
+                    int n = Math.min(CHECK_SIZE, window.remaining());
+                    window.limit(window.position() + n);
+                    crc.update(window);
+                    window.limit(length);
+                    progress.addHashed(n);
+                }
+            }
+            return new FileFingerprint(size, lastModified, crc.getValue());
+        }
+    }
+
+    public long getSize()         { return size; }
+
+    public long getLastModified() { return lastModified; }
+
+    public long getChecksum()     { return checksum; }
+
+    /** @return <code>true</code> if the file at the path has the size and modification time of this fingerprint */
+    public boolean hasSameStat(Path path) throws IOException {
+        return Files.size(path) == size && Files.getLastModifiedTime(path).toMillis() == lastModified;
+    }
+
+    /** @return <code>true</code> if the other fingerprint has the same size and checksum, whatever its time */
+    public boolean hasSameContent(FileFingerprint other) {
+        return size == other.size && checksum == other.checksum;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof FileFingerprint))
+            return false;
+        FileFingerprint that = (FileFingerprint) o;
+        return size == that.size && lastModified == that.lastModified && checksum == that.checksum;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(size) * 31 * 31 + Long.hashCode(lastModified) * 31 + Long.hashCode(checksum);
+    }
+}
@@ -0,0 +1,307 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The offset of every line of a text file, so that any line, or run of lines, can be read with a single positional
+ * read instead of reading the file from its start. Lines are split the way the <code>.tsd</code> loader splits them:
+ * at each newline, with a carriage return before it dropped, and with no empty line after a final newline.
+ * <p>
+ * Offsets are delta-encoded: the index keeps the length of each line as a variable-length integer, most lines taking
+ * a single byte, and the absolute offset of every {@value #BLOCK_LINES}th line. Finding a line decodes at most one
+ * block of lengths.
+ * <p>
+ * An index is built during a pass over the file, either by the loader as it parses the file or by {@link #scan}, and
+ * can be kept as a <code>.tsdi</code> file next to the <code>.tsd</code> file, which, like a {@link TSDSnapshot}, is
+ * only used while the fingerprint of its source file still matches.
+ */
+public final class LineIndex {
+
+    public static final String INDEX_EXTENSION = ".tsdi";
+
+    static final int BLOCK_LINES = 64;
+
+    private static final int  MAGIC       = 0x49445354;     // "TSDI"
+    private static final int  VERSION     = 1;
+    private static final int  HEADER_SIZE = 48;
+    private static final int  WINDOW_SIZE = 1 << 30;
+    private static final int  CHECK_SIZE  = 1 << 20;
+
+    private final int    size;
+    private final long   end;
+    private final long[] blockStarts;       // blockStarts[b] is the offset of line b * BLOCK_LINES
+    private final int[]  blockPositions;    // blockPositions[b] is where the lengths of block b start in lengths
+    private final byte[] lengths;
+
+    private LineIndex(int size, long end, long[] blockStarts, int[] blockPositions, byte[] lengths) {
+        this.size = size;
+        this.end = end;
+        this.blockStarts = blockStarts;
+        this.blockPositions = blockPositions;
+        this.lengths = lengths;
+    }
+
+    /** @return the number of lines */
+    public int size() { return size; }
+
+    /**
+     * @param line the index of a line, from 0, or the number of lines
+     * @return the offset at which the line starts, or the size of the file for the number of lines
+     */
+    public long start(int line) {
+        if (line < 0 || line > size)
+            throw new IndexOutOfBoundsException(String.valueOf(line));
+        if (line == size)
+            return end;
+        int  block    = line / BLOCK_LINES;
+        long offset   = blockStarts[block];
+        int  position = blockPositions[block];
+        for (int i = block * BLOCK_LINES; i < line; i++) {
+            int length = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = lengths[position++];
+                length |= (b & 0x7f) << shift;
+                if (b >= 0)
+                    break;
+            }
+            offset += length;
+        }
+        return offset;
+    }
+
+    /**
+     * Reads a run of lines with one positional read of the channel.
+     *
+     * @param first the index of the first line, from 0
+     * @param count the number of lines
+     * @return the lines, without their line terminators
+     */
+    public String[] readLines(FileChannel channel, int first, int count) throws IOException {
+        if (first < 0 || count < 0 || first + count > size)
+            throw new IndexOutOfBoundsException(first + "+" + count);
+        long   from  = start(first);
+        long   to    = start(first + count);
+        if (to - from > Integer.MAX_VALUE)
+            throw new IOException("Too many bytes to read at once.");
+        byte[]     bytes  = new byte[(int) (to - from)];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, from + buffer.position()) < 0)
+                throw new IOException("The file is shorter than its line index.");
+        }
+        String[] lines     = new String[count];
+        int      lineStart = 0;
+        for (int i = 0; i < count; i++) {
+            int lineEnd = i + 1 == count ? bytes.length : (int) (start(first + i + 1) - from);
+            int next    = lineEnd;
+            if (lineEnd > lineStart && bytes[lineEnd - 1] == '\n')
+                lineEnd--;
+            if (lineEnd > lineStart && bytes[lineEnd - 1] == '\r')
+                lineEnd--;
+            lines[i] = new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+            lineStart = next;
+        }
+        return lines;
+    }
+
+    /**
+     * Builds the index of a file by scanning it for newlines.
+     *
+     * @param progress checked for cancellation as the file is scanned
+     */
+    public static LineIndex scan(Path path, LoadProgress progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long    fileSize  = channel.size();
+            Builder builder   = new Builder();
+            long    lineStart = 0;
+            for (long position = 0; position < fileSize; position += WINDOW_SIZE) {
+                int              length = (int) Math.min(WINDOW_SIZE, fileSize - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                for (int i = 0; i < length; i++) {
+                    if ((i & (CHECK_SIZE - 1)) == 0)
+                        progress.checkCancelled();
+                    if (window.get(i) == '\n') {
+                        builder.addLine(position + i + 1 - lineStart);
+                        lineStart = position + i + 1;
+                    }
+                }
+            }
+            if (lineStart < fileSize)
+                builder.addLine(fileSize - lineStart);
+            return builder.build();
+        }
+    }
+
+    /** @return the path of the index file that belongs to the given <code>.tsd</code> file */
+    public static Path indexPathOf(Path tsdFilePath) {
+        String fileName = tsdFilePath.getFileName().toString();
+        int    dot      = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return tsdFilePath.resolveSibling(baseName + INDEX_EXTENSION);
+    }
+
+    /**
+     * Loads the index file of the given <code>.tsd</code> file, if there is one and the <code>.tsd</code> file has not
+     * changed since the index was written.
+     *
+     * @param current the fingerprint of the <code>.tsd</code> file as it is now
+     * @return the index, or <code>null</code> if there is no up-to-date index file
+     */
+    public static LineIndex loadIfFresh(Path tsdFilePath, FileFingerprint current) {
+        Path indexPath = indexPathOf(tsdFilePath);
+        if (!Files.isRegularFile(indexPath))
+            return null;
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0)
+                    return null;
+            }
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                return null;
+            FileFingerprint recorded = new FileFingerprint(header.getLong(24), header.getLong(32), header.getLong(40));
+            if (!recorded.equals(current))
+                return null;
+            int  size   = header.getInt(8);
+            int  blocks = header.getInt(12);
+            int  bytes  = header.getInt(16);
+            long body   = (long) blocks * (Long.BYTES + Integer.BYTES) + bytes;
+            if (size < 0 || blocks != (size + BLOCK_LINES - 1) / BLOCK_LINES || bytes < size
+                || HEADER_SIZE + body != channel.size())
+                return null;
+            ByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, body).order(ByteOrder.LITTLE_ENDIAN);
+            long[] blockStarts    = new long[blocks];
+            int[]  blockPositions = new int[blocks];
+            byte[] lengths        = new byte[bytes];
+            map.asLongBuffer().get(blockStarts);
+            map.position(blocks * Long.BYTES);
+            map.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(blockPositions);
+            map.position(blocks * (Long.BYTES + Integer.BYTES));
+            map.get(lengths);
+            return new LineIndex(size, current.getSize(), blockStarts, blockPositions, lengths);
+        } catch (IOException | RuntimeException e) {
+            return null;            // an unreadable index is as good as none; the file will be scanned instead
+        }
+    }
+
+    /** Writes the index file of the given <code>.tsd</code> file, whose fingerprint is the given one. */
+    public void write(Path tsdFilePath, FileFingerprint source) throws IOException {
+        write(tsdFilePath, source, new LoadProgress());
+    }
+
+    /**
+     * Writes the index file as {@link #write(Path, FileFingerprint)} does, checking for cancellation every
+     * {@value #CHECK_SIZE} bytes. A cancelled write leaves no file behind.
+     *
+     * @throws java.util.concurrent.CancellationException if the progress was cancelled
+     */
+    public void write(Path tsdFilePath, FileFingerprint source, LoadProgress progress) throws IOException {
+        if (source.getSize() != end)
+            throw new IllegalArgumentException("The index does not belong to a file of " + source.getSize() + " bytes.");
+        Path indexPath = indexPathOf(tsdFilePath);
+        Path temporary = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try {
+            writeTo(temporary, source, progress);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, indexPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void writeTo(Path file, FileFingerprint source, LoadProgress progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            int        blocks = blockStarts.length;
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + blocks * (Long.BYTES + Integer.BYTES))
+                                          .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(blocks).putInt(lengths.length).putInt(0)
+                  .putLong(source.getSize()).putLong(source.getLastModified()).putLong(source.getChecksum());
+            for (long blockStart : blockStarts)
+                buffer.putLong(blockStart);
+            for (int blockPosition : blockPositions)
+                buffer.putInt(blockPosition);
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            for (int from = 0; from < lengths.length; from += CHECK_SIZE) {
+                progress.checkCancelled();
+                ByteBuffer rest = ByteBuffer.wrap(lengths, from, Math.min(CHECK_SIZE, lengths.length - from));
+                while (rest.hasRemaining())
+                    channel.write(rest);
+            }
+        }
+    }
+
+    /** Builds an index from the lengths of the lines of a file, in order. */
+    public static final class Builder {
+
+        private long[] blockStarts    = new long[16];
+        private int[]  blockPositions = new int[16];
+        private byte[] lengths        = new byte[1024];
+        private int    size;
+        private int    position;
+        private long   end;
+
+        /**
+         * Adds the next line of the file.
+         *
+         * @param length the length of the line in bytes, including its line terminator
+         */
+        public void addLine(long length) {
+            if (length <= 0 || length > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Bad line length " + length + ".");
+            if (size == Integer.MAX_VALUE - 8)
+                throw new IllegalStateException("Too many lines to index.");
+            if (size % BLOCK_LINES == 0) {
+                int block = size / BLOCK_LINES;
+                if (block == blockStarts.length) {
+                    blockStarts = Arrays.copyOf(blockStarts, block * 2);
+                    blockPositions = Arrays.copyOf(blockPositions, block * 2);
+                }
+                blockStarts[block] = end;
+                blockPositions[block] = position;
+            }
+            if (lengths.length - position < 5)
+                lengths = Arrays.copyOf(lengths, (int) Math.min((long) lengths.length * 2, Integer.MAX_VALUE - 8));
+            int value = (int) length;
+            while ((value & ~0x7f) != 0) {
+                lengths[position++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            lengths[position++] = (byte) value;
+            size++;
+            end += length;
+        }
+
+        /** Adds the lines of another builder, which indexes the part of the file that follows this builder's. */
+        public void append(Builder other) {
+            for (int i = 0, p = 0; i < other.size; i++) {
+                int length = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = other.lengths[p++];
+                    length |= (b & 0x7f) << shift;
+                    if (b >= 0)
+                        break;
+                }
+                addLine(length);
+            }
+        }
+
+        public LineIndex build() {
+            int blocks = (size + BLOCK_LINES - 1) / BLOCK_LINES;
+            return new LineIndex(size, end, Arrays.copyOf(blockStarts, blocks), Arrays.copyOf(blockPositions, blocks),
+                                 Arrays.copyOf(lengths, position));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package data;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tracks the progress of loading a <code>.tsd</code> file, and lets the load be cancelled. The loader counts the bytes
+ * it has hashed to {@link FileFingerprint fingerprint} the file, the bytes it has read, the lines it has parsed, and
+ * the lines it has validated; a line is validated once it is known that no
+ * earlier line has the same instance name, which, when chunks of a file are parsed in parallel, is only when its
+ * chunk is merged into the dataset. Counters may be updated from several threads.
+ * <p>
+ * Progress is reported, and cancellation checked, every {@value #REPORT_INTERVAL} lines. A cancelled load throws a
+ * {@link CancellationException}.
+ */
+public final class LoadProgress {
+
+    static final int REPORT_INTERVAL = 1 << 16;
+
+    private final AtomicLong      bytesHashed    = new AtomicLong();
+    private final AtomicLong      bytesRead      = new AtomicLong();
+    private final AtomicLong      linesParsed    = new AtomicLong();
+    private final AtomicLong      linesValidated = new AtomicLong();
+    private final BooleanSupplier cancelled;
+    private volatile Runnable     listener;
+
+    /** Creates progress for a load that cannot be cancelled. */
+    public LoadProgress() {
+        this(() -> false);
+    }
+
+    /** @param cancelled tells whether the load has been cancelled */
+    public LoadProgress(BooleanSupplier cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    /** Sets the listener that is run, on the loading thread, whenever progress is reported. */
+    public void setListener(Runnable listener) { this.listener = listener; }
+
+    public long getBytesHashed()    { return bytesHashed.get(); }
+
+    public long getBytesRead()      { return bytesRead.get(); }
+
+    public long getLinesParsed()    { return linesParsed.get(); }
+
+    public long getLinesValidated() { return linesValidated.get(); }
+
+    public boolean isCancelled()    { return cancelled.getAsBoolean(); }
+
+    /** @throws CancellationException if the load has been cancelled */
+    public void checkCancelled() {
+        if (isCancelled())
+            throw new CancellationException();
+    }
+
+    void addHashed(long bytes) {
+        bytesHashed.addAndGet(bytes);
+        changed();
+    }
+
+    void addParsed(long bytes, long lines, boolean validated) {
+        bytesRead.addAndGet(bytes);
+        linesParsed.addAndGet(lines);
+        if (validated)
+            linesValidated.addAndGet(lines);
+        changed();
+    }
+
+    void addValidated(long lines) {
+        linesValidated.addAndGet(lines);
+        changed();
+    }
+
+    private void changed() {
+        Runnable current = listener;
+        if (current != null)
+            current.run();
+    }
+}
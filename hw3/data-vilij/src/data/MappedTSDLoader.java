@@ -0,0 +1,512 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Loads a <code>.tsd</code> file into a {@link DataSet} without going through {@link String} lines. The file is
+ * memory-mapped, tabs, commas and newlines are found by scanning the raw bytes, and coordinates are parsed in place
+ * and written straight into the dataset's columns. The only strings created are the instance names and one per
+ * distinct label.
+ * <p>
+ * Files larger than a single mapping are read through consecutive windows that always end on a line boundary. In
+ * parallel mode the file is instead split into line-aligned chunks, each chunk is parsed into its own dataset on a
+ * {@link ForkJoinPool} worker, and the chunks are appended in file order. Errors are reported as the first error in the
+ * file, just as a sequential parse would report them.
+ * <p>
+ * Both modes report their progress to a {@link LoadProgress}, and stop with a
+ * {@link java.util.concurrent.CancellationException} once it is cancelled. Either can also build the
+ * {@link LineIndex} of the file as it goes, from the line boundaries it finds anyway, and gather the
+ * {@link DatasetStats} of the instances as they are parsed; in parallel mode each chunk gathers its own, and they are
+ * merged in file order as the chunks are appended.
+ */
+final class MappedTSDLoader {
+
+    /** The largest region of the file mapped at once. A single line may not be longer than this. */
+    static final int WINDOW_SIZE = 1 << 30;
+
+    /** Parallel parsing does not split files into chunks smaller than this. */
+    static final int MIN_CHUNK_SIZE = 1 << 22;
+
+    /** The number of chunks per worker, so that workers that finish early can pick up more work. */
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /** An assumed average line length, used to size the dataset up front. */
+    private static final int AVERAGE_LINE_LENGTH = 64;
+
+    /** Mantissas of up to 15 digits are below 2^53, and so are exact doubles. */
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final int MAX_EXACT_POWER  = 22;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private MappedTSDLoader() { }
+
+    static DataSet load(Path tsdFilePath, boolean parallel, LoadProgress progress) throws IOException {
+        return load(tsdFilePath, parallel, progress, null, null);
+    }
+
+    /**
+     * @param lines if not <code>null</code>, given the lines of the file as they are parsed; it only indexes the
+     *              whole file if the load succeeds
+     * @param stats if not <code>null</code>, given the instances of the file as they are parsed; it only holds the
+     *              statistics of the whole file if the load succeeds
+     */
+    static DataSet load(Path tsdFilePath, boolean parallel, LoadProgress progress, LineIndex.Builder lines,
+                        DatasetStats stats) throws IOException {
+        try (FileChannel channel = FileChannel.open(tsdFilePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (parallel && size > MIN_CHUNK_SIZE)
+                return loadParallel(channel, size, progress, lines, stats);
+            DataSet     dataSet  = new DataSet((int) Math.min(size / AVERAGE_LINE_LENGTH, Integer.MAX_VALUE - 8));
+            RangeParser parser   = new RangeParser(dataSet, 1, progress, true, lines, stats);
+            long        position = 0;
+            while (position < size) {
+                int              length = (int) Math.min(WINDOW_SIZE, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = position + length == size ? length : lastLineEnd(window, length);
+                if (end == 0)
+                    throw new TSDFormatException(parser.getLineNumber(), false, "Line is longer than " + WINDOW_SIZE + " bytes.");
+                parser.parse(window, 0, end);
+                position += end;
+            }
+            return dataSet;
+        }
+    }
+
+    private static DataSet loadParallel(FileChannel channel, long size, LoadProgress progress, LineIndex.Builder lines,
+                                        DatasetStats stats) throws IOException {
+        int  workers   = ForkJoinPool.getCommonPoolParallelism();
+        long chunkSize = Math.min(WINDOW_SIZE / 2, Math.max(MIN_CHUNK_SIZE, size / ((long) workers * CHUNKS_PER_WORKER)));
+
+        List<ChunkTask> tasks   = new ArrayList<>();
+        DataSet         dataSet = new DataSet((int) Math.min(size / AVERAGE_LINE_LENGTH, Integer.MAX_VALUE - 8));
+        boolean         merged  = false;
+        try {
+            long start = 0;
+            while (start < size) {
+                long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize, size);
+                if (end - start > WINDOW_SIZE)
+                    throw new IOException("A line is longer than " + WINDOW_SIZE / 2 + " bytes.");
+                ChunkTask task = new ChunkTask(channel, start, end, progress, lines != null, stats != null);
+                task.fork();
+                tasks.add(task);
+                start = end;
+            }
+            merge(tasks, dataSet, progress, lines, stats);
+            merged = true;
+        } finally {
+            if (!merged) {
+                for (ChunkTask task : tasks)
+                    task.cancel(true);          // those not yet started never will, the others stop at their next report
+            }
+        }
+        return dataSet;
+    }
+
+    /** Appends the chunks to the dataset in file order, and throws the first error in the file. */
+    private static void merge(List<ChunkTask> tasks, DataSet dataSet, LoadProgress progress, LineIndex.Builder lines,
+                              DatasetStats stats) throws IOException {
+        long linesBefore = 0;
+        for (ChunkTask task : tasks) {
+            progress.checkCancelled();
+            Chunk chunk = task.join();
+            if (chunk.ioError != null)
+                throw chunk.ioError;
+            int duplicateRow = dataSet.append(chunk.dataSet);
+            if (duplicateRow >= 0)
+                throw new TSDFormatException(linesBefore + duplicateRow + 1, true, "Duplicate instance name " + chunk.dataSet.getName(duplicateRow) + ".");
+            if (chunk.error != null) {
+                if (chunk.failedName != null && dataSet.indexOf(chunk.failedName) >= 0)
+                    throw new TSDFormatException(linesBefore + chunk.error.getLineNumber(), true, "Duplicate instance name " + chunk.failedName + ".");
+                throw chunk.error.movedBy(linesBefore);
+            }
+            linesBefore += chunk.dataSet.size();
+            progress.addValidated(chunk.dataSet.size());
+            if (lines != null)
+                lines.append(chunk.lines);
+            if (stats != null)
+                stats.merge(chunk.stats);
+        }
+    }
+
+    /** @return the offset just past the first newline at or after <code>position</code>, or the file size */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0)
+                break;
+            int newline = indexOf(buffer, '\n', 0, read);
+            if (newline >= 0)
+                return position + newline + 1;
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * The result of parsing one chunk: the instances before the first bad line, and the error for that line. Line
+     * numbers in the error are relative to the start of the chunk.
+     */
+    private static final class Chunk {
+        DataSet           dataSet;
+        TSDFormatException error;
+        String            failedName;
+        IOException       ioError;
+        LineIndex.Builder lines;
+        DatasetStats      stats;
+    }
+
+    private static final class ChunkTask extends RecursiveTask<Chunk> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel  channel;
+        private final long         start;
+        private final long         end;
+        private final LoadProgress progress;
+        private final boolean      indexed;
+        private final boolean      summarized;
+
+        ChunkTask(FileChannel channel, long start, long end, LoadProgress progress, boolean indexed,
+                  boolean summarized) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.progress = progress;
+            this.indexed = indexed;
+            this.summarized = summarized;
+        }
+
+        @Override
+        protected Chunk compute() {
+            Chunk       chunk  = new Chunk();
+            chunk.dataSet = new DataSet((int) ((end - start) / AVERAGE_LINE_LENGTH));
+            chunk.lines = indexed ? new LineIndex.Builder() : null;
+            chunk.stats = summarized ? new DatasetStats() : null;
+            RangeParser parser = new RangeParser(chunk.dataSet, 1, progress, false, chunk.lines, chunk.stats);
+            parser.stopWhen(this::isCancelled);
+            try {
+                int length = (int) (end - start);
+                parser.parse(channel.map(FileChannel.MapMode.READ_ONLY, start, length), 0, length);
+            } catch (TSDFormatException e) {
+                chunk.error = e;
+                chunk.failedName = parser.getFailedName();
+            } catch (IOException e) {
+                chunk.ioError = e;
+            }
+            return chunk;
+        }
+    }
+
+    /** @return the offset just past the last newline in the first <code>length</code> bytes, or 0 if there is none */
+    static int lastLineEnd(ByteBuffer buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n')
+                return i + 1;
+        }
+        return 0;
+    }
+
+    /** @return the position of the first <code>b</code> in <code>[from, to)</code>, or -1 */
+    static int indexOf(ByteBuffer buffer, char b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == b)
+                return i;
+        }
+        return -1;
+    }
+
+    /** Mirrors {@link String#trim()}: a range is blank if it only holds bytes up to and including the space. */
+    static boolean isBlank(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if ((buffer.get(i) & 0xff) > ' ')
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses whole lines out of a byte range into a dataset. Instances are checked in the same order as
+     * {@link dataprocessors.AppData#parseData(java.util.ArrayList)}: the name prefix, the number of fields, the label,
+     * the uniqueness of the name, and finally the location, which must be exactly two comma-separated numbers.
+     */
+    static final class RangeParser {
+
+        private final DataSet      dataSet;
+        private final LabelTable   labelTable;
+        private final LoadProgress progress;
+        private final boolean      validated;
+        private final LineIndex.Builder lines;
+        private final DatasetStats stats;
+        private BooleanSupplier    abandoned = () -> false;
+        private long               lineNumber;
+        private byte[]           scratch = new byte[64];
+        private double           parsedValue;
+        private String           failedName;
+
+        /**
+         * @param validated whether the lines of this parser are validated once parsed, which is the case unless
+         *                  earlier lines of the file are parsed separately
+         * @param lines     if not <code>null</code>, given the length of each line once it is parsed
+         * @param stats     if not <code>null</code>, given each instance once it is added to the dataset
+         */
+        RangeParser(DataSet dataSet, long firstLineNumber, LoadProgress progress, boolean validated, LineIndex.Builder lines,
+                    DatasetStats stats) {
+            this.dataSet = dataSet;
+            this.labelTable = new LabelTable(dataSet);
+            this.progress = progress;
+            this.validated = validated;
+            this.lines = lines;
+            this.stats = stats;
+            this.lineNumber = firstLineNumber;
+        }
+
+        /**
+         * Has the parser stop at its next progress report once its result is no longer wanted, as it is not once an
+         * earlier chunk of the file failed, throwing a {@link CancellationException} as a cancelled load does.
+         */
+        void stopWhen(BooleanSupplier abandoned) { this.abandoned = abandoned; }
+
+        /** @return the number of the next line to be parsed */
+        long getLineNumber() { return lineNumber; }
+
+        /**
+         * @return the instance name of the line that failed, if it failed on its location; whether that line should
+         * have been reported as a duplicate depends on the lines of the file before this parser's range
+         */
+        String getFailedName() { return failedName; }
+
+        /**
+         * Parses the lines in <code>[from, to)</code>. Every line must end with a newline, except possibly the last one
+         * in the range. A newline may be preceded by a carriage return.
+         */
+        void parse(ByteBuffer buffer, int from, int to) throws TSDFormatException {
+            int lineStart    = from;
+            int reportedLine = 0;
+            int reportedByte = from;
+            while (lineStart < to) {
+                int lineEnd = lineStart;
+                while (lineEnd < to && buffer.get(lineEnd) != '\n')
+                    lineEnd++;
+                int next = lineEnd + 1;
+                if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r')
+                    lineEnd--;
+                parseLine(buffer, lineStart, lineEnd);
+                if (lines != null)
+                    lines.addLine(Math.min(next, to) - lineStart);
+                lineNumber++;
+                lineStart = next;
+                if (++reportedLine == LoadProgress.REPORT_INTERVAL) {
+                    int parsedTo = Math.min(lineStart, to);
+                    progress.addParsed(parsedTo - reportedByte, reportedLine, validated);
+                    progress.checkCancelled();
+                    if (abandoned.getAsBoolean())
+                        throw new CancellationException();
+                    reportedLine = 0;
+                    reportedByte = parsedTo;
+                }
+            }
+            progress.addParsed(to - reportedByte, reportedLine, validated);
+        }
+
+        private void parseLine(ByteBuffer buffer, int start, int end) throws TSDFormatException {
+            if (isBlank(buffer, start, end))
+                throw error("Line is empty.");
+            if (buffer.get(start) != '@')
+                throw error("Instance names must start with the @ character.");
+            int labelStart = indexOf(buffer, '\t', start, end) + 1;
+            int pointStart = labelStart == 0 ? 0 : indexOf(buffer, '\t', labelStart, end) + 1;
+            if (pointStart == 0)
+                throw error("Line must have a name, a label and a location separated by tabs.");
+            int pointEnd = indexOf(buffer, '\t', pointStart, end);
+            if (pointEnd < 0) {
+                pointEnd = end;
+            } else {
+                for (int i = pointEnd; i < end; i++) {         // trailing tabs are ignored, as String.split does
+                    if (buffer.get(i) != '\t')
+                        throw error("Line has more than three tab-separated fields.");
+                }
+            }
+            if (pointEnd == pointStart)
+                throw error("Line must have a name, a label and a location separated by tabs.");
+            if (isBlank(buffer, labelStart, pointStart - 1))
+                throw error("Label is empty.");
+
+            String  name    = decode(buffer, start, labelStart - 1);
+            int     labelId = labelTable.idOf(buffer, labelStart, pointStart - 1);
+            int     comma   = indexOf(buffer, ',', pointStart, pointEnd);
+            boolean located = comma >= 0 && indexOf(buffer, ',', comma + 1, pointEnd) < 0
+                              && parseDouble(buffer, pointStart, comma);
+            double  x       = parsedValue;
+            located = located && parseDouble(buffer, comma + 1, pointEnd);
+            if (!located) {
+                if (dataSet.indexOf(name) >= 0)
+                    throw duplicate(name);
+                failedName = name;
+                throw error("Location must be two comma-separated numbers.");
+            }
+            if (!dataSet.addNewInstance(name, labelId, x, parsedValue))
+                throw duplicate(name);
+            if (stats != null)
+                stats.add(dataSet, labelId, x, parsedValue);
+        }
+
+        /**
+         * Parses a number into {@link #parsedValue}. A plain decimal with at most 15 significant digits and a small
+         * exponent is converted with a single multiplication or division by an exact power of ten, which rounds the
+         * same way {@link Double#parseDouble(String)} does. Anything else is handed to <code>Double.parseDouble</code>.
+         *
+         * @return <code>false</code> if the range is not a number
+         */
+        private boolean parseDouble(ByteBuffer buffer, int start, int end) {
+            int     i        = start;
+            boolean negative = false;
+            if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+                negative = buffer.get(i++) == '-';
+            long    mantissa    = 0;
+            int     significant = 0;
+            int     exponent    = 0;
+            boolean digits      = false;
+            boolean point       = false;
+            for (; i < end && significant <= MAX_EXACT_DIGITS; i++) {
+                byte b = buffer.get(i);
+                if (b >= '0' && b <= '9') {
+                    digits = true;
+                    if (mantissa != 0 || b != '0')
+                        significant++;
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (point)
+                        exponent--;
+                } else if (b == '.' && !point) {
+                    point = true;
+                } else {
+                    break;
+                }
+            }
+            if (i < end && digits && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+                int     j           = i + 1;
+                boolean negativeExp = false;
+                if (j < end && (buffer.get(j) == '-' || buffer.get(j) == '+'))
+                    negativeExp = buffer.get(j++) == '-';
+                int written = 0;
+                int value   = 0;
+                for (; j < end && written < 4 && buffer.get(j) >= '0' && buffer.get(j) <= '9'; j++, written++)
+                    value = value * 10 + (buffer.get(j) - '0');
+                if (written > 0) {
+                    exponent += negativeExp ? -value : value;
+                    i = j;
+                }
+            }
+            if (i == end && digits && significant <= MAX_EXACT_DIGITS && Math.abs(exponent) <= MAX_EXACT_POWER) {
+                double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+                parsedValue = negative ? -value : value;
+                return true;
+            }
+            try {
+                parsedValue = Double.parseDouble(decode(buffer, start, end));
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        private String decode(ByteBuffer buffer, int start, int end) {
+            int length = end - start;
+            if (scratch.length < length)
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            for (int i = 0; i < length; i++)
+                scratch[i] = buffer.get(start + i);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private TSDFormatException error(String message) {
+            return new TSDFormatException(lineNumber, false, message);
+        }
+
+        private TSDFormatException duplicate(String name) {
+            return new TSDFormatException(lineNumber, true, "Duplicate instance name " + name + ".");
+        }
+    }
+
+    /**
+     * Maps label bytes to label ids of a dataset, so that a label only becomes a {@link String} the first time it is
+     * seen. Labels are kept in a small open-addressing table keyed on their bytes.
+     */
+    static final class LabelTable {
+
+        private final DataSet dataSet;
+        private byte[][]      keys = new byte[16][];
+        private int[]         ids  = new int[16];
+        private int           size;
+
+        LabelTable(DataSet dataSet) { this.dataSet = dataSet; }
+
+        int idOf(ByteBuffer buffer, int start, int end) {
+            int hash = 1;
+            for (int i = start; i < end; i++)
+                hash = 31 * hash + buffer.get(i);
+            int mask = keys.length - 1;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            for (; keys[slot] != null; slot = (slot + 1) & mask) {
+                if (matches(keys[slot], buffer, start, end))
+                    return ids[slot];
+            }
+            byte[] key = new byte[end - start];
+            for (int i = 0; i < key.length; i++)
+                key[i] = buffer.get(start + i);
+            int id = dataSet.labelIdOf(new String(key, StandardCharsets.UTF_8));
+            keys[slot] = key;
+            ids[slot] = id;
+            if (++size * 2 > keys.length)
+                rehash();
+            return id;
+        }
+
+        private static boolean matches(byte[] key, ByteBuffer buffer, int start, int end) {
+            if (key.length != end - start)
+                return false;
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer.get(start + i))
+                    return false;
+            }
+            return true;
+        }
+
+        private void rehash() {
+            byte[][] oldKeys = keys;
+            int[]    oldIds  = ids;
+            keys = new byte[oldKeys.length * 2][];
+            ids = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int hash = 1;
+                    for (byte b : oldKeys[i])
+                        hash = 31 * hash + b;
+                    int slot = (hash ^ (hash >>> 16)) & mask;
+                    while (keys[slot] != null)
+                        slot = (slot + 1) & mask;
+                    keys[slot] = oldKeys[i];
+                    ids[slot] = oldIds[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package data;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash index from instance names to row numbers. It is used by {@link DataSet} in place of a
+ * <code>HashMap&lt;String, Integer&gt;</code> so that looking up a row neither boxes the row number nor allocates a
+ * map entry per instance.
+ */
+final class NameIndex {
+
+    private static final int NOT_FOUND = -1;
+
+    private String[] keys;
+    private int[]    rows;
+    private int      size;
+
+    NameIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.min(Math.max(16, expectedSize), 1 << 28) * 2 - 1) << 1;
+        keys = new String[capacity];
+        rows = new int[capacity];
+    }
+
+    private NameIndex(NameIndex other) {
+        keys = other.keys.clone();
+        rows = other.rows.clone();
+        size = other.size;
+    }
+
+    /** @return an independent index with the same entries */
+    NameIndex copy() { return new NameIndex(this); }
+
+    int size() { return size; }
+
+    /** @return the row of the given name, or <code>-1</code> if the name is not indexed */
+    int get(Object name) {
+        if (name == null)
+            return NOT_FOUND;
+        int mask = keys.length - 1;
+        for (int slot = spread(name.hashCode()) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot].equals(name))
+                return rows[slot];
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Indexes the given name at the given row, unless the name is already indexed.
+     *
+     * @return the row the name was already indexed at, or <code>-1</code> if it was added
+     */
+    int putIfAbsent(String name, int row) {
+        if ((size + 1) * 2 > keys.length)
+            rehash(keys.length << 1);
+        int mask = keys.length - 1;
+        int slot = spread(name.hashCode()) & mask;
+        for (; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot].equals(name))
+                return rows[slot];
+        }
+        keys[slot] = name;
+        rows[slot] = row;
+        size++;
+        return NOT_FOUND;
+    }
+
+    void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        String[] oldKeys = keys;
+        int[]    oldRows = rows;
+        keys = new String[capacity];
+        rows = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = spread(oldKeys[i].hashCode()) & mask;
+                while (keys[slot] != null)
+                    slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[i];
+                rows[slot] = oldRows[i];
+            }
+        }
+    }
+
+    private static int spread(int h) {
+        return (h ^ (h >>> 16)) * 0x9E3779B1;
+    }
+}
@@ -0,0 +1,42 @@
+package data;
+
+import java.io.IOException;
+
+/**
+ * Signals that a line of a <code>.tsd</code> file does not follow the data format. The exception carries the
+ * (1-based) number of the offending line and whether the problem is a repeated instance name, so that callers can
+ * report it the same way {@link dataprocessors.AppData#parseData(java.util.ArrayList)} does.
+ */
+public class TSDFormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long    lineNumber;
+    private final boolean duplicateName;
+    private final String  reason;
+
+    public TSDFormatException(long lineNumber, boolean duplicateName, String reason) {
+        super(String.format("Line %d: %s", lineNumber, reason));
+        this.lineNumber = lineNumber;
+        this.duplicateName = duplicateName;
+        this.reason = reason;
+    }
+
+    /** @return the same error, for a line that many lines further down */
+    TSDFormatException movedBy(long lines) {
+        return new TSDFormatException(lineNumber + lines, duplicateName, reason);
+    }
+
+    public long getLineNumber()      { return lineNumber; }
+
+    public boolean isDuplicateName() { return duplicateName; }
+
+    /**
+     * @return the line number of the error, negated if the error is a duplicate instance name, which is the error code
+     * convention used by {@link dataprocessors.AppData#parseData(java.util.ArrayList)}
+     */
+    public int getErrorCode() {
+        int line = (int) Math.min(lineNumber, Integer.MAX_VALUE);
+        return duplicateName ? -line : line;
+    }
+}
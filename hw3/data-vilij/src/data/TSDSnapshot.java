@@ -0,0 +1,289 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A binary, column-oriented snapshot of a {@link DataSet}, kept as a <code>.tsdb</code> file next to the
+ * <code>.tsd</code> file it was loaded from. Reloading a snapshot needs no text parsing: the columns are copied out of
+ * a memory map of the file, so a reload takes little more than the time to read the file.
+ * <p>
+ * The file is little-endian, with every section aligned to 8 bytes:
+ * <ol>
+ * <li>a header: magic number, version, instance count, label count, and the fingerprint (size, modification time and
+ * checksum) of the source <code>.tsd</code> file,</li>
+ * <li>the label dictionary, as length-prefixed UTF-8 strings,</li>
+ * <li>the end offset of each instance name within the name bytes, followed by the UTF-8 name bytes,</li>
+ * <li>the x column, the y column and the label id column.</li>
+ * </ol>
+ * A snapshot is only used while the fingerprint of its source file still matches.
+ */
+public final class TSDSnapshot {
+
+    public static final String SNAPSHOT_EXTENSION = ".tsdb";
+
+    private static final int  MAGIC       = 0x42445354;     // "TSDB"
+    private static final int  VERSION     = 1;
+    private static final int  HEADER_SIZE = 40;
+    private static final int  BUFFER_SIZE = 1 << 20;
+    private static final long WINDOW_SIZE = 1 << 30;
+
+    private TSDSnapshot() { }
+
+    /** @return the path of the snapshot that belongs to the given <code>.tsd</code> file */
+    public static Path snapshotPathOf(Path tsdFilePath) {
+        String fileName = tsdFilePath.getFileName().toString();
+        int    dot      = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return tsdFilePath.resolveSibling(baseName + SNAPSHOT_EXTENSION);
+    }
+
+    /**
+     * Loads the snapshot of the given <code>.tsd</code> file, if there is one and the <code>.tsd</code> file has not
+     * changed since the snapshot was written.
+     *
+     * @param current the fingerprint of the <code>.tsd</code> file as it is now
+     * @return the dataset, or <code>null</code> if there is no up-to-date snapshot
+     */
+    public static DataSet loadIfFresh(Path tsdFilePath, FileFingerprint current) {
+        Path snapshotPath = snapshotPathOf(tsdFilePath);
+        if (!Files.isRegularFile(snapshotPath))
+            return null;
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            if (header == null)
+                return null;
+            FileFingerprint recorded = new FileFingerprint(header.getLong(16), header.getLong(24), header.getLong(32));
+            if (!recorded.equals(current))
+                return null;
+            return read(channel, header);
+        } catch (IOException | RuntimeException e) {
+            return null;            // an unreadable snapshot is as good as none; the text file will be parsed instead
+        }
+    }
+
+    /** Writes the snapshot of a dataset loaded from the given <code>.tsd</code> file with the given fingerprint. */
+    public static void write(DataSet dataSet, Path tsdFilePath, FileFingerprint source) throws IOException {
+        write(dataSet, tsdFilePath, source, new LoadProgress());
+    }
+
+    /**
+     * Writes the snapshot of a dataset as {@link #write(DataSet, Path, FileFingerprint)} does, checking for
+     * cancellation whenever a buffer is written. A cancelled write leaves no file behind.
+     *
+     * @throws java.util.concurrent.CancellationException if the progress was cancelled
+     */
+    public static void write(DataSet dataSet, Path tsdFilePath, FileFingerprint source, LoadProgress progress)
+            throws IOException {
+        Path snapshotPath = snapshotPathOf(tsdFilePath);
+        Path temporary    = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try {
+            writeTo(temporary, dataSet, source, progress);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeTo(Path file, DataSet dataSet, FileFingerprint source, LoadProgress progress)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer       writer = new Writer(channel, progress);
+            int          rows   = dataSet.size();
+            List<String> labels = dataSet.getLabelDictionary();
+
+            writer.ensure(HEADER_SIZE);
+            writer.buffer.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(labels.size())
+                         .putLong(source.getSize()).putLong(source.getLastModified()).putLong(source.getChecksum());
+
+            for (String label : labels)
+                writer.putBytes(label.getBytes(StandardCharsets.UTF_8));
+            writer.align();
+
+            byte[][] names  = new byte[rows][];
+            long     offset = 0;
+            for (int row = 0; row < rows; row++) {
+                names[row] = dataSet.getName(row).getBytes(StandardCharsets.UTF_8);
+                offset += names[row].length;
+                if (offset > Integer.MAX_VALUE)
+                    throw new IOException("Instance names are too long for a snapshot.");
+                writer.ensure(Integer.BYTES);
+                writer.buffer.putInt((int) offset);
+            }
+            writer.align();
+            for (byte[] name : names)
+                writer.put(name);
+            writer.align();
+
+            writer.putDoubles(dataSet.getXs(), rows);
+            writer.putDoubles(dataSet.getYs(), rows);
+            writer.putInts(dataSet.getLabelIds(), rows);
+            writer.flush();
+        }
+    }
+
+    /** @return the header, or <code>null</code> if the file is not a snapshot this version can read */
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0)
+                return null;
+        }
+        return header.getInt(0) == MAGIC && header.getInt(4) == VERSION ? header : null;
+    }
+
+    private static DataSet read(FileChannel channel, ByteBuffer header) throws IOException {
+        int  rows       = header.getInt(8);
+        int  labelCount = header.getInt(12);
+        long position   = HEADER_SIZE;
+
+        List<String>     labels = new ArrayList<>(labelCount);
+        MappedByteBuffer map    = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, channel.size() - position));
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < labelCount; i++) {
+            byte[] bytes = new byte[map.getInt()];
+            map.get(bytes);
+            labels.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        position = align(position + map.position());
+
+        int[] nameEnds = new int[rows];
+        position = readInts(channel, position, nameEnds, rows);
+        String[] names     = new String[rows];
+        int      nameBytes = rows == 0 ? 0 : nameEnds[rows - 1];
+        map = channel.map(FileChannel.MapMode.READ_ONLY, position, nameBytes);
+        byte[] scratch = new byte[64];
+        for (int row = 0, start = 0; row < rows; start = nameEnds[row++]) {
+            int length = nameEnds[row] - start;
+            if (scratch.length < length)
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            map.get(scratch, 0, length);
+            names[row] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        position = align(position + nameBytes);
+
+        double[] xs       = new double[rows];
+        double[] ys       = new double[rows];
+        int[]    labelIds = new int[rows];
+        position = readDoubles(channel, position, xs, rows);
+        position = readDoubles(channel, position, ys, rows);
+        readInts(channel, position, labelIds, rows);
+        for (int row = 0; row < rows; row++) {
+            if (labelIds[row] < 0 || labelIds[row] >= labelCount)
+                throw new IOException("Corrupt snapshot.");
+        }
+        return new DataSet(labels, names, xs, ys, labelIds);
+    }
+
+    private static long readDoubles(FileChannel channel, long position, double[] destination, int count) throws IOException {
+        for (int done = 0; done < count; ) {
+            int n = (int) Math.min(count - done, WINDOW_SIZE / Double.BYTES);
+            channel.map(FileChannel.MapMode.READ_ONLY, position, (long) n * Double.BYTES)
+                   .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(destination, done, n);
+            done += n;
+            position += (long) n * Double.BYTES;
+        }
+        return align(position);
+    }
+
+    private static long readInts(FileChannel channel, long position, int[] destination, int count) throws IOException {
+        for (int done = 0; done < count; ) {
+            int n = (int) Math.min(count - done, WINDOW_SIZE / Integer.BYTES);
+            channel.map(FileChannel.MapMode.READ_ONLY, position, (long) n * Integer.BYTES)
+                   .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(destination, done, n);
+            done += n;
+            position += (long) n * Integer.BYTES;
+        }
+        return align(position);
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Buffers writes to the snapshot file, keeps track of the file position for alignment, and checks for cancellation
+     * before each buffer is written.
+     */
+    private static final class Writer {
+
+        final ByteBuffer           buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final FileChannel  channel;
+        private final LoadProgress progress;
+        private long               written;
+
+        Writer(FileChannel channel, LoadProgress progress) {
+            this.channel = channel;
+            this.progress = progress;
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes)
+                flush();
+        }
+
+        void put(byte[] bytes) throws IOException {
+            for (int done = 0; done < bytes.length; ) {
+                ensure(1);
+                int n = Math.min(bytes.length - done, buffer.remaining());
+                buffer.put(bytes, done, n);
+                done += n;
+            }
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(bytes.length);
+            put(bytes);
+        }
+
+        void putDoubles(double[] values, int count) throws IOException {
+            for (int done = 0; done < count; ) {
+                ensure(Double.BYTES);
+                int n = Math.min(count - done, buffer.remaining() / Double.BYTES);
+                buffer.asDoubleBuffer().put(values, done, n);
+                buffer.position(buffer.position() + n * Double.BYTES);
+                done += n;
+            }
+            align();
+        }
+
+        void putInts(int[] values, int count) throws IOException {
+            for (int done = 0; done < count; ) {
+                ensure(Integer.BYTES);
+                int n = Math.min(count - done, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().put(values, done, n);
+                buffer.position(buffer.position() + n * Integer.BYTES);
+                done += n;
+            }
+            align();
+        }
+
+        void align() throws IOException {
+            long position = written + buffer.position();
+            ensure(8);
+            for (long i = position; i < TSDSnapshot.align(position); i++)
+                buffer.put((byte) 0);
+        }
+
+        void flush() throws IOException {
+            progress.checkCancelled();
+            buffer.flip();
+            while (buffer.hasRemaining())
+                written += channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
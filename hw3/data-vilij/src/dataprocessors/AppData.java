@@ -1,10 +1,13 @@
 package dataprocessors;
 
 import actions.AppActions;
+import data.DataSet;
+import data.DataSetCache;
+import data.DatasetStats;
+import data.LoadProgress;
+import data.TSDFormatException;
 import javafx.collections.FXCollections;
-import javafx.scene.control.Alert;
 import javafx.scene.control.ChoiceBox;
-import javafx.scene.control.TextArea;
 import settings.AppPropertyTypes;
 import ui.AppUI;
 import vilij.components.DataComponent;
@@ -18,7 +21,6 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Stack;
 
 import static settings.AppPropertyTypes.*;
 
@@ -32,8 +34,12 @@ public class AppData implements DataComponent {
 
     private TSDProcessor processor;
     private ApplicationTemplate applicationTemplate;
-    private Stack<String> extraLines = new Stack();
     private int numOfLabels;
+    private DataSet dataSet;
+    private DatasetStats stats;
+    private final DataSetCache dataSetCache = new DataSetCache();
+    private DataLoadTask loadTask;
+    private final IncrementalValidator textValidator = new IncrementalValidator();
 
     public TSDProcessor getTSDProcessor() {
         return processor;
@@ -43,16 +49,28 @@ public class AppData implements DataComponent {
         return applicationTemplate;
     }
 
-    public Stack<String> getExtraLines() {
-        return extraLines;
-    }
-
     public int getNumOfLabels() { return numOfLabels; }
 
-    public void setExtraLines(Stack<String> extraLines) {
-        this.extraLines = extraLines;
+    /** @return the frozen dataset parsed from the most recently loaded data file */
+    public DataSet getDataSet() { return dataSet; }
+
+    /**
+     * @return the frozen dataset of the given data file, parsed again only if the file changed since it was last parsed
+     * @throws TSDFormatException if the data is invalid
+     */
+    public DataSet getDataSet(Path dataFilePath) throws IOException { return dataSetCache.get(dataFilePath); }
+
+    /**
+     * @return the statistics of the dataset of the given data file, kept with the dataset rather than gathered again
+     * @throws TSDFormatException if the data is invalid
+     */
+    public DatasetStats getStats(Path dataFilePath) throws IOException {
+        return dataSetCache.getStats(dataFilePath, new LoadProgress());
     }
 
+    /** @return the statistics of the most recently loaded data file, or of the text area data once it is validated */
+    public DatasetStats getStats() { return stats; }
+
     public void setNumOfLabels(int value) {
         numOfLabels = value;
     }
@@ -67,66 +85,99 @@ public class AppData implements DataComponent {
 
     @Override
     public void loadData(Path dataFilePath) {
-        File file = dataFilePath.toFile();
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(file));
-            ArrayList<String> data = new ArrayList<>();
-
-            String input;
-            while ((input = br.readLine()) != null) {
-                data.add(input);
-            }
-            if (data.size() > 10) {
-                dataSizeErrorHandler(data);
-            }
-            int x = parseData(data);
-            if (x == 0) {     // parseData returns the line of the first error or 0 if data is valid
-                PropertyManager manager = applicationTemplate.manager;
-                ((AppUI) applicationTemplate.getUIComponent()).getTextArea().clear();
-                extraLines.clear();
-                for (int y = 10; y < data.size(); y++) {
-                    extraLines.add(data.get(y));
-                }
-                ((AppActions) applicationTemplate.getActionComponent()).setIsDataValid(true);
-                applicationTemplate.getUIComponent().clear();
-                TextArea textArea = ((AppUI) applicationTemplate.getUIComponent()).getTextArea();
-                displayText(textArea, file);
-                numOfLabels = getLabelNames(data).size();
-                for (String labelName: getLabelNames(data)) {
-                    if (labelName.toLowerCase().equals(manager.getPropertyValue(NULL_LABEL.name()))) {
-                        numOfLabels--;
-                    }
-                }
-                if (numOfLabels != 2) {
-                    ((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypePane().getChildren().remove(((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypes());
-                    ((AppUI) applicationTemplate.getUIComponent()).setChoices(FXCollections.observableArrayList(manager.getPropertyValue(CLUSTERING.name())));
-                    ((AppUI) applicationTemplate.getUIComponent()).setAlgorithmTypes(new ChoiceBox(((AppUI) applicationTemplate.getUIComponent()).getChoices()));
-                    ((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypePane().getChildren().add(((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypes());
-                }
-                else {
-                    ((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypePane().getChildren().remove(((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypes());
-                    ((AppUI) applicationTemplate.getUIComponent()).setChoices(FXCollections.observableArrayList(manager.getPropertyValue(CLASSIFICATION.name()), manager.getPropertyValue(CLUSTERING.name())));
-                    ((AppUI) applicationTemplate.getUIComponent()).setAlgorithmTypes(new ChoiceBox(((AppUI) applicationTemplate.getUIComponent()).getChoices()));
-                    ((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypePane().getChildren().add(((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypes());
-                }
-                ((AppUI) applicationTemplate.getUIComponent()).setAlgorithmTypesActions();
-                ((AppUI) applicationTemplate.getUIComponent()).getSelectionPane().getChildren().clear();
-                ((AppUI) applicationTemplate.getUIComponent()).loadDataInformation(data.size(), numOfLabels, getLabelNames(data), file.getName());
-            } else {
-                invalidDataHandler(x);
-            }
+        loadData(dataFilePath, () -> {});
+    }
 
-        } catch (IOException e) {
+    /**
+     * Loads a data file in the background, showing its progress in the toolbar. Once the file is loaded, its lines,
+     * the data information and the algorithm choices are updated on the JavaFX application thread. If the file is not
+     * in the data format, its lines are shown with the first invalid line selected.
+     *
+     * @param onFinished run on the JavaFX application thread once the load has finished, whether or not the data was
+     *                   valid; it is not run if the load is cancelled or fails to read the file
+     */
+    public void loadData(Path dataFilePath, Runnable onFinished) {
+        cancelLoad();
+        PropertyManager manager = applicationTemplate.manager;
+        AppUI           ui      = (AppUI) applicationTemplate.getUIComponent();
+        DataLoadTask    task    = new DataLoadTask(dataSetCache, dataFilePath, manager.getPropertyValue(LOAD_PROGRESS_FORMAT.name()));
+        task.setOnSucceeded(event -> {
+            loadFinished(task);
+            DataLoadTask.Result result = task.getValue();
+            if (result.getError() == null)
+                showLoadedData(dataFilePath, result);
+            else
+                showInvalidData(result);
+            onFinished.run();
+        });
+        task.setOnFailed(event -> {
+            loadFinished(task);
             // Creates a error dialog for loading
             ErrorDialog dialog = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
-            PropertyManager manager = applicationTemplate.manager;
             String errTile = manager.getPropertyValue(PropertyTypes.LOAD_ERROR_TITLE.name());
             String errMsg = manager.getPropertyValue(PropertyTypes.LOAD_ERROR_MSG.name());
             String errInput = manager.getPropertyValue(SPECIFIED_FILE.name());
             dialog.show(errTile, errMsg + errInput);
+        });
+        task.setOnCancelled(event -> loadFinished(task));
+        loadTask = task;
+        ui.showLoadProgress(task);
+        Thread loadThread = new Thread(task);
+        loadThread.setDaemon(true);
+        loadThread.start();
+    }
+
+    /** Cancels the data file load in progress, if there is one. */
+    public void cancelLoad() {
+        if (loadTask != null)
+            loadTask.cancel();
+    }
+
+    private void loadFinished(DataLoadTask task) {
+        if (loadTask == task) {
+            loadTask = null;
+            ((AppUI) applicationTemplate.getUIComponent()).hideLoadProgress();
         }
     }
 
+    private void showLoadedData(Path dataFilePath, DataLoadTask.Result result) {
+        dataSet = result.getDataSet();
+        stats = result.getStats();
+        PropertyManager manager = applicationTemplate.manager;
+        ((AppActions) applicationTemplate.getActionComponent()).setIsDataValid(true);
+        applicationTemplate.getUIComponent().clear();
+        ((AppUI) applicationTemplate.getUIComponent()).showDataLines(result.getLines());
+        numOfLabels = stats.getLabelCount(manager.getPropertyValue(NULL_LABEL.name()));
+        if (numOfLabels != 2) {
+            ((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypePane().getChildren().remove(((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypes());
+            ((AppUI) applicationTemplate.getUIComponent()).setChoices(FXCollections.observableArrayList(manager.getPropertyValue(CLUSTERING.name())));
+            ((AppUI) applicationTemplate.getUIComponent()).setAlgorithmTypes(new ChoiceBox(((AppUI) applicationTemplate.getUIComponent()).getChoices()));
+            ((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypePane().getChildren().add(((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypes());
+        }
+        else {
+            ((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypePane().getChildren().remove(((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypes());
+            ((AppUI) applicationTemplate.getUIComponent()).setChoices(FXCollections.observableArrayList(manager.getPropertyValue(CLASSIFICATION.name()), manager.getPropertyValue(CLUSTERING.name())));
+            ((AppUI) applicationTemplate.getUIComponent()).setAlgorithmTypes(new ChoiceBox(((AppUI) applicationTemplate.getUIComponent()).getChoices()));
+            ((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypePane().getChildren().add(((AppUI) applicationTemplate.getUIComponent()).getAlgorithmTypes());
+        }
+        ((AppUI) applicationTemplate.getUIComponent()).setAlgorithmTypesActions();
+        ((AppUI) applicationTemplate.getUIComponent()).getSelectionPane().getChildren().clear();
+        ((AppUI) applicationTemplate.getUIComponent()).loadDataInformation(stats, numOfLabels, dataFilePath.getFileName().toString());
+    }
+
+    private void showInvalidData(DataLoadTask.Result result) {
+        AppUI ui = (AppUI) applicationTemplate.getUIComponent();
+        ui.clear();
+        ui.showDataLines(result.getLines());
+        ui.setInformationText("");
+        ui.enableAlgorithmTypes(false);
+        ui.getSelectionPane().getChildren().clear();
+        ui.displayLeftPane();
+        ui.disableNewButton(false);
+        ui.jumpToLine((int) Math.min(result.getError().getLineNumber(), Integer.MAX_VALUE));
+        invalidDataHandler(result.getError().getErrorCode());
+    }
+
     public void loadData(String dataString) {
         try {
             processor.processString(dataString);
@@ -164,87 +215,41 @@ public class AppData implements DataComponent {
     }
 
     public void displayData() {
-        processor.toChartData(((AppUI) applicationTemplate.getUIComponent()).getChart());
+        AppUI ui = (AppUI) applicationTemplate.getUIComponent();
+        if (ui.isCanvasRendering())
+            processor.toCanvasData(ui.getScatterCanvas());
+        else
+            processor.toChartData(ui.getChart(), ui.getChartTooltip());
     }
 
     public int parseData(ArrayList<String> data) {         // Check if the data is valid
-        for (int i = 0; i < data.size(); i++) {
-            if (!data.get(i).trim().isEmpty()) {
-                if (data.get(i).charAt(0) != '@') {         // If the data does not begin with @, it's invalid data
-                    return i + 1;                           // Returns the line number of the invalid data
-                }
-                String[] strings = data.get(i).split("\t");
-                if (strings.length != 3) {                  // Valid data should be spaced with 2 tabs and have 3 variables
-                    return i + 1;
-                } else if (strings[1].trim().isEmpty()) {         // Check if the label is an empty string
-                    return i + 1;
-                }
-                else {
-                    for (int j = 0; j < i; j++) {           // Check if there are duplicate instance names
-                        String[] pastStrings = data.get(j).split("\t");
-                        if (pastStrings[0].equals(strings[0])) {
-                            return 0 - (i + 1);
-                        }
-                    }
-                }
-                String[] dataPoints = strings[2].split(",");
-                if (dataPoints.length == 2) {               // Third variable should be two doubles separated by a comma
-                    try {
-                        Double.parseDouble(dataPoints[0]);  // Check if they are doubles
-                        Double.parseDouble(dataPoints[1]);
-                    } catch (Exception e) {
-                        return i + 1;
-                    }
-                }
-            }
-            else {
-                return i + 1;
-            }
-        }
-        return 0;
+        // Returns 0 if valid, the line number of the first invalid line, or its negation if that line repeats a name
+        return TSDValidator.firstError(data);
     }
 
-    private void displayText(TextArea textArea, File file) {
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(file));
-            String input;
-            int i = 0;
-            while ((input = br.readLine()) != null && i < 10) {     // Makes it only display ten lines
-                textArea.appendText(input);
-                textArea.appendText("\n");
-                i++;
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Checks the text area data as {@link #parseData(ArrayList)} does, but only parses the lines that changed since
+     * the text was last checked.
+     */
+    public int parseText(String text) {
+        return textValidator.update(text);
     }
 
-    public ArrayList<String> getLabelNames(ArrayList<String> data) {
-        ArrayList<String> returnList = new ArrayList<>();
-        for (int i = 0; i < data.size(); i++) {
-            String[] strings = data.get(i).split("\t");
-            boolean isDuplicate = false;
-            for (int j = 0; j < returnList.size(); j++) {
-                if (strings[1].equals(returnList.get(j))) {
-                    isDuplicate = true;
-                }
-            }
-            if (!isDuplicate) {
-                returnList.add(strings[1]);
-            }
-        }
-        return returnList;
+    /**
+     * Checks the text area data after an edit that replaced the characters in <code>[start, oldEnd)</code> of the text
+     * last checked with those in <code>[start, newEnd)</code> of the given one, parsing only the lines of the edit.
+     */
+    public int parseText(String text, int start, int oldEnd, int newEnd) {
+        return textValidator.update(text, start, oldEnd, newEnd);
     }
 
-    private void dataSizeErrorHandler(ArrayList<String> data) {
-        PropertyManager manager = applicationTemplate.manager;
-        String confirmationTitle = manager.getPropertyValue(CONFIRMATION.name());
-        String confirmationMsgPart1 = manager.getPropertyValue(CONFIRMATION_MSG_PART1.name());
-        String confirmationMsgPart2 = manager.getPropertyValue(CONFIRMATION_MSG_PART2.name());
-        Alert dialog = new Alert(Alert.AlertType.INFORMATION);
-        dialog.setTitle(confirmationTitle);
-        dialog.setContentText(confirmationMsgPart1 + data.size() + confirmationMsgPart2);
-        dialog.showAndWait();
+    /**
+     * Gathers the statistics of the text that {@link #parseText(String)} last found valid, from the lines it parsed,
+     * and keeps them as the current statistics.
+     */
+    public DatasetStats loadTextStats() {
+        stats = textValidator.getStats();
+        return stats;
     }
 
     private void invalidDataHandler(int errorNumber) {
@@ -0,0 +1,87 @@
+package dataprocessors;
+
+import data.DataSet;
+import data.DataSetCache;
+import data.DatasetStats;
+import data.LineIndex;
+import data.LoadProgress;
+import data.TSDFormatException;
+import javafx.concurrent.Task;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Loads a data file off the JavaFX application thread. The task parses and validates the file (or takes its dataset
+ * from the cache), gathering its statistics and indexing its lines for the paged line view as it goes, reporting the
+ * bytes read, lines parsed and lines validated as its message. Its progress is that of two passes over the file, one
+ * to fingerprint it and one to parse it or read its snapshot. Nothing is shown until the task has
+ * succeeded, at which point its {@link Result} holds everything the user interface needs. A file that is not in the
+ * data format still succeeds, with the error in its result, so that the view can show the offending line.
+ * <p>
+ * Cancelling the task stops the fingerprint, the parse, or the writing of the files that speed up the next load at
+ * the next progress report.
+ */
+public class DataLoadTask extends Task<DataLoadTask.Result> {
+
+    /** Everything a successful load publishes to the user interface. */
+    public static final class Result {
+
+        private final DataSet            dataSet;
+        private final DatasetStats       stats;
+        private final LineSource         lines;
+        private final TSDFormatException error;
+
+        Result(DataSet dataSet, DatasetStats stats, LineSource lines, TSDFormatException error) {
+            this.dataSet = dataSet;
+            this.stats = stats;
+            this.lines = lines;
+            this.error = error;
+        }
+
+        /** @return the frozen dataset of the file, or <code>null</code> if the file is not in the data format */
+        public DataSet getDataSet()          { return dataSet; }
+
+        public DatasetStats getStats()       { return stats; }
+
+        /** @return the lines of the file, read from the file as they are shown */
+        public LineSource getLines()         { return lines; }
+
+        /** @return the first error in the file, or <code>null</code> if the file is in the data format */
+        public TSDFormatException getError() { return error; }
+    }
+
+    private final DataSetCache cache;
+    private final Path         dataFilePath;
+    private final String       progressFormat;
+
+    /**
+     * @param progressFormat the format of the progress message, which is given the bytes read, lines parsed and lines
+     *                       validated so far
+     */
+    DataLoadTask(DataSetCache cache, Path dataFilePath, String progressFormat) {
+        this.cache = cache;
+        this.dataFilePath = dataFilePath;
+        this.progressFormat = progressFormat;
+    }
+
+    @Override
+    protected Result call() throws Exception {
+        LoadProgress progress = new LoadProgress(this::isCancelled);
+        long         size     = Files.size(dataFilePath);
+        progress.setListener(() -> {
+            updateProgress(progress.getBytesHashed() + progress.getBytesRead(), 2 * size);
+            updateMessage(String.format(progressFormat, progress.getBytesRead(), progress.getLinesParsed(),
+                                        progress.getLinesValidated()));
+        });
+        DataSet dataSet;
+        try {
+            dataSet = cache.get(dataFilePath, progress);
+        } catch (TSDFormatException e) {
+            return new Result(null, null, new FileLines(dataFilePath, LineIndex.scan(dataFilePath, progress)), e);
+        }
+        progress.checkCancelled();
+        DatasetStats stats = cache.getStats(dataFilePath, progress);
+        return new Result(dataSet, stats, new FileLines(dataFilePath, cache.getLineIndex(dataFilePath, progress)), null);
+    }
+}
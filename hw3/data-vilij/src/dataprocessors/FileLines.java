@@ -0,0 +1,59 @@
+package dataprocessors;
+
+import data.LineIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The lines of a text file, read from the file a page at a time through its {@link LineIndex}. Only the index is kept
+ * in memory, along with the few most recently read pages, so a view of the lines costs memory in proportion to what it
+ * shows rather than to the size of the file. Line <i>i</i> is the instance in row <i>i</i> of the file's dataset.
+ */
+public final class FileLines implements LineSource {
+
+    static final int PAGE_LINES = 256;
+
+    private static final int MAX_PAGES = 8;
+
+    private final Path      path;
+    private final LineIndex index;
+
+    private final Map<Integer, String[]> pages = new LinkedHashMap<Integer, String[]>(MAX_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+
+    public FileLines(Path path, LineIndex index) {
+        this.path = path;
+        this.index = index;
+    }
+
+    @Override
+    public int size() { return index.size(); }
+
+    @Override
+    public synchronized String line(int line) {
+        if (line < 0 || line >= index.size())
+            throw new IndexOutOfBoundsException(String.valueOf(line));
+        int      page  = line / PAGE_LINES;
+        String[] lines = pages.get(page);
+        if (lines == null) {
+            int first = page * PAGE_LINES;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                lines = index.readLines(channel, first, Math.min(PAGE_LINES, index.size() - first));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pages.put(page, lines);
+        }
+        return lines[line % PAGE_LINES];
+    }
+}
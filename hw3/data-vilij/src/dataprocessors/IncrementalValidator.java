@@ -0,0 +1,228 @@
+package dataprocessors;
+
+import data.DatasetStats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validates text that is edited a little at a time, such as the text area, by checking only the lines that changed
+ * since the last check. Each {@link #update(String, int, int, int)} is told which characters an edit replaced, takes
+ * the run of lines holding them, parses just those lines with {@link TSDValidator.Line#parse(String)}, and adjusts the
+ * count of each instance name and each label by the lines that were removed and added. Lines outside the edit are
+ * neither split out of the text nor parsed again. A caller that only has the new text may {@link #update(String)} with
+ * it instead, which finds the edit by comparing the two texts from either end.
+ * <p>
+ * The line an edit starts on is found from the line of the edit before it, by counting the newlines between the two,
+ * so that edits near one another, as typing makes them, cost about as much as the lines they change.
+ * <p>
+ * The text is split into lines the way <code>text.split("\n")</code> splits it, so empty lines at the end of the text
+ * are ignored, and errors are reported with the same codes as {@link TSDValidator#firstError(Iterable)}. While the
+ * text is valid, which the counts tell at once, no line is looked at. The first error of an invalid text is found by
+ * walking the parsed lines, parsing none of them, and is kept until an edit reaches the line it is on or one before it.
+ */
+public class IncrementalValidator {
+
+    private static final TSDValidator.Line EMPTY = TSDValidator.Line.EMPTY;
+
+    private String                        text        = "";
+    private final List<TSDValidator.Line> lines       = new ArrayList<>();     // one per newline-separated segment
+    private final Map<String, Integer>    nameCounts  = new HashMap<>();
+    private final Map<String, Integer>    labelCounts = new HashMap<>();       // labels of valid lines
+    private int                           emptyLines;
+    private int                           invalidLines;                        // lines that are neither empty nor valid
+    private int                           duplicates;                          // named lines that repeat a name
+    private int                           cursorLine;                          // a line, and the offset it starts at
+    private int                           cursorStart;
+    private int                           error;                               // the first error, or 0 if not known
+    private final Set<String>             seen        = new HashSet<>();       // the repeated names walked past
+
+    public IncrementalValidator() {
+        add(EMPTY, 1);
+        lines.add(EMPTY);
+    }
+
+    /**
+     * Takes the new contents of the text and checks the lines that changed, found by comparing the new text with the
+     * last one.
+     *
+     * @return the error code of the first invalid line, or <code>0</code> if all lines are valid
+     */
+    public int update(String newText) {
+        String old    = text;
+        int    limit  = Math.min(old.length(), newText.length());
+        int    prefix = 0;
+        while (prefix < limit && old.charAt(prefix) == newText.charAt(prefix))
+            prefix++;
+        int suffix = 0;
+        while (suffix < limit - prefix
+               && old.charAt(old.length() - 1 - suffix) == newText.charAt(newText.length() - 1 - suffix))
+            suffix++;
+        return update(newText, prefix, old.length() - suffix, newText.length() - suffix);
+    }
+
+    /**
+     * Takes the new contents of the text after an edit that replaced the characters in <code>[start, oldEnd)</code> of
+     * the last text with those in <code>[start, newEnd)</code> of the new one, and checks the lines that changed. The
+     * characters before <code>start</code> and after the replaced ones must be the same in both texts; they are not
+     * compared.
+     *
+     * @return the error code of the first invalid line, or <code>0</code> if all lines are valid
+     */
+    public int update(String newText, int start, int oldEnd, int newEnd) {
+        String old = text;
+        if (start == oldEnd && start == newEnd)
+            return firstError();
+
+        // The changed lines run from the start of the line holding the first changed character to the end of the line
+        // holding the last one; both ends are at the same place in the old and the new text.
+        int from  = old.lastIndexOf('\n', start - 1) + 1;
+        int first = lineStartingAt(from);
+        oldEnd = endOfLine(old, oldEnd);
+        newEnd = endOfLine(newText, newEnd);
+        if (error != 0 && Math.abs(error) > first)
+            error = 0;                  // the lines up to the first error are the same unless the edit reached it
+
+        List<TSDValidator.Line> removed = lines.subList(first, first + segments(old, from, oldEnd));
+        for (TSDValidator.Line line : removed)
+            add(line, -1);
+        removed.clear();
+        List<TSDValidator.Line> added = new ArrayList<>();
+        for (int lineStart = from; ; ) {
+            int end = endOfLine(newText, lineStart);
+            added.add(end == lineStart ? EMPTY : TSDValidator.Line.parse(newText.substring(lineStart, end)));
+            if (end >= newEnd)
+                break;
+            lineStart = end + 1;
+        }
+        for (TSDValidator.Line line : added)
+            add(line, 1);
+        lines.addAll(first, added);
+        text = newText;
+        return firstError();
+    }
+
+    /** @return the error code of the first invalid line of the current text, or <code>0</code> if it is valid */
+    public int firstError() {
+        if (text.isEmpty())
+            return 1;                   // "".split("\n") is a single empty line, rather than no lines
+        int end = trailingStart();
+        if (invalidLines == 0 && duplicates == 0 && emptyLines == lines.size() - end)
+            return 0;
+        if (error != 0 && Math.abs(error) <= end)
+            return error;               // an empty line that edits after it left at the end is no longer an error
+        error = walk(end);
+        return error;
+    }
+
+    /** @return the error code of the first of the lines before <code>end</code> that is invalid */
+    private int walk(int end) {
+        seen.clear();
+        for (int i = 0; i < end; i++) {
+            TSDValidator.Line line = lines.get(i);
+            if (line.name == null)
+                return i + 1;
+            if (nameCounts.get(line.name) > 1 && !seen.add(line.name))
+                return -(i + 1);
+            if (!line.located)
+                return i + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * @param nullLabel the label that marks instances as unlabeled, in lower case
+     * @return the number of distinct labels of the valid lines, not counting the null label in any letter case
+     */
+    public int getLabelCount(String nullLabel) {
+        int count = 0;
+        for (String label : labelCounts.keySet()) {
+            if (!label.toLowerCase().equals(nullLabel))
+                count++;
+        }
+        return count;
+    }
+
+    /** @return the statistics of the valid lines, gathered from the lines as they were parsed */
+    public DatasetStats getStats() {
+        DatasetStats stats = new DatasetStats();
+        for (int i = 0, end = trailingStart(); i < end; i++) {
+            TSDValidator.Line line = lines.get(i);
+            if (line.located)
+                stats.add(line.label, line.x, line.y);
+        }
+        return stats;
+    }
+
+    /** @return the index of the first of the empty lines at the end of the text */
+    private int trailingStart() {
+        int end = lines.size();
+        while (end > 0 && lines.get(end - 1) == EMPTY)
+            end--;
+        return end;
+    }
+
+    /**
+     * Moves the cursor to the line starting at the given offset of the current text, counting the newlines between
+     * the line it was at and that one.
+     *
+     * @return the index of the line
+     */
+    private int lineStartingAt(int offset) {
+        for (; cursorStart < offset; cursorStart++) {
+            if (text.charAt(cursorStart) == '\n')
+                cursorLine++;
+        }
+        while (cursorStart > offset) {
+            if (text.charAt(--cursorStart) == '\n')
+                cursorLine--;
+        }
+        return cursorLine;
+    }
+
+    private void add(TSDValidator.Line line, int delta) {
+        if (line == EMPTY) {
+            emptyLines += delta;
+            return;
+        }
+        if (line.name == null) {
+            invalidLines += delta;
+            return;
+        }
+        int count = nameCounts.getOrDefault(line.name, 0);
+        if (delta > 0 ? count > 0 : count > 1)
+            duplicates += delta;
+        if (count + delta == 0)
+            nameCounts.remove(line.name);
+        else
+            nameCounts.put(line.name, count + delta);
+        if (!line.located) {
+            invalidLines += delta;
+            return;
+        }
+        int labels = labelCounts.getOrDefault(line.label, 0) + delta;
+        if (labels == 0)
+            labelCounts.remove(line.label);
+        else
+            labelCounts.put(line.label, labels);
+    }
+
+    /** @return the number of newline-separated segments in <code>[from, to]</code>, where <code>to</code> ends a line */
+    private static int segments(String text, int from, int to) {
+        int count = 1;
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == '\n')
+                count++;
+        }
+        return count;
+    }
+
+    private static int endOfLine(String text, int position) {
+        int newline = text.indexOf('\n', position);
+        return newline < 0 ? text.length() : newline;
+    }
+}
@@ -0,0 +1,17 @@
+package dataprocessors;
+
+/**
+ * A sequence of text lines that are produced on demand, so that a view can show a large data file without holding all
+ * of its lines in memory.
+ */
+public interface LineSource {
+
+    /** @return the number of lines */
+    int size();
+
+    /**
+     * @param index the index of the line, from 0
+     * @return the line, without its line terminator
+     */
+    String line(int index);
+}
@@ -1,15 +1,16 @@
 package dataprocessors;
 
-import algorithms.RandomClassifier;
-import javafx.event.EventHandler;
+import algorithms.Classifier;
+import data.DataSet;
+import data.DatasetStats;
 import javafx.geometry.Point2D;
-import javafx.scene.Cursor;
 import javafx.scene.Node;
 import javafx.scene.chart.XYChart;
-import javafx.scene.control.Tooltip;
-import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.StackPane;
 import ui.AppUI;
+import ui.LevelOfDetail;
+import ui.PointTooltip;
+import ui.ScatterCanvas;
 import vilij.templates.ApplicationTemplate;
 
 import java.util.*;
@@ -40,8 +41,8 @@ public final class TSDProcessor {
     ApplicationTemplate applicationTemplate;
     private Map<String, String>  dataLabels;
     private Map<String, Point2D> dataPoints;
-    private double yMin, yMax, xMin, xMax;
-    private int counter = 0;
+    private DataSet              dataSet;
+    private DatasetStats         stats;
 
     public Map<String, String>  getDataLabels() {
         return dataLabels;
@@ -51,6 +52,20 @@ public final class TSDProcessor {
         return dataPoints;
     }
 
+    /** @return the statistics of the processed data, gathered in one pass the first time they are needed */
+    public DatasetStats getStats() {
+        if (stats == null && dataSet != null) {
+            stats = DatasetStats.of(dataSet, true);
+        } else if (stats == null) {
+            stats = new DatasetStats();
+            dataLabels.forEach((name, label) -> {
+                Point2D point = dataPoints.get(name);
+                stats.add(label, point.getX(), point.getY());
+            });
+        }
+        return stats;
+    }
+
     public void setApplicationTemplate(ApplicationTemplate applicationTemplate) {
         this.applicationTemplate = applicationTemplate;
     }
@@ -67,6 +82,11 @@ public final class TSDProcessor {
      * @throws Exception if the input string does not follow the <code>.tsd</code> data format
      */
     public void processString(String tsdString) throws Exception {
+        if (dataSet != null) {                  // stop viewing the dataset before adding to it
+            dataLabels = new HashMap<>(dataLabels);
+            dataPoints = new HashMap<>(dataPoints);
+            dataSet = null;
+        }
         AtomicBoolean hadAnError   = new AtomicBoolean(false);
         StringBuilder errorMessage = new StringBuilder();
         Stream.of(tsdString.split("\n"))
@@ -79,6 +99,7 @@ public final class TSDProcessor {
                       Point2D  point = new Point2D(Double.parseDouble(pair[0]), Double.parseDouble(pair[1]));
                       dataLabels.put(name, label);
                       dataPoints.put(name, point);
+                      stats = null;
                   }
                   catch (Exception e) {
                       errorMessage.setLength(0);
@@ -91,79 +112,115 @@ public final class TSDProcessor {
     }
 
     /**
-     * Exports the data to the specified 2-D chart.
+     * Processes the instances of a dataset. The maps of this processor become views of the dataset, so nothing is
+     * copied; the dataset must be frozen.
+     *
+     * @param dataSet the frozen dataset
+     */
+    public void processDataSet(DataSet dataSet) {
+        processDataSet(dataSet, null);
+    }
+
+    /**
+     * Processes the instances of a dataset as {@link #processDataSet(DataSet)} does, with statistics already gathered
+     * for it, so that they need not be gathered again.
+     *
+     * @param stats the statistics of the dataset, or <code>null</code> to gather them when they are needed
+     */
+    public void processDataSet(DataSet dataSet, DatasetStats stats) {
+        if (!dataSet.isFrozen())
+            throw new IllegalArgumentException("Only a frozen dataset can be processed without copying it.");
+        this.dataSet = dataSet;
+        dataLabels = dataSet.getLabels();
+        dataPoints = dataSet.getLocations();
+        this.stats = stats;
+    }
+
+    /**
+     * Exports the data to the specified 2-D chart. Points are thinned out to one per label per {@link LevelOfDetail}
+     * cell of the chart, so the chart gets no more nodes than it has room to show. The names of all the points, thinned
+     * out or not, are shown on hover by the chart's shared tooltip.
      *
-     * @param chart the specified chart
+     * @param chart   the specified chart
+     * @param tooltip the tooltip of the chart
      */
-    void toChartData(XYChart<Number, Number> chart) {
-        counter = 0;
-        Set<String> labels = new HashSet<>(dataLabels.values());
-        for (String label : labels) {
+    void toChartData(XYChart<Number, Number> chart, PointTooltip tooltip) {
+        Map<String, XYChart.Series<Number, Number>> seriesByLabel = new LinkedHashMap<>();
+        Map<String, Integer>                        labelIds      = new HashMap<>();
+        for (String label : getStats().getLabels()) {
             XYChart.Series<Number, Number> series = new XYChart.Series<>();
             series.setName(label);
-            dataLabels.entrySet().stream().filter(entry -> entry.getValue().equals(label)).forEach(entry -> {
-                Point2D point = dataPoints.get(entry.getKey());
-
-                XYChart.Data<Number, Number> seriesData = new XYChart.Data<>(point.getX(), point.getY());
-                seriesData.setNode(new HoverNode(entry.getKey()));
-                series.getData().add(seriesData);
-
-                if (counter == 0) {
-                    xMax = point.getX();
-                    xMin = point.getX();
-                } else {
-                    if (point.getX() > xMax)
-                        xMax = point.getX();
-                    if (point.getX() < xMin)
-                        xMin = point.getX();
-                }
-                counter++;
-            });
+            labelIds.put(label, seriesByLabel.size());
+            seriesByLabel.put(label, series);
+        }
+        LevelOfDetail levelOfDetail = LevelOfDetail.forChart(chart, getStats());
+        dataLabels.forEach((name, label) -> {
+            Point2D point = dataPoints.get(name);
+            if (!levelOfDetail.claim(labelIds.get(label), point.getX(), point.getY()))
+                return;
+
+            seriesByLabel.get(label).getData().add(new XYChart.Data<>(point.getX(), point.getY()));
+        });
+        for (XYChart.Series<Number, Number> series : seriesByLabel.values()) {
             chart.getData().add(series);
             Node line = series.getNode().lookup(".chart-series-line");
             line.setStyle("-fx-stroke: transparent;");
         }
+        if (dataSet != null)
+            tooltip.setPoints(dataSet.getXs(), dataSet.getYs(), dataSet.size(), dataSet::getName);
+        else
+            tooltip.setPoints(dataPoints);
     }
 
-    class HoverNode extends StackPane {          //node structure and action for data points
-        HoverNode(String name) {
-            Tooltip label = new Tooltip(name);
-
-            setOnMouseEntered(new EventHandler<MouseEvent>() {
-                @Override
-                public void handle(MouseEvent mouseEvent) {
-                    Node node = (Node) mouseEvent.getSource();
-                    Tooltip.install(node, label);
-                    setCursor(Cursor.CROSSHAIR);
-                    toFront();
-                }
-            });
-            setOnMouseExited(new EventHandler<MouseEvent>() {
-                @Override
-                public void handle(MouseEvent mouseEvent) {
-                    getChildren().clear();
-                }
-            });
-        }
+    /**
+     * Draws the data into the specified scatter canvas. The columns of a processed dataset are drawn as they are;
+     * otherwise the maps are turned into columns first.
+     *
+     * @param canvas the specified canvas
+     */
+    void toCanvasData(ScatterCanvas canvas) {
+        if (dataSet != null)
+            canvas.setPoints(dataSet, getStats());
+        else
+            canvas.setPoints(dataLabels, dataPoints);
     }
 
     void clear() {
-        dataPoints.clear();
-        dataLabels.clear();
+        dataSet = null;
+        dataLabels = new HashMap<>();
+        dataPoints = new HashMap<>();
+        stats = null;
     }
 
     public void updateLine() {
-        if (counter > 0) {
+        DatasetStats stats     = getStats();
+        Runnable     algorithm = ((AppUI) applicationTemplate.getUIComponent()).getAlgorithm();
+        double[]     line      = algorithm instanceof Classifier ? ((Classifier) algorithm).getCoefficients() : null;
+        if (!stats.isEmpty() && line != null && (line[0] != 0 || line[1] != 0)) {
             XYChart.Series<Number, Number> equation = new XYChart.Series<>();
             equation.setName("Classification Line");
-            if (xMin == xMax) {
-                xMin -= xMin / 2.0;
-                xMax += xMax / 2.0;
+            double xMin;
+            double xMax;
+            double yMin;
+            double yMax;
+            if (line[1] != 0) {
+                xMin = stats.getXMin();
+                xMax = stats.getXMax();
+                if (xMin == xMax) {
+                    xMin -= xMin / 2.0;
+                    xMax += xMax / 2.0;
+                }
+                yMin = calculateY(line[0], line[1], line[2], xMin);
+                yMax = calculateY(line[0], line[1], line[2], xMax);
+            } else {
+                xMin = xMax = -line[2] / line[0];       // a vertical line, drawn over the range of y
+                yMin = stats.getYMin();
+                yMax = stats.getYMax();
+            }
+            if (((AppUI) applicationTemplate.getUIComponent()).isCanvasRendering()) {
+                ((AppUI) applicationTemplate.getUIComponent()).getScatterCanvas().setLine(equation.getName(), xMin, yMin, xMax, yMax);
+                return;
             }
-
-            List<Integer> output = ((RandomClassifier) (((AppUI) applicationTemplate.getUIComponent()).getAlgorithm())).getOutput();
-            yMin = calculateY(output.get(0), output.get(1), output.get(2), xMin);
-            yMax = calculateY(output.get(0), output.get(1), output.get(2), xMax);
 
             equation.getData().add(new XYChart.Data<>(xMin, yMin));
             equation.getData().add(new XYChart.Data<>(xMax, yMax));
@@ -176,11 +233,8 @@ public final class TSDProcessor {
         }
     }
 
+    /** @return the y value at <code>x</code> on the line <code>a x + b y + c = 0</code>, which must not be vertical */
     public double calculateY(double xCoefficient, double yCoefficient, double c, double x) {
-        Random random = new Random();
-        while (yCoefficient == 0) {
-            yCoefficient = new Double(random.nextDouble() * 100).intValue();
-        }
         return -1 * (c + xCoefficient * x) / yCoefficient;
     }
 
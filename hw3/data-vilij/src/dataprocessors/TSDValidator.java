@@ -0,0 +1,127 @@
+package dataprocessors;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks lines of data against the tab-separated data format in a single pass. Each line is checked, in order, for the
+ * '@' prefix of its instance name, its number of fields, a non-empty label, a name that no earlier line has used, and
+ * a location of exactly two comma-separated numbers. Names are remembered in a hash set, so checking a line takes
+ * constant time however many lines came before it.
+ * <p>
+ * Errors are reported with the convention of {@link AppData#parseData(ArrayList)}: <code>0</code> for a valid line,
+ * the line number for an invalid line, and the negated line number for a line that repeats an instance name. Lines
+ * are numbered from 1.
+ */
+public class TSDValidator {
+
+    private final Set<String> names = new HashSet<>();
+    private int               lineNumber;
+
+    /** @return the error code of the first invalid line, or <code>0</code> if all lines are valid */
+    public static int firstError(Iterable<String> lines) {
+        TSDValidator validator = new TSDValidator();
+        for (String line : lines) {
+            int error = validator.check(line);
+            if (error != 0)
+                return error;
+        }
+        return 0;
+    }
+
+    /** @return the error codes of all invalid lines, in line order */
+    public static List<Integer> allErrors(Iterable<String> lines) {
+        TSDValidator  validator = new TSDValidator();
+        List<Integer> errors    = new ArrayList<>();
+        for (String line : lines) {
+            int error = validator.check(line);
+            if (error != 0)
+                errors.add(error);
+        }
+        return errors;
+    }
+
+    /** @return the number of lines checked so far */
+    public int getLineNumber() { return lineNumber; }
+
+    /** Forgets all lines checked so far, so that the next line checked is line 1. */
+    public void reset() {
+        names.clear();
+        lineNumber = 0;
+    }
+
+    /**
+     * Checks the next line. A line that gets as far as the name check claims its name, even if its location turns out
+     * to be invalid, so that a later line with the same name is reported as a duplicate.
+     *
+     * @return the error code of the line
+     */
+    public int check(String line) {
+        int  number = ++lineNumber;
+        Line parsed = Line.parse(line);
+        if (parsed.name == null)
+            return number;
+        if (!names.add(parsed.name))
+            return -number;
+        return parsed.located ? 0 : number;
+    }
+
+    /**
+     * The parts of one line, as far as they could be read. A line without a {@link #name} failed before the name
+     * check; a line with a name but not {@link #located} failed on its location.
+     */
+    static final class Line {
+
+        private static final Line UNNAMED = new Line(null, null, false, 0, 0);
+
+        /** Stands for an empty line, which {@link #parse(String)} never returns, so that it can be told apart. */
+        static final Line EMPTY = new Line(null, null, false, 0, 0);
+
+        final String  name;
+        final String  label;
+        final boolean located;
+        final double  x;
+        final double  y;
+
+        private Line(String name, String label, boolean located, double x, double y) {
+            this.name = name;
+            this.label = label;
+            this.located = located;
+            this.x = x;
+            this.y = y;
+        }
+
+        static Line parse(String line) {
+            if (line.trim().isEmpty() || line.charAt(0) != '@')
+                return UNNAMED;
+            int labelStart = line.indexOf('\t') + 1;
+            int pointStart = labelStart == 0 ? 0 : line.indexOf('\t', labelStart) + 1;
+            if (pointStart == 0)
+                return UNNAMED;
+            int pointEnd = line.indexOf('\t', pointStart);
+            if (pointEnd < 0) {
+                pointEnd = line.length();
+            } else {
+                for (int i = pointEnd; i < line.length(); i++) {    // trailing tabs are ignored, as String.split does
+                    if (line.charAt(i) != '\t')
+                        return UNNAMED;
+                }
+            }
+            String label = line.substring(labelStart, pointStart - 1);
+            if (pointEnd == pointStart || label.trim().isEmpty())
+                return UNNAMED;
+            String name  = line.substring(0, labelStart - 1);
+            int    comma = line.indexOf(',', pointStart);           // only tabs follow pointEnd, so any comma is before it
+            if (comma < 0 || line.indexOf(',', comma + 1) >= 0)
+                return new Line(name, label, false, 0, 0);
+            try {
+                return new Line(name, label, true, Double.parseDouble(line.substring(pointStart, comma)),
+                                Double.parseDouble(line.substring(comma + 1, pointEnd)));
+            } catch (NumberFormatException e) {
+                return new Line(name, label, false, 0, 0);
+            }
+        }
+    }
+}
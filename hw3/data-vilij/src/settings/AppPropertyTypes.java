@@ -50,9 +50,6 @@ public enum AppPropertyTypes {
     ALGORITHM_TYPE_PANE_FONT,
     ALGORITHM_TYPE_PANE_FONT_SIZE,
     DUPLICATE_NAME,
-    CONFIRMATION,
-    CONFIRMATION_MSG_PART1,
-    CONFIRMATION_MSG_PART2,
     ERROR_LINE,
     CLASSIFICATION,
     CLUSTERING,
@@ -74,17 +71,32 @@ public enum AppPropertyTypes {
     SAVE_FILE_EXT_DESC,
     SAVE_IMAGE_FILE_EXT,
     RESUME_BUTTON_TEXT,
+    LOAD_PROGRESS_FORMAT,
+    CANCEL_LOAD_TEXT,
+    CANVAS_RENDERING,
+    KMEANS_RESTARTS,
+    MINI_BATCH_SIZE,
+    SGD_THREADS,
+    DBSCAN_EPSILON,
+    DBSCAN_MIN_POINTS,
+    DBSCAN_NOISE_LABEL,
 
     /* algorithm names */
     CLASSIFICATION_ALGORITHM_NAME_1,
     CLASSIFICATION_ALGORITHM_NAME_2,
     CLASSIFICATION_ALGORITHM_NAME_3,
+    CLASSIFICATION_ALGORITHM_NAME_4,
     CLUSTERING_ALGORITHM_NAME_1,
     CLUSTERING_ALGORITHM_NAME_2,
     CLUSTERING_ALGORITHM_NAME_3,
+    CLUSTERING_ALGORITHM_NAME_4,
+    CLUSTERING_ALGORITHM_NAME_5,
 
     /* algorithm class names */
     RANDOMCLASSIFIER,
+    LINEARCLASSIFIER,
     RANDOMCLUSTERER,
     KMEANSCLUSTERER,
+    MINIBATCHKMEANSCLUSTERER,
+    DBSCANCLUSTERER,
 }
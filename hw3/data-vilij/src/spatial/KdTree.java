@@ -0,0 +1,245 @@
+package spatial;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A k-d tree over points in the plane, bulk-loaded from columns of coordinates such as those of a
+ * {@link data.DataSet}. The tree is implicit: the points are reordered so that each subtree is a range of the arrays,
+ * with the median of its range along the splitting axis in the middle, the points before it on one side and the points
+ * after it on the other. The axes alternate from level to level, starting with x. Building takes
+ * <i>O(n</i> log <i>n)</i> time and no memory beyond a copy of the coordinates and the rows they came from, and a
+ * nearest-point query visits <i>O(</i>log <i>n)</i> nodes for points that are spread out, as do queries for the
+ * points within a radius or a rectangle, besides the nodes of the points they find.
+ * <p>
+ * A tree adapts to points however they are spread, at the cost of a sort to build it; a {@link UniformGrid} is built
+ * in linear time but suits points spread evenly over their bounds better than points crowded into a few places.
+ */
+public final class KdTree implements SpatialIndex {
+
+    private double[] xs = new double[0];        // the coordinates, in tree order
+    private double[] ys = new double[0];
+    private int[]    rows = new int[0];         // the row of each point in the columns the tree was built from
+    private int      size;
+
+    /**
+     * Builds a tree over the first <code>size</code> points of the given columns, which are copied.
+     *
+     * @param xs   the x value of each point
+     * @param ys   the y value of each point
+     * @param size the number of points
+     */
+    public KdTree(double[] xs, double[] ys, int size) {
+        rebuild(xs, ys, size);
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public void rebuild(double[] xs, double[] ys, int size) {
+        if (this.xs.length < size) {
+            this.xs = new double[size];
+            this.ys = new double[size];
+            this.rows = new int[size];
+        }
+        this.size = size;
+        System.arraycopy(xs, 0, this.xs, 0, size);
+        System.arraycopy(ys, 0, this.ys, 0, size);
+        for (int row = 0; row < size; row++)
+            rows[row] = row;
+        build(0, size, false);
+    }
+
+    @Override
+    public int nearest(double x, double y, double xScale, double yScale, double maxDistance) {
+        Query query = new Query(x, y, xScale, yScale, maxDistance * maxDistance);
+        nearest(0, size, false, query);
+        return query.best < 0 ? -1 : rows[query.best];
+    }
+
+    @Override
+    public int nearest(double x, double y, double xScale, double yScale, int[] rows) {
+        if (rows.length == 0)
+            return 0;
+        NearestRows nearest = new NearestRows(rows);
+        nearest(0, size, false, x, y, xScale, yScale, nearest);
+        for (int i = 0; i < nearest.count(); i++)
+            rows[i] = this.rows[rows[i]];       // from tree order to the rows of the columns
+        return nearest.count();
+    }
+
+    private void nearest(int lo, int hi, boolean byY, double x, double y, double xScale, double yScale,
+                         NearestRows nearest) {
+        if (lo >= hi)
+            return;
+        int    mid = (lo + hi) >>> 1;
+        double dx  = (x - xs[mid]) * xScale;
+        double dy  = (y - ys[mid]) * yScale;
+        nearest.offer(mid, dx * dx + dy * dy);
+        double split = byY ? dy : dx;           // negative if the query is before the splitting point
+        if (split < 0) {
+            nearest(lo, mid, !byY, x, y, xScale, yScale, nearest);
+            if (split * split < nearest.bound())
+                nearest(mid + 1, hi, !byY, x, y, xScale, yScale, nearest);
+        } else {
+            nearest(mid + 1, hi, !byY, x, y, xScale, yScale, nearest);
+            if (split * split < nearest.bound())
+                nearest(lo, mid, !byY, x, y, xScale, yScale, nearest);
+        }
+    }
+
+    @Override
+    public int within(double x, double y, double xScale, double yScale, double radius, IntConsumer action) {
+        return within(0, size, false, x, y, xScale, yScale, radius * radius, action);
+    }
+
+    private int within(int lo, int hi, boolean byY, double x, double y, double xScale, double yScale,
+                       double radiusSquared, IntConsumer action) {
+        int count = 0;
+        while (lo < hi) {
+            int    mid = (lo + hi) >>> 1;
+            double dx  = (x - xs[mid]) * xScale;
+            double dy  = (y - ys[mid]) * yScale;
+            if (dx * dx + dy * dy <= radiusSquared) {
+                action.accept(rows[mid]);
+                count++;
+            }
+            double split = byY ? dy : dx;       // negative if the query is before the splitting point
+            if (split * split <= radiusSquared) {
+                count += within(lo, mid, !byY, x, y, xScale, yScale, radiusSquared, action);
+                lo = mid + 1;                   // and on with the points after it, without recursing
+            } else if (split < 0) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+            byY = !byY;
+        }
+        return count;
+    }
+
+    @Override
+    public int inRect(double xMin, double yMin, double xMax, double yMax, IntConsumer action) {
+        return inRect(0, size, false, xMin, yMin, xMax, yMax, action);
+    }
+
+    private int inRect(int lo, int hi, boolean byY, double xMin, double yMin, double xMax, double yMax,
+                       IntConsumer action) {
+        int count = 0;
+        while (lo < hi) {
+            int    mid = (lo + hi) >>> 1;
+            double x   = xs[mid];
+            double y   = ys[mid];
+            if (x >= xMin && x <= xMax && y >= yMin && y <= yMax) {
+                action.accept(rows[mid]);
+                count++;
+            }
+            double split = byY ? y : x;
+            boolean before = split >= (byY ? yMin : xMin);      // whether the rectangle reaches before the split
+            boolean after  = split <= (byY ? yMax : xMax);
+            if (before && after) {
+                count += inRect(lo, mid, !byY, xMin, yMin, xMax, yMax, action);
+                lo = mid + 1;
+            } else if (before) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+            byY = !byY;
+        }
+        return count;
+    }
+
+    /** The state of a nearest-point search: the query, and the nearest point found so far. */
+    private static final class Query {
+
+        final double x;
+        final double y;
+        final double xScale;
+        final double yScale;
+        double       bestDistance;              // squared
+        int          best = -1;
+
+        Query(double x, double y, double xScale, double yScale, double bestDistance) {
+            this.x = x;
+            this.y = y;
+            this.xScale = xScale;
+            this.yScale = yScale;
+            this.bestDistance = bestDistance;
+        }
+    }
+
+    private void nearest(int lo, int hi, boolean byY, Query query) {
+        if (lo >= hi)
+            return;
+        int    mid      = (lo + hi) >>> 1;
+        double dx       = (query.x - xs[mid]) * query.xScale;
+        double dy       = (query.y - ys[mid]) * query.yScale;
+        double distance = dx * dx + dy * dy;
+        if (distance <= query.bestDistance) {
+            query.bestDistance = distance;
+            query.best = mid;
+        }
+        double split = byY ? dy : dx;           // negative if the query is before the splitting point
+        if (split < 0) {
+            nearest(lo, mid, !byY, query);
+            if (split * split <= query.bestDistance)
+                nearest(mid + 1, hi, !byY, query);
+        } else {
+            nearest(mid + 1, hi, !byY, query);
+            if (split * split <= query.bestDistance)
+                nearest(lo, mid, !byY, query);
+        }
+    }
+
+    private void build(int lo, int hi, boolean byY) {
+        if (hi - lo <= 1)
+            return;
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi, mid, byY ? ys : xs);
+        build(lo, mid, !byY);
+        build(mid + 1, hi, !byY);
+    }
+
+    /**
+     * Reorders the points in <code>[lo, hi)</code> so that the point at <code>k</code> is the one that sorting them by
+     * the given keys would put there, with none greater before it and none less after it.
+     */
+    private void select(int lo, int hi, int k, double[] keys) {
+        while (hi - lo > 1) {
+            double pivot = medianOf(keys[lo], keys[(lo + hi) >>> 1], keys[hi - 1]);
+            int    i     = lo;
+            int    j     = hi - 1;
+            while (i <= j) {
+                while (keys[i] < pivot)
+                    i++;
+                while (keys[j] > pivot)
+                    j--;
+                if (i <= j)
+                    swap(i++, j--);
+            }
+            if (k <= j)
+                hi = j + 1;
+            else if (k >= i)
+                lo = i;
+            else
+                return;                         // between the two parts, where every key equals the pivot
+        }
+    }
+
+    private static double medianOf(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private void swap(int i, int j) {
+        double x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        double y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+        int row = rows[i];
+        rows[i] = rows[j];
+        rows[j] = row;
+    }
+}
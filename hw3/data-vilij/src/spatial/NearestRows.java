@@ -0,0 +1,42 @@
+package spatial;
+
+/**
+ * The nearest points found so far in a search for the <code>k</code> nearest, kept sorted by distance in the array of
+ * rows the caller asked for them in. As <code>k</code> is usually small, a point is put in its place by insertion.
+ */
+final class NearestRows {
+
+    private final int[]    rows;
+    private final double[] distances;       // squared, scaled, in the same order as the rows
+    private int            count;
+
+    NearestRows(int[] rows) {
+        this.rows = rows;
+        this.distances = new double[rows.length];
+    }
+
+    int count() { return count; }
+
+    /**
+     * @return the squared distance beyond which a point is too far to be among the nearest, which is every distance if
+     * no points were asked for
+     */
+    double bound() {
+        if (rows.length == 0)
+            return Double.NEGATIVE_INFINITY;
+        return count < rows.length ? Double.POSITIVE_INFINITY : distances[count - 1];
+    }
+
+    /** Keeps a point if it is among the nearest found so far. */
+    void offer(int row, double distance) {
+        if (rows.length == 0 || (count == rows.length && distance >= bound()))
+            return;
+        int i = count < rows.length ? count++ : count - 1;
+        for (; i > 0 && distances[i - 1] > distance; i--) {
+            rows[i] = rows[i - 1];
+            distances[i] = distances[i - 1];
+        }
+        rows[i] = row;
+        distances[i] = distance;
+    }
+}
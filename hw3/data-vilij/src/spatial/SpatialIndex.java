@@ -0,0 +1,57 @@
+package spatial;
+
+import java.util.function.IntConsumer;
+
+/**
+ * An index of points in the plane, bulk-loaded from columns of coordinates such as those of a {@link data.DataSet},
+ * that finds points by location without a scan over all of them. The points are known by their rows in the columns.
+ * <p>
+ * Distances may be weighted per axis: differences of x are multiplied by an <code>xScale</code> and differences of y by
+ * a <code>yScale</code>, so that a query can, for instance, measure distances in pixels on screen, where a unit of x
+ * and a unit of y usually cover different numbers of pixels.
+ */
+public interface SpatialIndex {
+
+    /** @return the number of points in the index */
+    int size();
+
+    /**
+     * Indexes the first <code>size</code> points of the given columns instead of the points indexed so far, reusing
+     * the storage of the index where it is large enough. The columns are copied.
+     */
+    void rebuild(double[] xs, double[] ys, int size);
+
+    /**
+     * @param maxDistance the largest scaled distance at which a point is found
+     * @return the row of the nearest point, or <code>-1</code> if no point is within <code>maxDistance</code>
+     */
+    int nearest(double x, double y, double xScale, double yScale, double maxDistance);
+
+    /** @return the row of the point nearest to the given point, or <code>-1</code> if the index is empty */
+    default int nearest(double x, double y) {
+        return nearest(x, y, 1, 1, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Finds the <code>k</code> nearest points, as many as <code>rows</code> holds.
+     *
+     * @param rows the array to put the rows of the nearest points in, nearest first
+     * @return the number of points found, which is less than <code>rows.length</code> only if the index holds fewer
+     */
+    int nearest(double x, double y, double xScale, double yScale, int[] rows);
+
+    /**
+     * Passes the row of every point within a radius of the given point to an action, in no particular order.
+     *
+     * @param radius the largest scaled distance at which a point is passed, inclusive
+     * @return the number of points passed
+     */
+    int within(double x, double y, double xScale, double yScale, double radius, IntConsumer action);
+
+    /**
+     * Passes the row of every point in a rectangle, its edges included, to an action, in no particular order.
+     *
+     * @return the number of points passed
+     */
+    int inRect(double xMin, double yMin, double xMax, double yMax, IntConsumer action);
+}
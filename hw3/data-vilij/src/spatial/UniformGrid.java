@@ -0,0 +1,224 @@
+package spatial;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A uniform grid over points in the plane, bulk-loaded from columns of coordinates such as those of a
+ * {@link data.DataSet}. The bounds of the points are cut into cells of equal size, about {@link #POINTS_PER_CELL} points
+ * to a cell if the points are spread evenly, and the points are sorted by cell with a counting sort, so that the points
+ * of each cell are a range of the arrays. Building takes <i>O(n)</i> time, which makes a grid the cheaper index to
+ * {@link #rebuild} when the points change often. A query looks at the cells its answer may be in, and only at the
+ * points in them.
+ * <p>
+ * A grid suits points spread evenly over their bounds; where many points crowd into a few cells, a {@link KdTree}
+ * answers queries with fewer comparisons.
+ */
+public final class UniformGrid implements SpatialIndex {
+
+    /** The number of points per cell a grid is sized for. */
+    static final int POINTS_PER_CELL = 2;
+
+    private double[] xs         = new double[0];     // the coordinates, sorted by cell
+    private double[] ys         = new double[0];
+    private int[]    rows       = new int[0];        // the row of each point in the columns the grid was built from
+    private int[]    cellOf     = new int[0];        // the cell of each row, while building
+    private int[]    cellStarts = new int[1];        // the points of cell i are in [cellStarts[i], cellStarts[i + 1])
+    private int      size;
+    private int      columns;
+    private int      lines;
+    private double   xMin;
+    private double   yMin;
+    private double   cellWidth;
+    private double   cellHeight;
+
+    /**
+     * Builds a grid over the first <code>size</code> points of the given columns, which are copied.
+     *
+     * @param xs   the x value of each point
+     * @param ys   the y value of each point
+     * @param size the number of points
+     */
+    public UniformGrid(double[] xs, double[] ys, int size) {
+        rebuild(xs, ys, size);
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public void rebuild(double[] xs, double[] ys, int size) {
+        if (this.xs.length < size) {
+            this.xs = new double[size];
+            this.ys = new double[size];
+            this.rows = new int[size];
+            this.cellOf = new int[size];
+        }
+        this.size = size;
+        double xMax = Double.NEGATIVE_INFINITY;
+        double yMax = Double.NEGATIVE_INFINITY;
+        xMin = Double.POSITIVE_INFINITY;
+        yMin = Double.POSITIVE_INFINITY;
+        for (int row = 0; row < size; row++) {
+            xMin = Math.min(xMin, xs[row]);
+            xMax = Math.max(xMax, xs[row]);
+            yMin = Math.min(yMin, ys[row]);
+            yMax = Math.max(yMax, ys[row]);
+        }
+
+        // As many cells as keep POINTS_PER_CELL to a cell, as near square as the bounds allow.
+        double width  = size > 0 ? xMax - xMin : 0;
+        double height = size > 0 ? yMax - yMin : 0;
+        int    cells  = Math.max(size / POINTS_PER_CELL, 1);
+        if (width > 0 && height > 0) {
+            double side = Math.sqrt(width * height / cells);
+            columns = (int) Math.max(Math.min(Math.ceil(width / side), cells), 1);
+            lines = Math.max(cells / columns, 1);
+        } else {
+            columns = width > 0 ? cells : 1;
+            lines = height > 0 ? cells : 1;
+        }
+        cellWidth = width > 0 ? width / columns : 1;
+        cellHeight = height > 0 ? height / lines : 1;
+
+        if (cellStarts.length < columns * lines + 1)
+            cellStarts = new int[columns * lines + 1];
+        Arrays.fill(cellStarts, 0, columns * lines + 1, 0);
+        for (int row = 0; row < size; row++) {
+            cellOf[row] = column(xs[row]) + line(ys[row]) * columns;
+            cellStarts[cellOf[row] + 1]++;
+        }
+        for (int cell = 0; cell < columns * lines; cell++)
+            cellStarts[cell + 1] += cellStarts[cell];
+        for (int row = 0; row < size; row++) {
+            int i = cellStarts[cellOf[row]]++;              // the starts move up to the ends as points are placed
+            this.xs[i] = xs[row];
+            this.ys[i] = ys[row];
+            this.rows[i] = row;
+        }
+        for (int cell = columns * lines; cell > 0; cell--)
+            cellStarts[cell] = cellStarts[cell - 1];        // and back down, each to the end of the cell before
+        cellStarts[0] = 0;
+    }
+
+    @Override
+    public int nearest(double x, double y, double xScale, double yScale, double maxDistance) {
+        int[] row = new int[1];
+        if (nearest(x, y, xScale, yScale, row, maxDistance * maxDistance) == 0)
+            return -1;
+        return row[0];
+    }
+
+    @Override
+    public int nearest(double x, double y, double xScale, double yScale, int[] rows) {
+        return nearest(x, y, xScale, yScale, rows, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Looks at the cells in rings of growing size around the cell of the given point, until the cells beyond the
+     * rings looked at are all farther than the farthest of the nearest points found.
+     */
+    private int nearest(double x, double y, double xScale, double yScale, int[] rows, double maxSquared) {
+        if (rows.length == 0)
+            return 0;
+        NearestRows nearest = new NearestRows(rows);
+        int         column  = column(x);
+        int         line    = line(y);
+        for (int ring = 0; ; ring++) {
+            int c0 = column - ring;
+            int c1 = column + ring;
+            int l0 = line - ring;
+            int l1 = line + ring;
+            for (int l = Math.max(l0, 0); l <= Math.min(l1, lines - 1); l++) {
+                if (l == l0 || l == l1) {                   // the whole line of cells is on the ring
+                    offer(l, Math.max(c0, 0), Math.min(c1, columns - 1), x, y, xScale, yScale, maxSquared, nearest);
+                } else {                                    // only its two ends are
+                    if (c0 >= 0)
+                        offer(l, c0, c0, x, y, xScale, yScale, maxSquared, nearest);
+                    if (c1 < columns && c1 != c0)
+                        offer(l, c1, c1, x, y, xScale, yScale, maxSquared, nearest);
+                }
+            }
+
+            // The nearest any cell beyond the rings can be, past the sides of the rings with cells beyond them
+            double beyond = Double.POSITIVE_INFINITY;
+            if (c0 > 0)
+                beyond = Math.min(beyond, Math.max(x - (xMin + c0 * cellWidth), 0) * xScale);
+            if (c1 < columns - 1)
+                beyond = Math.min(beyond, Math.max(xMin + (c1 + 1) * cellWidth - x, 0) * xScale);
+            if (l0 > 0)
+                beyond = Math.min(beyond, Math.max(y - (yMin + l0 * cellHeight), 0) * yScale);
+            if (l1 < lines - 1)
+                beyond = Math.min(beyond, Math.max(yMin + (l1 + 1) * cellHeight - y, 0) * yScale);
+            if (beyond == Double.POSITIVE_INFINITY || beyond * beyond > maxSquared
+                || beyond * beyond >= nearest.bound())
+                break;
+        }
+        for (int i = 0; i < nearest.count(); i++)
+            rows[i] = this.rows[rows[i]];                   // from grid order to the rows of the columns
+        return nearest.count();
+    }
+
+    /** Offers the points of the cells from <code>c0</code> to <code>c1</code> of a line of cells to the nearest. */
+    private void offer(int line, int c0, int c1, double x, double y, double xScale, double yScale, double maxSquared,
+                       NearestRows nearest) {
+        for (int i = cellStarts[line * columns + c0]; i < cellStarts[line * columns + c1 + 1]; i++) {
+            double dx       = (x - xs[i]) * xScale;
+            double dy       = (y - ys[i]) * yScale;
+            double distance = dx * dx + dy * dy;
+            if (distance <= maxSquared)
+                nearest.offer(i, distance);
+        }
+    }
+
+    @Override
+    public int within(double x, double y, double xScale, double yScale, double radius, IntConsumer action) {
+        double radiusSquared = radius * radius;
+        double xRadius       = radius / xScale;
+        double yRadius       = radius / yScale;
+        int    count         = 0;
+        for (int l = line(y - yRadius); l <= line(y + yRadius); l++) {
+            int from = cellStarts[l * columns + column(x - xRadius)];
+            int to   = cellStarts[l * columns + column(x + xRadius) + 1];  // the cells of a line are one range
+            for (int i = from; i < to; i++) {
+                double dx = (x - xs[i]) * xScale;
+                double dy = (y - ys[i]) * yScale;
+                if (dx * dx + dy * dy <= radiusSquared) {
+                    action.accept(rows[i]);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int inRect(double xMin, double yMin, double xMax, double yMax, IntConsumer action) {
+        if (xMin > xMax || yMin > yMax)
+            return 0;
+        int count = 0;
+        for (int l = line(yMin); l <= line(yMax); l++) {
+            int from = cellStarts[l * columns + column(xMin)];
+            int to   = cellStarts[l * columns + column(xMax) + 1];
+            for (int i = from; i < to; i++) {
+                if (xs[i] >= xMin && xs[i] <= xMax && ys[i] >= yMin && ys[i] <= yMax) {
+                    action.accept(rows[i]);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** @return the column of the cells an x value falls in, or the nearest column if it falls outside the grid */
+    private int column(double x) {
+        double column = Math.floor((x - xMin) / cellWidth);
+        return (int) Math.max(Math.min(column, columns - 1), 0);
+    }
+
+    /** @return the line of the cells a y value falls in, or the nearest line if it falls outside the grid */
+    private int line(double y) {
+        double line = Math.floor((y - yMin) / cellHeight);
+        return (int) Math.max(Math.min(line, lines - 1), 0);
+    }
+}
@@ -2,7 +2,10 @@ package ui;
 
 import actions.AppActions;
 import data.DataSet;
+import data.DatasetStats;
 import dataprocessors.AppData;
+import dataprocessors.LineSource;
+import javafx.animation.PauseTransition;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
@@ -23,18 +26,21 @@ import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import settings.AppPropertyTypes;
 import vilij.propertymanager.PropertyManager;
 import vilij.templates.ApplicationTemplate;
 import vilij.templates.UITemplate;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.lang.reflect.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -57,11 +63,27 @@ public final class AppUI extends UITemplate {
     private Button scrnshotButton;                // toolbar button to take a screenshot of the data
     private Button doneEditButton;
     private Button runButton;
+    private ProgressBar loadProgressBar;          // toolbar progress of a data file being loaded
+    private Label loadProgressLabel;
+    private Button cancelLoadButton;
     private ChoiceBox algorithmTypes;
     private Text informationText;
     private TextArea textArea;                    // text area for new data input
+    private DataLineView dataLineView;            // paged view of a loaded data file, shown in place of the text area
     private boolean hasNewText;                   // whether or not the text area has any new data since last display
+    private TextFormatter.Change textEdit;        // the last edit of the text area, until its text changes by it
     private LineChart<Number, Number> chart;      // the chart where data will be displayed
+    private final PointTooltip chartTooltip = new PointTooltip();  // names the chart's point under the mouse
+    private ScatterCanvas scatterCanvas;          // draws the data instead of the chart when canvas rendering is on
+    private boolean canvasRendering;
+    private Runnable chartRefresh;                // redraws the chart's data once a resize changes its level of detail
+    private final PauseTransition chartResize = new PauseTransition(Duration.millis(200));
+    private final UpdateScheduler updateScheduler = new UpdateScheduler();  // shows a running algorithm's updates
+    private DataSet chartDataSet;                 // the dataset, or labels of it, last shown by updateChart(DataSet)
+    private int[] chartLabelIds;                  // the labels its instances are shown with
+    private List<XYChart.Data<Number, Number>> chartPoints;     // the data item of each instance, or null if thinned out
+    private List<XYChart.Series<Number, Number>> chartSeries;   // the series of each label id, or null if it has none
+    private boolean chartThinned;                 // whether any instance was thinned out
     private VBox leftPane;
     private VBox algorithmTypePane;
     private HBox selectionPane;
@@ -78,7 +100,7 @@ public final class AppUI extends UITemplate {
     private Button[] clusteringConfigureButton;
     private ArrayList<String> classifierAlgorithmClassNames;
     private ArrayList<String> clustererAlgorithmClassNames;
-    private Runnable algorithm = () -> {};
+    private volatile Runnable algorithm = () -> {};
     private Thread runningThread;
 
     public Button getScrnshotButton() {
@@ -121,6 +143,29 @@ public final class AppUI extends UITemplate {
         return chart;
     }
 
+    /** @return the scheduler through which running algorithms publish their updates to the chart */
+    public UpdateScheduler getUpdateScheduler() {
+        return updateScheduler;
+    }
+
+    public PointTooltip getChartTooltip() {
+        return chartTooltip;
+    }
+
+    public ScatterCanvas getScatterCanvas() {
+        return scatterCanvas;
+    }
+
+    /** @return whether the data is drawn into the scatter canvas rather than added to the chart */
+    public boolean isCanvasRendering() {
+        return canvasRendering;
+    }
+
+    /** @return the node that shows the data, whichever way it is drawn */
+    public Node getChartNode() {
+        return canvasRendering ? scatterCanvas : chart;
+    }
+
     public Runnable getAlgorithm() {
         return algorithm;
     }
@@ -193,7 +238,36 @@ public final class AppUI extends UITemplate {
         loadButton = setToolbarButton(loadiconPath, manager.getPropertyValue(LOAD_TOOLTIP.name()), false);
         exitButton = setToolbarButton(exiticonPath, manager.getPropertyValue(EXIT_TOOLTIP.name()), false);
         scrnshotButton = setToolbarButton(scrnshotIconPath, manager.getPropertyValue(SCREENSHOT_TOOLTIP.name()),true);
-        toolBar = new ToolBar(newButton, saveButton, loadButton, scrnshotButton, exitButton);
+        loadProgressBar = new ProgressBar();
+        loadProgressLabel = new Label();
+        cancelLoadButton = new Button(manager.getPropertyValue(CANCEL_LOAD_TEXT.name()));
+        toolBar = new ToolBar(newButton, saveButton, loadButton, scrnshotButton, exitButton,
+                              loadProgressBar, loadProgressLabel, cancelLoadButton);
+        setLoadProgressVisible(false);
+    }
+
+    /** Shows the progress of a data file load in the toolbar, with a button to cancel it. */
+    public void showLoadProgress(Task<?> loadTask) {
+        loadProgressBar.progressProperty().bind(loadTask.progressProperty());
+        loadProgressLabel.textProperty().bind(loadTask.messageProperty());
+        cancelLoadButton.setOnAction(e -> loadTask.cancel());
+        loadButton.setDisable(true);
+        setLoadProgressVisible(true);
+    }
+
+    public void hideLoadProgress() {
+        loadProgressBar.progressProperty().unbind();
+        loadProgressLabel.textProperty().unbind();
+        cancelLoadButton.setOnAction(null);
+        loadButton.setDisable(false);
+        setLoadProgressVisible(false);
+    }
+
+    private void setLoadProgressVisible(boolean visible) {
+        for (Node node : new Node[]{loadProgressBar, loadProgressLabel, cancelLoadButton}) {
+            node.setVisible(visible);
+            node.setManaged(visible);
+        }
     }
 
     @Override
@@ -214,7 +288,38 @@ public final class AppUI extends UITemplate {
     @Override
     public void clear() {
         textArea.clear();
+        showTextArea();
         chart.getData().clear();
+        updateScheduler.discard();
+        chartRefresh = null;
+        chartDataSet = null;
+        chartTooltip.clear();
+        scatterCanvas.clear();
+    }
+
+    /** Shows the lines of a loaded data file in place of the text area. */
+    public void showDataLines(LineSource lines) {
+        dataLineView.setLines(lines);
+        int index = leftPane.getChildren().indexOf(textArea);
+        if (index >= 0)
+            leftPane.getChildren().set(index, dataLineView);
+    }
+
+    /** Puts the text area back in place of the lines of a loaded data file. */
+    public void showTextArea() {
+        dataLineView.setLines(null);
+        int index = leftPane.getChildren().indexOf(dataLineView);
+        if (index >= 0)
+            leftPane.getChildren().set(index, textArea);
+    }
+
+    /**
+     * Scrolls the lines of the loaded data file to the given line and selects it.
+     *
+     * @param lineNumber the number of the line, from 1
+     */
+    public void jumpToLine(int lineNumber) {
+        dataLineView.jumpToLine(lineNumber);
     }
 
     public String getCurrentText() {
@@ -230,10 +335,29 @@ public final class AppUI extends UITemplate {
         chart.setAnimated(false);
         chart.setHorizontalZeroLineVisible(false);
         chart.setVerticalZeroLineVisible(false);
+        chart.setOnMouseMoved(event -> {
+            Point2D inX = xAxis.sceneToLocal(event.getSceneX(), event.getSceneY());
+            Point2D inY = yAxis.sceneToLocal(event.getSceneX(), event.getSceneY());
+            chartTooltip.mouseMoved(chart, event, xAxis.getValueForDisplay(inX.getX()).doubleValue(),
+                                    yAxis.getValueForDisplay(inY.getY()).doubleValue(), Math.abs(xAxis.getScale()),
+                                    Math.abs(yAxis.getScale()));
+        });
+        chart.setOnMouseExited(event -> chartTooltip.hide(chart));
+        scatterCanvas = new ScatterCanvas(manager.getPropertyValue(CHART_TITLE.name()));
+        canvasRendering = Boolean.parseBoolean(manager.getPropertyValue(CANVAS_RENDERING.name()));
 
         textArea = new TextArea();
         textArea.setPrefSize(240, 190);
+        dataLineView = new DataLineView();
+        dataLineView.setPrefSize(240, 190);
         chart.setPrefSize(700, 550);
+        scatterCanvas.setPrefSize(700, 550);
+        chartResize.setOnFinished(event -> {
+            if (chartRefresh != null)
+                chartRefresh.run();
+        });
+        chart.widthProperty().addListener(observable -> chartResize.playFromStart());
+        chart.heightProperty().addListener(observable -> chartResize.playFromStart());
         informationText = new Text();
         doneEditButton = new Button(manager.getPropertyValue(DONE_BUTTON_TEXT.name()));
         runButton = new Button(manager.getPropertyValue(RUN_BUTTON_TEXT.name()));
@@ -333,7 +457,7 @@ public final class AppUI extends UITemplate {
         selectionPane.setSpacing(5);
 
         rightPane.setAlignment(Pos.CENTER);
-        rightPane.getChildren().addAll(chart);
+        rightPane.getChildren().addAll(getChartNode());
 
         leftPane.setVisible(false);
         runButton.setVisible(false);
@@ -351,12 +475,12 @@ public final class AppUI extends UITemplate {
         algorithmTypes.setDisable(!value);
     }
 
-    public void loadDataInformation(int numInstances, int numLabels, ArrayList<String> labelNames, String dataFilePath) {
+    public void loadDataInformation(DatasetStats stats, int numLabels, String dataFilePath) {
         PropertyManager manager = applicationTemplate.manager;
-        String text = numInstances + manager.getPropertyValue(DATA_INFORMATION_ONE.name()) + numLabels
+        String text = stats.size() + manager.getPropertyValue(DATA_INFORMATION_ONE.name()) + numLabels
                                     + manager.getPropertyValue(DATA_INFORMATION_TWO.name()) + dataFilePath + "\n"
                                     + manager.getPropertyValue(DATA_INFORMATION_THREE.name());
-        for (String labelName : labelNames) {
+        for (String labelName : stats.getLabels()) {
             text += "\n" + manager.getPropertyValue(DATA_INFORMATION_DASH.name()) + labelName;
         }
         setInformationText(text);
@@ -374,7 +498,21 @@ public final class AppUI extends UITemplate {
     }
 
     private void setTextAreaActions() {
+        textArea.setTextFormatter(new TextFormatter<String>(change -> {
+            textEdit = change.isContentChange() ? change : null;
+            return change;
+        }));
         textArea.textProperty().addListener((observable, oldValue, newValue) -> {
+            // Only rechecks the edited lines, where the edit is known to be the one that made the new text
+            TextFormatter.Change edit = textEdit;
+            textEdit = null;
+            if (edit != null && newValue.length() == oldValue.length() - edit.getRangeEnd() + edit.getRangeStart()
+                                                     + edit.getText().length())
+                ((AppData) applicationTemplate.getDataComponent())
+                    .parseText(newValue, edit.getRangeStart(), edit.getRangeEnd(),
+                               edit.getRangeStart() + edit.getText().length());
+            else
+                ((AppData) applicationTemplate.getDataComponent()).parseText(newValue);
             try {
                 if (!newValue.equals(oldValue)) {
                     if (!newValue.isEmpty()) {
@@ -410,24 +548,14 @@ public final class AppUI extends UITemplate {
                 doneEditButton.setText(manager.getPropertyValue(DONE_BUTTON_TEXT.name()));
                 disableTextArea(false);
             } else if (doneEditButton.getText().equals(manager.getPropertyValue(DONE_BUTTON_TEXT.name()))) {
-                String[] strings = textArea.getText().split("\n");
-                ArrayList<String> data = new ArrayList<>();
-                for (String string : strings) {
-                    data.add(string);
-                }
                 if (!(textArea.getText().isEmpty()) && textArea.getText() != null) {
-                    int x = ((AppData) applicationTemplate.getDataComponent()).parseData(data);
+                    int x = ((AppData) applicationTemplate.getDataComponent()).parseText(textArea.getText());
                     if (x == 0) {
                         enableAlgorithmTypes(true);
                         doneEditButton.setText(manager.getPropertyValue(EDIT_BUTTON_TEXT.name()));
                         disableTextArea(true);
-                        ArrayList<String> labelNames = ((AppData) applicationTemplate.getDataComponent()).getLabelNames(data);
-                        int counter = labelNames.size();
-                        for (String labelName: labelNames) {
-                            if (labelName.toLowerCase().equals(manager.getPropertyValue(NULL_LABEL.name()))) {
-                                counter--;
-                            }
-                        }
+                        DatasetStats stats = ((AppData) applicationTemplate.getDataComponent()).loadTextStats();
+                        int counter = stats.getLabelCount(manager.getPropertyValue(NULL_LABEL.name()));
                         ((AppData) applicationTemplate.getDataComponent()).setNumOfLabels(counter);
                         if (counter != 2) {
                             algorithmTypePane.getChildren().remove(algorithmTypes);
@@ -443,7 +571,7 @@ public final class AppUI extends UITemplate {
                         }
                         setAlgorithmTypesActions();
                         selectionPane.getChildren().clear();
-                        loadDataInformation(data.size(), labelNames.size(), labelNames, "");
+                        loadDataInformation(stats, stats.getLabels().size(), "");
                     } else {
                         ((AppActions) applicationTemplate.getActionComponent()).saveErrorHandlingHelper(x);
                         enableAlgorithmTypes(false);
@@ -554,8 +682,9 @@ public final class AppUI extends UITemplate {
                 boolean tocontinue = ((RunConfiguration) ((Button) classificationRadioGroup.getSelectedToggle().getUserData()).getUserData()).getContinuousRun();
                 int maxIterations = ((RunConfiguration) ((Button) classificationRadioGroup.getSelectedToggle().getUserData()).getUserData()).getInterations();
                 int updateInterval = ((RunConfiguration) ((Button) classificationRadioGroup.getSelectedToggle().getUserData()).getUserData()).getUpdateInterval();
-                DataSet dataSet = new DataSet();
+                DataSet dataSet = null;            // the data file's dataset is copied on the algorithm's thread
                 if ((!((AppActions) applicationTemplate.getActionComponent()).getIsLoadedData())) {
+                    dataSet = new DataSet();
                     try {
                         String[] lines = textArea.getText().split("\n");
                         for (String line : lines) {
@@ -565,23 +694,14 @@ public final class AppUI extends UITemplate {
                         e.printStackTrace();
                     }
                 }
-                else {
-                    try {
-                        dataSet = DataSet.fromTSDFile(((AppActions) applicationTemplate.getActionComponent()).getDataFilePath());
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }
 
                 for (int i = 0; i < classifierAlgorithmClassNames.size(); i++) {
                     String[] values = classifierAlgorithmClassNames.get(i).split("\\.");
-                    if (classificationRadioGroup.getSelectedToggle().toString().replaceAll("\\s+", "").toLowerCase().contains(values[1].toLowerCase())) {
+                    if (((RadioButton) classificationRadioGroup.getSelectedToggle()).getText().replaceAll("\\s+", "").equalsIgnoreCase(values[1])) {
+                        Constructor konstructor = null;
                         try {
                             Class<?> klass = Class.forName(classifierAlgorithmClassNames.get(i));
-                            Constructor konstructor = klass.getConstructors()[0];
-                            if (runningThread == null) {
-                                algorithm = (Runnable) konstructor.newInstance(dataSet, maxIterations, updateInterval, tocontinue);
-                            }
+                            konstructor = klass.getConstructors()[0];
                         } catch (Exception e) {
                             e.printStackTrace();
                         }
@@ -589,7 +709,9 @@ public final class AppUI extends UITemplate {
                         disableUI();
 
                         if (tocontinue) {
-                            runningThread = new Thread(algorithm);
+                            runningThread = runningThread == null
+                                            ? algorithmThread(konstructor, dataSet, maxIterations, updateInterval, tocontinue)
+                                            : new Thread(algorithm);
                             runningThread.setDaemon(true);
                             scrnshotButton.setDisable(true);
                             runningThread.start();
@@ -607,7 +729,7 @@ public final class AppUI extends UITemplate {
                             new Thread(task).start();
                         } else {
                             if (runningThread == null) {
-                                runningThread = new Thread(algorithm);
+                                runningThread = algorithmThread(konstructor, dataSet, maxIterations, updateInterval, tocontinue);
                                 runningThread.setDaemon(true);
                                 runningThread.start();
                             } else {
@@ -627,8 +749,9 @@ public final class AppUI extends UITemplate {
                 int updateInterval = ((RunConfiguration) ((Button) clusteringRadioGroup.getSelectedToggle().getUserData()).getUserData()).getUpdateInterval();
                 boolean tocontinue = ((RunConfiguration) ((Button) clusteringRadioGroup.getSelectedToggle().getUserData()).getUserData()).getContinuousRun();
                 int numOfLabels = ((RunConfiguration) ((Button) clusteringRadioGroup.getSelectedToggle().getUserData()).getUserData()).getNumOfLabels();
-                DataSet dataSet = new DataSet();
+                DataSet dataSet = null;            // the data file's dataset is copied on the algorithm's thread
                 if ((!((AppActions) applicationTemplate.getActionComponent()).getIsLoadedData())) {
+                    dataSet = new DataSet();
                     try {
                         String[] lines = textArea.getText().split("\n");
                         for (String line : lines) {
@@ -638,28 +761,21 @@ public final class AppUI extends UITemplate {
                         e.printStackTrace();
                     }
                 }
-                else {
-                    try {
-                        dataSet = DataSet.fromTSDFile(((AppActions) applicationTemplate.getActionComponent()).getDataFilePath());
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }
                 for (int i = 0; i < clustererAlgorithmClassNames.size(); i++) {
                     String[] values = clustererAlgorithmClassNames.get(i).split("\\.");
-                    if (clusteringRadioGroup.getSelectedToggle().toString().replaceAll("\\s+", "").toLowerCase().contains(values[1].toLowerCase())) {
+                    if (((RadioButton) clusteringRadioGroup.getSelectedToggle()).getText().replaceAll("\\s+", "").equalsIgnoreCase(values[1])) {
+                        Constructor konstructor = null;
                         try {
                             Class<?> klass = Class.forName(clustererAlgorithmClassNames.get(i));
-                            Constructor konstructor = klass.getConstructors()[0];
-                            if (runningThread == null) {
-                                algorithm = (Runnable) konstructor.newInstance(dataSet, maxIterations, updateInterval, numOfLabels, tocontinue);
-                            }
+                            konstructor = klass.getConstructors()[0];
                         } catch (Exception e) {
                             e.printStackTrace();
                         }
                         disableUI();
                         if (tocontinue) {
-                            runningThread = new Thread(algorithm);
+                            runningThread = runningThread == null
+                                            ? algorithmThread(konstructor, dataSet, maxIterations, updateInterval, numOfLabels, tocontinue)
+                                            : new Thread(algorithm);
                             runningThread.setDaemon(true);
                             scrnshotButton.setDisable(true);
                             runningThread.start();
@@ -677,7 +793,7 @@ public final class AppUI extends UITemplate {
                             new Thread(task).start();
                         } else {
                             if (runningThread == null) {
-                                runningThread = new Thread(algorithm);
+                                runningThread = algorithmThread(konstructor, dataSet, maxIterations, updateInterval, numOfLabels, tocontinue);
                                 runningThread.setDaemon(true);
                                 runningThread.start();
                             } else {
@@ -693,6 +809,29 @@ public final class AppUI extends UITemplate {
         });
     }
 
+    /**
+     * Makes a thread that constructs an algorithm and runs it. The dataset of the data file last loaded is copied on
+     * that thread rather than on the JavaFX application thread, as the algorithm relabels a copy of it.
+     *
+     * @param dataSet  the dataset of the text area, or <code>null</code> to run on a copy of the loaded data file's
+     * @param settings the arguments of the constructor that follow the dataset
+     */
+    private Thread algorithmThread(Constructor<?> constructor, DataSet dataSet, Object... settings) {
+        DataSet loaded = ((AppData) applicationTemplate.getDataComponent()).getDataSet();
+        return new Thread(() -> {
+            Object[] arguments = new Object[settings.length + 1];
+            System.arraycopy(settings, 0, arguments, 1, settings.length);
+            try {
+                arguments[0] = dataSet != null ? dataSet : loaded.copy();
+                algorithm = (Runnable) constructor.newInstance(arguments);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return;
+            }
+            algorithm.run();
+        });
+    }
+
     public void disableTextArea(boolean value) {
         if (value) {
             textArea.setEditable(false);
@@ -705,20 +844,19 @@ public final class AppUI extends UITemplate {
     }
 
     public void updateChart() {
+        chartRefresh = this::updateChart;
         try {
             chart.getData().clear();
+            scatterCanvas.clear();
             AppData dataComponent = (AppData) applicationTemplate.getDataComponent();
             dataComponent.clear();
             if ((!((AppActions) applicationTemplate.getActionComponent()).getIsLoadedData())) {
                 dataComponent.loadData(textArea.getText());
             }
             else {
-                File file = ((AppActions) applicationTemplate.getActionComponent()).getDataFilePath().toFile();
-                BufferedReader br = new BufferedReader(new FileReader(file));
-                String input;
-                while ((input = br.readLine()) != null) {
-                    ((AppData) applicationTemplate.getDataComponent()).getTSDProcessor().processString(input);
-                }
+                // The frozen result of the last load, rather than the cache, which a load in progress may hold
+                if (dataComponent.getDataSet() != null)
+                    dataComponent.getTSDProcessor().processDataSet(dataComponent.getDataSet(), dataComponent.getStats());
             }
             dataComponent.displayData();
             ((AppData) applicationTemplate.getDataComponent()).getTSDProcessor().updateLine();
@@ -731,19 +869,147 @@ public final class AppUI extends UITemplate {
         chart.getData().clear();
         AppData dataComponent = (AppData) applicationTemplate.getDataComponent();
         dataComponent.clear();
-        Set<String> labels = new HashSet<>(dataLabels.values());
-        for (String label : labels) {
+        if (canvasRendering) {
+            scatterCanvas.setPoints(dataLabels, dataPoints);
+            return;
+        }
+        chartRefresh = () -> updateChart(dataLabels, dataPoints);
+        chartTooltip.setPoints(dataPoints);
+        DatasetStats stats = new DatasetStats();
+        dataLabels.forEach((name, label) -> stats.add(label, dataPoints.get(name).getX(), dataPoints.get(name).getY()));
+        Map<String, XYChart.Series<Number, Number>> seriesByLabel = new LinkedHashMap<>();
+        Map<String, Integer> labelIds = new HashMap<>();
+        for (String label : stats.getLabels()) {
             XYChart.Series<Number, Number> series = new XYChart.Series<>();
             series.setName(label);
-            dataLabels.entrySet().stream().filter(entry -> entry.getValue().equals(label)).forEach(entry -> {
-                Point2D point = dataPoints.get(entry.getKey());
-                XYChart.Data<Number, Number> seriesData = new XYChart.Data<>(point.getX(), point.getY());
-                series.getData().add(seriesData);
-            });
+            labelIds.put(label, seriesByLabel.size());
+            seriesByLabel.put(label, series);
+        }
+        LevelOfDetail levelOfDetail = LevelOfDetail.forChart(chart, stats);
+        dataLabels.forEach((name, label) -> {
+            Point2D point = dataPoints.get(name);
+            if (levelOfDetail.claim(labelIds.get(label), point.getX(), point.getY()))
+                seriesByLabel.get(label).getData().add(new XYChart.Data<>(point.getX(), point.getY()));
+        });
+        for (XYChart.Series<Number, Number> series : seriesByLabel.values()) {
+            chart.getData().add(series);
+            Node line = series.getNode().lookup(".chart-series-line");
+            line.setStyle("-fx-stroke: transparent;");
+        }
+    }
+
+    /**
+     * Shows the instances of a dataset whose labels an algorithm is changing. If the dataset has the locations of the
+     * one last shown this way, as the {@link DataSet#copyLabels() copied labels} of one dataset do, only the instances
+     * whose label changed since are moved to the series of their new label, or repainted on the canvas, so that the
+     * late iterations of an algorithm, which relabel few instances, cost little to draw.
+     */
+    public void updateChart(DataSet dataSet) {
+        ((AppData) applicationTemplate.getDataComponent()).clear();
+        if (canvasRendering) {
+            scatterCanvas.updatePoints(dataSet);
+            return;
+        }
+        chartRefresh = () -> {
+            chartDataSet = null;
+            updateChart(dataSet);
+        };
+        if (!moveChartPoints(dataSet))
+            rebuildChart(dataSet);
+    }
+
+    /** Clears the chart and adds a series per label of the dataset, thinned out to the chart's level of detail. */
+    private void rebuildChart(DataSet dataSet) {
+        chart.getData().clear();
+        int          size   = dataSet.size();
+        double[]     xs     = dataSet.getXs();
+        double[]     ys     = dataSet.getYs();
+        int[]        ids    = Arrays.copyOf(dataSet.getLabelIds(), size);
+        List<String> labels = new ArrayList<>(dataSet.getLabelDictionary());
+        DatasetStats stats  = new DatasetStats();
+        List<XYChart.Series<Number, Number>> shown = new ArrayList<>();
+        chartSeries = new ArrayList<>(Collections.nCopies(labels.size(), null));
+        for (int row = 0; row < size; row++) {
+            stats.add(labels.get(ids[row]), xs[row], ys[row]);
+            if (chartSeries.get(ids[row]) == null) {
+                XYChart.Series<Number, Number> series = new XYChart.Series<>();
+                series.setName(labels.get(ids[row]));
+                chartSeries.set(ids[row], series);
+                shown.add(series);
+            }
+        }
+        LevelOfDetail levelOfDetail = LevelOfDetail.forChart(chart, stats);
+        chartPoints = new ArrayList<>(size);
+        chartThinned = false;
+        for (int row = 0; row < size; row++) {
+            XYChart.Data<Number, Number> point = null;
+            if (levelOfDetail.claim(ids[row], xs[row], ys[row])) {
+                point = new XYChart.Data<>(xs[row], ys[row]);
+                chartSeries.get(ids[row]).getData().add(point);
+            } else {
+                chartThinned = true;
+            }
+            chartPoints.add(point);
+        }
+        for (XYChart.Series<Number, Number> series : shown) {
             chart.getData().add(series);
             Node line = series.getNode().lookup(".chart-series-line");
             line.setStyle("-fx-stroke: transparent;");
         }
+        chartDataSet = dataSet;
+        chartLabelIds = ids;
+        chartTooltip.setPoints(xs, ys, size, dataSet::getName);
+    }
+
+    /**
+     * Moves the data items of the instances whose label changed since the dataset was last shown to the series of
+     * their new labels.
+     *
+     * @return <code>false</code>, having changed nothing, if the chart has to be rebuilt instead: if it shows other
+     * locations or was cleared since, if some instances were thinned out, or if a label gains or loses its last instance
+     */
+    private boolean moveChartPoints(DataSet dataSet) {
+        if (chartDataSet == null || dataSet.getXs() != chartDataSet.getXs() || dataSet.getYs() != chartDataSet.getYs()
+            || dataSet.size() != chartLabelIds.length || chartThinned)
+            return false;
+        List<XYChart.Series<Number, Number>> shown = new ArrayList<>(chartSeries);
+        shown.removeAll(Collections.singleton(null));
+        if (!chart.getData().equals(shown))
+            return false;
+
+        int[]                                         ids   = dataSet.getLabelIds();
+        List<int[]>                                   moves = new ArrayList<>();     // a row and its new label
+        Map<XYChart.Series<Number, Number>, Integer>  delta = new HashMap<>();
+        for (int row = 0; row < chartLabelIds.length; row++) {
+            int label = ids[row];
+            if (label == chartLabelIds[row])
+                continue;
+            if (label >= chartSeries.size() || chartSeries.get(label) == null)
+                return false;
+            moves.add(new int[]{row, label});
+            delta.merge(chartSeries.get(chartLabelIds[row]), -1, Integer::sum);
+            delta.merge(chartSeries.get(label), 1, Integer::sum);
+        }
+        for (Map.Entry<XYChart.Series<Number, Number>, Integer> entry : delta.entrySet()) {
+            if (entry.getKey().getData().size() + entry.getValue() == 0)
+                return false;
+        }
+
+        Map<XYChart.Series<Number, Number>, Set<XYChart.Data<Number, Number>>>  removed = new HashMap<>();
+        Map<XYChart.Series<Number, Number>, List<XYChart.Data<Number, Number>>> added   = new HashMap<>();
+        for (int[] move : moves) {
+            int                          row   = move[0];
+            XYChart.Data<Number, Number> point = new XYChart.Data<>(dataSet.getXs()[row], dataSet.getYs()[row]);
+            removed.computeIfAbsent(chartSeries.get(chartLabelIds[row]), series -> new HashSet<>())
+                   .add(chartPoints.get(row));
+            added.computeIfAbsent(chartSeries.get(move[1]), series -> new ArrayList<>()).add(point);
+            chartPoints.set(row, point);
+            chartLabelIds[row] = move[1];
+        }
+        removed.forEach((series, points) -> series.getData().removeAll(points));
+        added.forEach((series, points) -> series.getData().addAll(points));
+        chartDataSet = dataSet;
+        return true;
     }
 
     private void setCloseButtonActions() {
@@ -0,0 +1,49 @@
+package ui;
+
+import dataprocessors.LineSource;
+import javafx.collections.FXCollections;
+import javafx.scene.control.ListView;
+
+import java.util.AbstractList;
+
+/**
+ * A read-only view of the lines of a loaded data file. The list view only creates cells for the rows on screen, and
+ * each cell asks the {@link LineSource} for its line when it is shown, so scrolling through a file of millions of
+ * lines keeps no more of it in memory than the source does.
+ */
+public class DataLineView extends ListView<String> {
+
+    private static final double CELL_SIZE = 24;
+
+    public DataLineView() {
+        setEditable(false);
+        setFixedCellSize(CELL_SIZE);        // lets the view place any row without measuring the rows above it
+    }
+
+    /** Shows the given lines, or nothing if they are <code>null</code>. */
+    public void setLines(LineSource lines) {
+        if (lines == null) {
+            setItems(FXCollections.observableArrayList());
+            return;
+        }
+        setItems(FXCollections.observableList(new AbstractList<String>() {
+            @Override
+            public String get(int index) { return lines.line(index); }
+
+            @Override
+            public int size() { return lines.size(); }
+        }));
+    }
+
+    /**
+     * Scrolls to and selects a line.
+     *
+     * @param lineNumber the number of the line, from 1
+     */
+    public void jumpToLine(int lineNumber) {
+        int index = Math.max(0, Math.min(lineNumber - 1, getItems().size() - 1));
+        scrollTo(index);
+        getSelectionModel().select(index);
+        requestFocus();
+    }
+}
@@ -0,0 +1,103 @@
+package ui;
+
+import data.DatasetStats;
+import javafx.scene.chart.XYChart;
+
+import java.util.BitSet;
+
+/**
+ * Thins out points that would be drawn on top of one another. A grid of cells, each about the size of a pixel or a
+ * few pixels, is laid over the visible bounds, and each label may claim each cell once: one point of a label in a cell
+ * is drawn, and the other points of that label in that cell are skipped. However many points there are, no more than
+ * one per label per cell is drawn, so the cost of a frame is bounded by its size in pixels rather than by the number
+ * of rows.
+ * <p>
+ * Which point of a cell is drawn does not matter where each label is drawn in a layer of its own, as the series of a
+ * chart are, since the points skipped would cover much the same pixels in the same color. It does where the points of
+ * all labels are drawn into one layer in row order, as on a {@link ScatterCanvas}: of points of labels A, B and A in a
+ * cell, drawing them all leaves the second A on top, so such a caller claims the cells from the last row backwards.
+ * <p>
+ * A grid is reused from frame to frame, and only has to be {@link #reset} when the bounds, the size of the view or
+ * the number of labels change.
+ */
+public final class LevelOfDetail {
+
+    /** The size, in pixels, of a cell of the grid laid over a chart. */
+    static final int CHART_CELL_SIZE = 2;
+
+    private final BitSet claimed = new BitSet();
+    private int          columns;
+    private int          rows;
+    private double       xMin;
+    private double       yMin;
+    private double       xScale;
+    private double       yScale;
+
+    /**
+     * @return a grid over the plot of a chart whose number axes range over the given bounds and, as they do by
+     * default, over zero
+     */
+    public static LevelOfDetail forChart(XYChart<?, ?> chart, DatasetStats bounds) {
+        double        width  = chart.getWidth() > 0 ? chart.getWidth() : chart.getPrefWidth();
+        double        height = chart.getHeight() > 0 ? chart.getHeight() : chart.getPrefHeight();
+        LevelOfDetail grid   = new LevelOfDetail();
+        grid.reset(Math.min(0, bounds.getXMin()), Math.max(0, bounds.getXMax()), Math.min(0, bounds.getYMin()),
+                   Math.max(0, bounds.getYMax()), (int) (width / CHART_CELL_SIZE), (int) (height / CHART_CELL_SIZE));
+        return grid;
+    }
+
+    /**
+     * Clears the grid and lays it over new bounds.
+     *
+     * @param columns the number of cells across
+     * @param rows    the number of cells down
+     */
+    public void reset(double xMin, double xMax, double yMin, double yMax, int columns, int rows) {
+        claimed.clear();
+        this.columns = Math.max(columns, 1);
+        this.rows = Math.max(rows, 1);
+        this.xMin = xMin;
+        this.yMin = yMin;
+        this.xScale = xMax > xMin ? (this.columns - 1) / (xMax - xMin) : 0;
+        this.yScale = yMax > yMin ? (this.rows - 1) / (yMax - yMin) : 0;
+    }
+
+    /**
+     * @param labelId the label of a point, from 0
+     * @return <code>true</code> if the point is the first of its label in its cell, and should be drawn
+     */
+    public boolean claim(int labelId, double x, double y) {
+        long column = Math.round((x - xMin) * xScale);
+        long row    = Math.round((y - yMin) * yScale);
+        if (column < 0 || column >= columns || row < 0 || row >= rows)
+            return true;                    // outside the grid; not thinned out
+        return claimCell(labelId, (int) column, (int) row);
+    }
+
+    /**
+     * Claims a cell given by its position in the grid, for callers that already map points to cells themselves.
+     *
+     * @return <code>true</code> if the cell had not been claimed for the label
+     */
+    public boolean claimCell(int labelId, int column, int row) {
+        long cell = ((long) labelId * rows + row) * columns + column;
+        if (cell > Integer.MAX_VALUE)
+            return true;
+        if (claimed.get((int) cell))
+            return false;
+        claimed.set((int) cell);
+        return true;
+    }
+
+    /** Gives up the claim of a label on a cell, so that the cell may be claimed for the label again. */
+    public void release(int labelId, int column, int row) {
+        long cell = ((long) labelId * rows + row) * columns + column;
+        if (cell <= Integer.MAX_VALUE)
+            claimed.clear((int) cell);
+    }
+
+    /** Gives up every claim, keeping the grid over the same bounds. */
+    public void clear() {
+        claimed.clear();
+    }
+}
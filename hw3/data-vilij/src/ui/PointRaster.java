@@ -0,0 +1,279 @@
+package ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The pixels of the points of a {@link ScatterCanvas}: a buffer of ARGB pixels into which a ring-shaped symbol is
+ * stamped for each point, one symbol per label per pixel as {@link LevelOfDetail} allows. As symbols are stamped in
+ * row order, the last point of a label on a pixel is the one on top, so it is the one kept; the points skipped are
+ * each covered by a later, identical symbol, and the pixels are those of stamping every point.
+ * <p>
+ * Once the buffer is rendered, a change of label of a few points is {@link #relabel repainted} in place: only the
+ * pixels under the symbols of those points are cleared, and only the points whose symbols reach those pixels are
+ * stamped again, in the same order and with the same thinning as a full rendering, so the result is the same as
+ * rendering everything again. The points near a pixel are found through an index of the points by the pixel they are
+ * centered on, which is built on the first repaint, since the points do not move between renderings. Where so many
+ * points are stacked under the changed symbols that looking through them would cost more than a full rendering, the
+ * repaint is declined.
+ */
+final class PointRaster {
+
+    static final int SYMBOL_RADIUS = 5;
+    static final int SYMBOL_INSET  = 2;
+
+    private static final int WHITE = 0xffffffff;
+
+    /** The pixels of a symbol, as offsets from its center, and whether each is in its white inner disc. */
+    private static final int[]     SYMBOL_DX;
+    private static final int[]     SYMBOL_DY;
+    private static final boolean[] SYMBOL_INNER;
+
+    static {
+        int r = SYMBOL_RADIUS;
+        int inner = SYMBOL_RADIUS - SYMBOL_INSET;
+        List<int[]> offsets = new ArrayList<>();
+        for (int dy = -r; dy <= r; dy++) {
+            for (int dx = -r; dx <= r; dx++) {
+                if (dx * dx + dy * dy <= r * r)
+                    offsets.add(new int[]{dx, dy});
+            }
+        }
+        SYMBOL_DX = new int[offsets.size()];
+        SYMBOL_DY = new int[offsets.size()];
+        SYMBOL_INNER = new boolean[offsets.size()];
+        for (int i = 0; i < offsets.size(); i++) {
+            SYMBOL_DX[i] = offsets.get(i)[0];
+            SYMBOL_DY[i] = offsets.get(i)[1];
+            SYMBOL_INNER[i] = SYMBOL_DX[i] * SYMBOL_DX[i] + SYMBOL_DY[i] * SYMBOL_DY[i] < inner * inner;
+        }
+    }
+
+    private final LevelOfDetail levelOfDetail = new LevelOfDetail();     // left with no claims between calls
+    private final BitSet        drawn         = new BitSet();           // the rows a full rendering stamps
+
+    private int[]    pixels = new int[0];
+    private int      width;
+    private int      height;
+    private double[] xs;
+    private double[] ys;
+    private int[]    labelIds;
+    private int      size;
+    private int[]    colors;
+    private double   xLower;
+    private double   yUpper;
+    private double   xScale;
+    private double   yScale;
+
+    private int[] cellStarts;                   // the points centered on each pixel are cellRows[cellStarts[i]..]
+    private int[] cellRows;
+    private int[] kept = new int[16];           // the rows a repaint stamps again
+
+    /** @return the pixels, row by row, or an empty array if nothing was rendered */
+    int[] getPixels() { return pixels; }
+
+    int getWidth()    { return width; }
+
+    int getHeight()   { return height; }
+
+    /**
+     * Numbers the labels that at least one point has in the order of their first points, as a chart numbers the series
+     * it makes for them, so that labels no point has take no color.
+     *
+     * @param labelIds   the label id of each point
+     * @param labelCount the number of label ids
+     * @return the series of each label id, or <code>-1</code> for a label no point has
+     */
+    static int[] seriesOf(int[] labelIds, int size, int labelCount) {
+        int[] series = new int[labelCount];
+        Arrays.fill(series, -1);
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (series[labelIds[row]] < 0)
+                series[labelIds[row]] = count++;
+        }
+        return series;
+    }
+
+    /**
+     * Stamps every point into a cleared buffer of the given size. The columns are kept, not copied, for later repaints.
+     *
+     * @param colors the ARGB color of each label id
+     * @param xLower the x value at the left edge of the buffer
+     * @param yUpper the y value at the top edge of the buffer
+     * @param xScale the number of pixels per unit of x
+     * @param yScale the number of pixels per unit of y
+     */
+    void render(double[] xs, double[] ys, int[] labelIds, int size, int[] colors, int width, int height, double xLower,
+                double yUpper, double xScale, double yScale) {
+        this.xs = xs;
+        this.ys = ys;
+        this.labelIds = labelIds;
+        this.size = size;
+        this.colors = colors;
+        this.xLower = xLower;
+        this.yUpper = yUpper;
+        this.xScale = xScale;
+        this.yScale = yScale;
+        cellStarts = null;
+        cellRows = null;
+        if (this.width != width || this.height != height) {
+            this.width = width;
+            this.height = height;
+            pixels = new int[width * height];
+        } else {
+            Arrays.fill(pixels, 0);
+        }
+        levelOfDetail.reset(0, width - 1, 0, height - 1, width, height);
+        drawn.clear();
+        for (int row = size - 1; row >= 0; row--) {         // backwards, to claim each pixel for the last point on it
+            int px = column(row);
+            int py = line(row);
+            if (inside(px, py) ? levelOfDetail.claimCell(labelIds[row], px, py) : reaches(px, py))
+                drawn.set(row);
+        }
+        levelOfDetail.clear();
+        for (int row = drawn.nextSetBit(0); row >= 0; row = drawn.nextSetBit(row + 1))
+            stamp(row, column(row), line(row), 0, 0, width, height);
+    }
+
+    /**
+     * Repaints the points of the given rows, whose labels in the column given to {@link #render} have changed since it
+     * was called.
+     *
+     * @param rows  the changed rows
+     * @param count the number of changed rows
+     * @return <code>false</code>, without repainting anything, if so many rows changed that rendering all the points
+     * again would cost less
+     */
+    boolean relabel(int[] rows, int count) {
+        int reach = 2 * SYMBOL_RADIUS + 1;      // the width of the pixels a symbol covers
+        if ((long) count * (2 * reach) * (2 * reach) > (long) width * height)
+            return false;
+        if (cellStarts == null)
+            index();
+        long candidates = 0;                    // against a full rendering, which looks through every row and pixel
+        for (int i = 0; i < count; i++)
+            candidates += gather(rows[i], false);
+        if (candidates > size + (long) width * height)
+            return false;
+
+        for (int i = 0; i < count; i++) {
+            int px = column(rows[i]);
+            int py = line(rows[i]);
+            int x0 = Math.max(px - SYMBOL_RADIUS, 0);
+            int y0 = Math.max(py - SYMBOL_RADIUS, 0);
+            int x1 = Math.min(px + SYMBOL_RADIUS + 1, width);
+            int y1 = Math.min(py + SYMBOL_RADIUS + 1, height);
+            if (x0 >= x1 || y0 >= y1)
+                continue;
+            for (int y = y0; y < y1; y++)
+                Arrays.fill(pixels, y * width + x0, y * width + x1, 0);
+            int found = gather(rows[i], true);
+            Arrays.sort(kept, 0, found);
+            for (int j = 0; j < found; j++) {
+                int row = kept[j];
+                int cx  = column(row);
+                int cy  = line(row);
+                stamp(row, cx, cy, x0, y0, x1, y1);
+                if (inside(cx, cy))
+                    levelOfDetail.release(labelIds[row], cx, cy);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks through the points whose symbols may reach the pixels under the symbol of a row: every such point is
+     * centered within a symbol's radius of those pixels. The points of a pixel are looked through from the last, so
+     * that each label claims the pixel for its last point, as in a full rendering.
+     *
+     * @param keep whether to claim the pixels and keep the points to be stamped in {@link #kept}, or only count them
+     * @return the number of points kept, or looked through if none are kept
+     */
+    private int gather(int row, boolean keep) {
+        int px    = column(row);
+        int py    = line(row);
+        int x0    = Math.max(px - 2 * SYMBOL_RADIUS, 0);
+        int x1    = Math.min(px + 2 * SYMBOL_RADIUS + 1, width);
+        int found = 0;
+        if (x0 >= x1)
+            return 0;
+        for (int cy = Math.max(py - 2 * SYMBOL_RADIUS, 0); cy < Math.min(py + 2 * SYMBOL_RADIUS + 1, height); cy++) {
+            int from = cellStarts[cy * width + x0];
+            int to   = cellStarts[cy * width + x1];
+            if (!keep) {
+                found += to - from;
+                continue;
+            }
+            for (int j = to - 1; j >= from; j--) {
+                int candidate = cellRows[j];
+                int cx        = column(candidate);
+                int ccy       = line(candidate);
+                if (!inside(cx, ccy) || levelOfDetail.claimCell(labelIds[candidate], cx, ccy)) {
+                    if (found == kept.length)
+                        kept = Arrays.copyOf(kept, 2 * found);
+                    kept[found++] = candidate;
+                }
+            }
+        }
+        return found;
+    }
+
+    /** Sorts the rows by the pixel they are centered on, or the nearest pixel, leaving out those drawn nowhere. */
+    private void index() {
+        int   cells  = width * height;
+        int[] cellOf = new int[size];
+        cellStarts = new int[cells + 1];
+        for (int row = 0; row < size; row++) {
+            int px = column(row);
+            int py = line(row);
+            if (!reaches(px, py)) {
+                cellOf[row] = -1;
+                continue;
+            }
+            cellOf[row] = Math.min(Math.max(py, 0), height - 1) * width + Math.min(Math.max(px, 0), width - 1);
+            cellStarts[cellOf[row] + 1]++;
+        }
+        for (int i = 0; i < cells; i++)
+            cellStarts[i + 1] += cellStarts[i];
+        cellRows = new int[cellStarts[cells]];
+        int[] next = Arrays.copyOf(cellStarts, cells);
+        for (int row = 0; row < size; row++) {
+            if (cellOf[row] >= 0)
+                cellRows[next[cellOf[row]]++] = row;
+        }
+    }
+
+    /** Stamps the symbol of a point, centered on the given pixel, into the pixels in <code>[x0, x1) x [y0, y1)</code>. */
+    private void stamp(int row, int px, int py, int x0, int y0, int x1, int y1) {
+        int color = colors[labelIds[row]];
+        for (int i = 0; i < SYMBOL_DX.length; i++) {
+            int x = px + SYMBOL_DX[i];
+            int y = py + SYMBOL_DY[i];
+            if (x >= x0 && x < x1 && y >= y0 && y < y1)
+                pixels[y * width + x] = SYMBOL_INNER[i] ? WHITE : color;
+        }
+    }
+
+    private int column(int row) {
+        return (int) Math.max(Math.min(Math.round((xs[row] - xLower) * xScale), Integer.MAX_VALUE / 2),
+                              Integer.MIN_VALUE / 2);
+    }
+
+    private int line(int row) {
+        return (int) Math.max(Math.min(Math.round((yUpper - ys[row]) * yScale), Integer.MAX_VALUE / 2),
+                              Integer.MIN_VALUE / 2);
+    }
+
+    private boolean inside(int px, int py) {
+        return px >= 0 && px < width && py >= 0 && py < height;
+    }
+
+    /** @return whether a symbol centered on the given pixel covers any pixel of the buffer */
+    private boolean reaches(int px, int py) {
+        return px >= -SYMBOL_RADIUS && px < width + SYMBOL_RADIUS && py >= -SYMBOL_RADIUS && py < height + SYMBOL_RADIUS;
+    }
+}
@@ -0,0 +1,111 @@
+package ui;
+
+import javafx.geometry.Point2D;
+import javafx.scene.Cursor;
+import javafx.scene.Node;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
+import spatial.KdTree;
+
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * A single tooltip shared by all the points of a plot, showing the name of the point under the mouse. Instead of a
+ * node, a tooltip and a pair of mouse handlers per point, the plot passes its mouse moves here, and the point under the
+ * mouse is looked up in a {@link KdTree} over the points. The tree is built the first time the mouse moves over a set
+ * of points, so redrawing the plot costs nothing here, and a lookup allocates nothing per point. The tree is rebuilt
+ * in its own storage when the points change, rather than allocated again.
+ */
+public final class PointTooltip {
+
+    /** How far, in pixels, from the center of a point the mouse is still over it: the radius of its symbol. */
+    private static final double HOVER_RADIUS = PointRaster.SYMBOL_RADIUS;
+    private static final double OFFSET       = 12;
+
+    private final Tooltip tooltip = new Tooltip();
+
+    private double[]            xs    = new double[0];
+    private double[]            ys    = new double[0];
+    private int                 size;
+    private IntFunction<String> names;
+    private KdTree              tree;
+    private boolean             treeValid;         // whether the tree holds the points, as of the first mouse move
+    private int                 shown = -1;        // the row whose name is shown, if any
+
+    /**
+     * Sets the points to look the mouse up in. The columns are read, not copied, until the tree is built, so the
+     * locations must not change while they are set.
+     *
+     * @param names the name of each row, or <code>null</code> to show no tooltip
+     */
+    public void setPoints(double[] xs, double[] ys, int size, IntFunction<String> names) {
+        this.xs = xs;
+        this.ys = ys;
+        this.size = size;
+        this.names = names;
+        if (size == 0)
+            tree = null;                            // nothing to keep the storage for
+        treeValid = false;
+        tooltip.hide();
+        shown = -1;
+    }
+
+    /** Sets the points to look the mouse up in from a map of instance names to locations. */
+    public void setPoints(Map<String, Point2D> points) {
+        double[] x    = new double[points.size()];
+        double[] y    = new double[points.size()];
+        String[] name = new String[points.size()];
+        int      row  = 0;
+        for (Map.Entry<String, Point2D> entry : points.entrySet()) {
+            x[row] = entry.getValue().getX();
+            y[row] = entry.getValue().getY();
+            name[row++] = entry.getKey();
+        }
+        setPoints(x, y, row, i -> name[i]);
+    }
+
+    /** Removes the points. */
+    public void clear() {
+        setPoints(new double[0], new double[0], 0, null);
+    }
+
+    /**
+     * Shows the name of the point under the mouse, or hides the tooltip if there is none.
+     *
+     * @param owner  the node the mouse moved over
+     * @param x      the x value under the mouse
+     * @param y      the y value under the mouse
+     * @param xScale the number of pixels per unit of x
+     * @param yScale the number of pixels per unit of y
+     */
+    public void mouseMoved(Node owner, MouseEvent event, double x, double y, double xScale, double yScale) {
+        if (names == null || size == 0) {
+            hide(owner);
+            return;
+        }
+        if (tree == null)
+            tree = new KdTree(xs, ys, size);
+        else if (!treeValid)
+            tree.rebuild(xs, ys, size);
+        treeValid = true;
+        int row = tree.nearest(x, y, xScale, yScale, HOVER_RADIUS);
+        if (row < 0) {
+            hide(owner);
+        } else if (row != shown) {
+            shown = row;
+            tooltip.setText(names.apply(row));
+            owner.setCursor(Cursor.CROSSHAIR);
+            tooltip.show(owner, event.getScreenX() + OFFSET, event.getScreenY() + OFFSET);
+        }
+    }
+
+    /** Hides the tooltip, as when the mouse leaves the plot. */
+    public void hide(Node owner) {
+        if (shown < 0)
+            return;
+        shown = -1;
+        owner.setCursor(Cursor.DEFAULT);
+        tooltip.hide();
+    }
+}
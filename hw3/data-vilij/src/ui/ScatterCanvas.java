@@ -0,0 +1,456 @@
+package ui;
+
+import data.DataSet;
+import data.DatasetStats;
+import javafx.geometry.Point2D;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A scatter plot of labeled points that draws the points into a pixel buffer instead of adding a node per point to
+ * the scene graph, so that it stays responsive with hundreds of thousands of points. It keeps the look of the
+ * {@link javafx.scene.chart.LineChart} it stands in for: a title, number axes that include zero and are ranged to the
+ * data, one series per label in the default chart colors with the default ring-shaped symbols, a legend, and an
+ * optional line drawn under the points.
+ * <p>
+ * Points are given as columns: an x, a y and a label id per point, and the list of labels the ids refer to. As on the
+ * chart, only the labels some point has are series, colored and listed in the legend in the order of their first
+ * points. The label column is copied, and is the snapshot that {@link #updatePoints(DataSet)} compares a dataset's
+ * labels against, so that an algorithm that relabels a few points per iteration only has those few points repainted.
+ * Points given with their names show the name of the point under the mouse in a shared {@link PointTooltip}.
+ */
+public class ScatterCanvas extends Region {
+
+    /** The default series colors of the chart style, used in series order. */
+    private static final int[] SERIES_COLORS = {0xf3622d, 0xfba71b, 0x57b757, 0x41a9c9, 0x4258c9, 0x9a42c8, 0xc84164,
+                                                0x888888};
+
+    private static final int    SYMBOL_RADIUS = PointRaster.SYMBOL_RADIUS;
+    private static final int    SYMBOL_INSET  = PointRaster.SYMBOL_INSET;
+    private static final double LINE_WIDTH    = 3;
+    private static final double PADDING       = 10;
+    private static final double TICK_LENGTH   = 8;
+    private static final double TICK_GAP      = 3;
+    private static final int    TARGET_TICKS  = 10;
+
+    private static final Color BACKGROUND = Color.web("#f4f4f4");
+    private static final Color GRID       = Color.web("#e0e0e0");
+    private static final Color AXIS       = Color.web("#333333");
+    private static final Font  TITLE_FONT = Font.font(Font.getDefault().getFamily(), FontWeight.NORMAL, 16.8);
+    private static final Font  LABEL_FONT = Font.font(Font.getDefault().getFamily(), 10);
+    private static final Font  ENTRY_FONT = Font.getDefault();
+
+    private final Canvas canvas = new Canvas();
+    private final String title;
+
+    private double[]     xs       = new double[0];
+    private double[]     ys       = new double[0];
+    private int[]        givenIds = new int[0];     // the label ids the points were given with
+    private int[]        labelIds = new int[0];     // the series the points are drawn in
+    private int          size;
+    private double[]     bounds   = new double[4];  // the least and greatest x, then y, of the points
+    private List<String> given    = Collections.emptyList();     // the labels the given ids refer to
+    private int[]        seriesOf = new int[0];     // the series of each given id, or -1 if no point has it
+    private int[]        counts   = new int[0];     // the number of points in each series
+    private List<String> labels   = Collections.emptyList();     // the label of each series
+    private String       lineName;
+    private double[]     line;                  // x1, y1, x2, y2, or null
+
+    private WritableImage     image;
+    private final PointRaster raster = new PointRaster();
+    private boolean           rasterValid;      // whether the raster holds the current points at the current ranges
+    private double[]          xRange;           // the axis ranges, or null until they are next computed
+    private double[]          yRange;
+    private double[]          plot;             // left, top, x at left, y at top, x scale, y scale, once drawn
+
+    private final PointTooltip tooltip = new PointTooltip();
+
+    public ScatterCanvas(String title) {
+        this.title = title;
+        getChildren().add(canvas);
+        canvas.setOnMouseMoved(event -> {
+            if (plot != null)
+                tooltip.mouseMoved(canvas, event, plot[2] + (event.getX() - plot[0] - 0.5) / plot[4],
+                                   plot[3] - (event.getY() - plot[1] - 0.5) / plot[5], plot[4], plot[5]);
+        });
+        canvas.setOnMouseExited(event -> tooltip.hide(canvas));
+    }
+
+    /**
+     * Shows the instances of a dataset. The location columns are read, not copied, so the locations must not change
+     * while they are shown.
+     *
+     * @param stats the statistics of the dataset, which bound the axes without a pass over the locations, or
+     *              <code>null</code> to find the bounds from the locations
+     */
+    public void setPoints(DataSet dataSet, DatasetStats stats) {
+        setPoints(dataSet, stats == null ? null
+                                         : new double[]{stats.getXMin(), stats.getXMax(), stats.getYMin(), stats.getYMax()});
+    }
+
+    private void setPoints(DataSet dataSet, double[] bounds) {
+        double[] xs = dataSet.getXs();
+        double[] ys = dataSet.getYs();
+        int      n  = dataSet.size();
+        show(xs, ys, dataSet.getLabelIds(), n, dataSet.getLabelDictionary(), bounds != null ? bounds : bounds(xs, ys, n));
+        tooltip.setPoints(xs, ys, n, dataSet::getName);
+    }
+
+    /**
+     * Shows the instances of a dataset whose labels may have changed since it was last shown. If the dataset has the
+     * same location columns, size and labels as the points shown, and every series keeps at least one point and gains
+     * no new label, only the points whose label changed are repainted; otherwise the dataset is shown as by
+     * {@link #setPoints(DataSet, DatasetStats)}.
+     */
+    public void updatePoints(DataSet dataSet) {
+        int[] ids = dataSet.getLabelIds();
+        if (dataSet.getXs() != xs || dataSet.getYs() != ys || dataSet.size() != size
+            || !given.equals(dataSet.getLabelDictionary())) {
+            setPoints(dataSet, dataSet.getXs() == xs && dataSet.getYs() == ys && dataSet.size() == size ? bounds : null);
+            return;
+        }
+        int[] changed = new int[16];
+        int   count   = 0;
+        for (int row = 0; row < size; row++) {
+            if (ids[row] == givenIds[row])
+                continue;
+            int series = ids[row] < seriesOf.length ? seriesOf[ids[row]] : -1;
+            if (series < 0 || --counts[labelIds[row]] == 0) {   // a series comes or goes, and the others renumber
+                setPoints(dataSet, bounds);
+                return;
+            }
+            counts[series]++;
+            givenIds[row] = ids[row];
+            labelIds[row] = series;
+            if (count == changed.length)
+                changed = Arrays.copyOf(changed, 2 * count);
+            changed[count++] = row;
+        }
+        if (count == 0)
+            return;
+        rasterValid &= raster.relabel(changed, count);
+        draw();
+    }
+
+    /** Shows the instances of a pair of maps from instance names to labels and to locations. */
+    public void setPoints(Map<String, String> dataLabels, Map<String, Point2D> dataPoints) {
+        Map<String, Integer> ids    = new HashMap<>();
+        List<String>         series = new ArrayList<>();
+        double[]             x      = new double[dataLabels.size()];
+        double[]             y      = new double[dataLabels.size()];
+        int[]                id     = new int[dataLabels.size()];
+        String[]             names  = new String[dataLabels.size()];
+        int                  row    = 0;
+        for (Map.Entry<String, String> entry : dataLabels.entrySet()) {
+            Integer labelId = ids.get(entry.getValue());
+            if (labelId == null) {
+                labelId = series.size();
+                ids.put(entry.getValue(), labelId);
+                series.add(entry.getValue());
+            }
+            Point2D point = dataPoints.get(entry.getKey());
+            x[row] = point.getX();
+            y[row] = point.getY();
+            names[row] = entry.getKey();
+            id[row++] = labelId;
+        }
+        setPoints(x, y, id, row, series);
+        tooltip.setPoints(x, y, row, i -> names[i]);
+    }
+
+    /**
+     * Shows points given as columns, without names.
+     *
+     * @param labelIds the index in <code>labels</code> of the label of each point
+     * @param size     the number of points, which may be less than the length of the columns
+     */
+    public void setPoints(double[] xs, double[] ys, int[] labelIds, int size, List<String> labels) {
+        show(xs, ys, labelIds, size, labels, bounds(xs, ys, size));
+    }
+
+    private void show(double[] xs, double[] ys, int[] labelIds, int size, List<String> labels, double[] bounds) {
+        this.xs = xs;
+        this.ys = ys;
+        this.givenIds = Arrays.copyOf(labelIds, size);
+        this.size = size;
+        this.bounds = bounds;
+        given = new ArrayList<>(labels);
+        seriesOf = PointRaster.seriesOf(labelIds, size, labels.size());
+        this.labelIds = new int[size];
+        counts = new int[labels.size()];
+        for (int row = 0; row < size; row++)
+            counts[this.labelIds[row] = seriesOf[labelIds[row]]]++;
+        String[] series = new String[labels.size()];
+        int      shown  = 0;
+        for (int id = 0; id < labels.size(); id++) {
+            if (seriesOf[id] >= 0) {
+                series[seriesOf[id]] = labels.get(id);
+                shown++;
+            }
+        }
+        this.labels = Arrays.asList(Arrays.copyOf(series, shown));
+        tooltip.clear();
+        invalidate();
+        draw();
+    }
+
+    /** @return the least and greatest of the first <code>size</code> x values, then of the y values */
+    private static double[] bounds(double[] xs, double[] ys, int size) {
+        double[] bounds = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                           Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int row = 0; row < size; row++) {
+            bounds[0] = Math.min(bounds[0], xs[row]);
+            bounds[1] = Math.max(bounds[1], xs[row]);
+            bounds[2] = Math.min(bounds[2], ys[row]);
+            bounds[3] = Math.max(bounds[3], ys[row]);
+        }
+        return bounds;
+    }
+
+    /** Draws a line, named in the legend, under the points. */
+    public void setLine(String name, double x1, double y1, double x2, double y2) {
+        lineName = name;
+        line = new double[]{x1, y1, x2, y2};
+        invalidate();
+        draw();
+    }
+
+    /** Removes the points and the line. */
+    public void clear() {
+        lineName = null;
+        line = null;
+        setPoints(new double[0], new double[0], new int[0], 0, Collections.<String>emptyList());
+    }
+
+    /** Marks the axis ranges and the raster as out of date, after the points or the line changed. */
+    private void invalidate() {
+        rasterValid = false;
+        xRange = null;
+        yRange = null;
+    }
+
+    @Override
+    protected void layoutChildren() {
+        if (canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight()) {
+            canvas.setWidth(getWidth());
+            canvas.setHeight(getHeight());
+            rasterValid = false;
+            draw();
+        }
+    }
+
+    private void draw() {
+        GraphicsContext gc     = canvas.getGraphicsContext2D();
+        double          width  = canvas.getWidth();
+        double          height = canvas.getHeight();
+        gc.clearRect(0, 0, width, height);
+        plot = null;
+        if (width <= 0 || height <= 0)
+            return;
+
+        if (xRange == null) {
+            xRange = range(true);
+            yRange = range(false);
+        }
+        double   xUnit  = tickUnit(xRange);
+        double   yUnit  = tickUnit(yRange);
+
+        gc.setFill(AXIS);
+        gc.setFont(TITLE_FONT);
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.TOP);
+        gc.fillText(title, width / 2, PADDING);
+        double top = PADDING + textHeight(TITLE_FONT) + PADDING;
+
+        List<String> entries = new ArrayList<>(labels);
+        if (line != null)
+            entries.add(lineName);
+        double legendHeight = drawLegend(gc, entries, width, height);
+
+        double yLabelWidth = 0;
+        for (double tick = yRange[0]; tick <= yRange[1] + yUnit / 2; tick += yUnit)
+            yLabelWidth = Math.max(yLabelWidth, textWidth(format(tick, yUnit), LABEL_FONT));
+        double left   = PADDING + yLabelWidth + TICK_GAP + TICK_LENGTH;
+        double bottom = height - legendHeight - PADDING - textHeight(LABEL_FONT) - TICK_GAP - TICK_LENGTH;
+        double right  = width - PADDING;
+        if (right - left < 1 || bottom - top < 1)
+            return;
+
+        gc.setFill(BACKGROUND);
+        gc.fillRect(left, top, right - left, bottom - top);
+        gc.setStroke(GRID);
+        gc.setLineWidth(1);
+        gc.setFont(LABEL_FONT);
+        gc.setFill(AXIS);
+        for (double tick = xRange[0]; tick <= xRange[1] + xUnit / 2; tick += xUnit) {
+            double x = Math.round(left + (tick - xRange[0]) / (xRange[1] - xRange[0]) * (right - left)) + 0.5;
+            gc.setStroke(GRID);
+            gc.strokeLine(x, top, x, bottom);
+            gc.setStroke(AXIS);
+            gc.strokeLine(x, bottom, x, bottom + TICK_LENGTH);
+            gc.setTextAlign(TextAlignment.CENTER);
+            gc.setTextBaseline(VPos.TOP);
+            gc.fillText(format(tick, xUnit), x, bottom + TICK_LENGTH + TICK_GAP);
+        }
+        for (double tick = yRange[0]; tick <= yRange[1] + yUnit / 2; tick += yUnit) {
+            double y = Math.round(bottom - (tick - yRange[0]) / (yRange[1] - yRange[0]) * (bottom - top)) + 0.5;
+            gc.setStroke(GRID);
+            gc.strokeLine(left, y, right, y);
+            gc.setStroke(AXIS);
+            gc.strokeLine(left - TICK_LENGTH, y, left, y);
+            gc.setTextAlign(TextAlignment.RIGHT);
+            gc.setTextBaseline(VPos.CENTER);
+            gc.fillText(format(tick, yUnit), left - TICK_LENGTH - TICK_GAP, y);
+        }
+        gc.setStroke(AXIS);
+        gc.strokeLine(left, bottom + 0.5, right, bottom + 0.5);
+        gc.strokeLine(left - 0.5, top, left - 0.5, bottom);
+
+        double xScale = (right - left) / (xRange[1] - xRange[0]);
+        double yScale = (bottom - top) / (yRange[1] - yRange[0]);
+        if (line != null) {
+            gc.save();
+            gc.beginPath();
+            gc.rect(left, top, right - left, bottom - top);
+            gc.clip();
+            gc.setStroke(color(labels.size()));
+            gc.setLineWidth(LINE_WIDTH);
+            gc.strokeLine(left + (line[0] - xRange[0]) * xScale, bottom - (line[1] - yRange[0]) * yScale,
+                          left + (line[2] - xRange[0]) * xScale, bottom - (line[3] - yRange[0]) * yScale);
+            gc.restore();
+        }
+        drawPoints(gc, left, top, (int) (right - left), (int) (bottom - top), xRange[0], yRange[1], xScale, yScale);
+    }
+
+    /**
+     * Renders the points into the raster, unless it is still up to date, and draws it over the plot area in one image.
+     */
+    private void drawPoints(GraphicsContext gc, double left, double top, int width, int height, double xLower,
+                            double yUpper, double xScale, double yScale) {
+        if (size == 0 || width <= 0 || height <= 0)
+            return;
+        plot = new double[]{left, top, xLower, yUpper, xScale, yScale};
+        if (!rasterValid || raster.getWidth() != width || raster.getHeight() != height) {
+            int[] colors = new int[Math.max(labels.size(), 1)];
+            for (int i = 0; i < colors.length; i++)
+                colors[i] = 0xff000000 | SERIES_COLORS[i % SERIES_COLORS.length];
+            raster.render(xs, ys, labelIds, size, colors, width, height, xLower, yUpper, xScale, yScale);
+            rasterValid = true;
+        }
+        if (image == null || image.getWidth() != width || image.getHeight() != height)
+            image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), raster.getPixels(), 0,
+                                         width);
+        gc.drawImage(image, left, top);
+    }
+
+    /** Draws the legend, centered along the bottom and wrapped onto as many rows as it needs. */
+    private double drawLegend(GraphicsContext gc, List<String> entries, double width, double height) {
+        if (entries.isEmpty())
+            return 0;
+        double       symbol   = 2 * SYMBOL_RADIUS;
+        double       gap      = 6;
+        double       rowSize  = Math.max(symbol, textHeight(ENTRY_FONT)) + gap;
+        double       maxWidth = width - 2 * PADDING;
+        List<double[]> rows   = new ArrayList<>();            // the first entry and the width of each row
+        double       rowWidth = 0;
+        int          first    = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            double entryWidth = symbol + gap + textWidth(String.valueOf(entries.get(i)), ENTRY_FONT) + 2 * gap;
+            if (i > first && rowWidth + entryWidth > maxWidth) {
+                rows.add(new double[]{first, rowWidth});
+                first = i;
+                rowWidth = 0;
+            }
+            rowWidth += entryWidth;
+        }
+        rows.add(new double[]{first, rowWidth});
+
+        double legendHeight = rows.size() * rowSize + gap;
+        gc.setFont(ENTRY_FONT);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.setTextBaseline(VPos.CENTER);
+        for (int r = 0; r < rows.size(); r++) {
+            int    end = r + 1 < rows.size() ? (int) rows.get(r + 1)[0] : entries.size();
+            double x   = (width - rows.get(r)[1]) / 2;
+            double y   = height - legendHeight + r * rowSize + rowSize / 2;
+            for (int i = (int) rows.get(r)[0]; i < end; i++) {
+                gc.setFill(color(i));
+                gc.fillOval(x, y - SYMBOL_RADIUS, symbol, symbol);
+                gc.setFill(Color.WHITE);
+                gc.fillOval(x + SYMBOL_INSET, y - SYMBOL_RADIUS + SYMBOL_INSET, symbol - 2 * SYMBOL_INSET,
+                            symbol - 2 * SYMBOL_INSET);
+                gc.setFill(AXIS);
+                String text = String.valueOf(entries.get(i));
+                gc.fillText(text, x + symbol + gap, y);
+                x += symbol + gap + textWidth(text, ENTRY_FONT) + 2 * gap;
+            }
+        }
+        return legendHeight;
+    }
+
+    /** @return the lower and upper bound of an axis, which, as on a number axis, include zero and every value */
+    private double[] range(boolean horizontal) {
+        int    bound = horizontal ? 0 : 2;
+        double lower = size > 0 ? Math.min(0, bounds[bound]) : 0;
+        double upper = size > 0 ? Math.max(0, bounds[bound + 1]) : 0;
+        if (line != null) {
+            int offset = horizontal ? 0 : 1;
+            lower = Math.min(lower, Math.min(line[offset], line[offset + 2]));
+            upper = Math.max(upper, Math.max(line[offset], line[offset + 2]));
+        }
+        if (lower == upper)
+            upper = lower + 1;
+        double unit = niceUnit((upper - lower) / TARGET_TICKS);
+        return new double[]{Math.floor(lower / unit) * unit, Math.ceil(upper / unit) * unit};
+    }
+
+    private static double tickUnit(double[] range) {
+        return niceUnit((range[1] - range[0]) / TARGET_TICKS);
+    }
+
+    /** @return the unit of 1, 2 or 5 times a power of ten closest above the given step */
+    private static double niceUnit(double step) {
+        double power    = Math.pow(10, Math.floor(Math.log10(step)));
+        double fraction = step / power;
+        return (fraction <= 1 ? 1 : fraction <= 2 ? 2 : fraction <= 5 ? 5 : 10) * power;
+    }
+
+    private static String format(double value, double unit) {
+        int decimals = Math.max(0, (int) -Math.floor(Math.log10(unit)));
+        return String.format("%." + decimals + "f", Math.abs(value) < unit / 2 ? 0.0 : value);
+    }
+
+    private static Color color(int series) {
+        int rgb = SERIES_COLORS[series % SERIES_COLORS.length];
+        return Color.rgb(rgb >> 16, (rgb >> 8) & 0xff, rgb & 0xff);
+    }
+
+    private static double textWidth(String text, Font font) {
+        Text node = new Text(text);
+        node.setFont(font);
+        return node.getLayoutBounds().getWidth();
+    }
+
+    private static double textHeight(Font font) {
+        Text node = new Text("Ag");
+        node.setFont(font);
+        return node.getLayoutBounds().getHeight();
+    }
+}
@@ -0,0 +1,47 @@
+package ui;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Passes the updates of a running algorithm to the UI at the rate the UI draws frames. An algorithm publishes an
+ * update, a snapshot of its state together with the code that shows it, from its own thread and goes on without
+ * waiting; once per frame, the scheduler runs the latest update published since the last frame on the JavaFX
+ * application thread. An update that is replaced before a frame comes is dropped, so an algorithm can run at full
+ * speed without flooding the event queue, and the UI only ever shows its latest state.
+ * <p>
+ * The timer only runs while there are updates to show: the first update published while it is stopped starts it, and
+ * a frame with no update stops it.
+ */
+public final class UpdateScheduler extends AnimationTimer {
+
+    private final AtomicReference<Runnable> latest  = new AtomicReference<>();
+    private final AtomicBoolean             running = new AtomicBoolean();
+
+    /** Publishes an update from any thread, replacing the update that has not been shown yet, if any. */
+    public void publish(Runnable update) {
+        latest.set(update);
+        if (running.compareAndSet(false, true))
+            Platform.runLater(this::start);
+    }
+
+    /** Drops the update that has not been shown yet, if any. */
+    public void discard() {
+        latest.set(null);
+    }
+
+    @Override
+    public void handle(long now) {
+        Runnable update = latest.getAndSet(null);
+        if (update != null) {
+            update.run();
+            return;
+        }
+        running.set(false);
+        if (latest.get() == null || !running.compareAndSet(false, true))
+            stop();                     // if an update was just published, its publisher starts the timer again
+    }
+}
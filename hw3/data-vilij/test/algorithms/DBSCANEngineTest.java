@@ -0,0 +1,42 @@
+package algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class DBSCANEngineTest {
+
+    // Two concentric rings, which k-means would cut in halves, are two clusters, and far-off stray points are noise
+    @Test
+    public void ringsTest() {
+        Random   random = new Random(19);
+        int      rings  = 4000;
+        int      size   = rings + 10;
+        double[] xs     = new double[size];
+        double[] ys     = new double[size];
+        for (int row = 0; row < rings; row++) {
+            double radius = (row % 2 == 0 ? 1 : 3) + random.nextGaussian() * 0.05;
+            double angle  = random.nextDouble() * 2 * Math.PI;
+            xs[row] = radius * Math.cos(angle);
+            ys[row] = radius * Math.sin(angle);
+        }
+        for (int row = rings; row < size; row++) {
+            xs[row] = 10 + 10 * (row - rings);
+            ys[row] = -10;
+        }
+        DBSCANEngine engine = new DBSCANEngine(xs, ys, size, 1, 1, 0.3, 5);
+        int iterations = 0;
+        while (engine.nextCluster())
+            iterations++;
+        Assert.assertEquals(2, iterations);
+        Assert.assertEquals(2, engine.getClusterCount());
+
+        int[] clusters = engine.getClusters();
+        for (int row = 0; row < rings; row++)
+            Assert.assertEquals(clusters[row % 2], clusters[row]);
+        Assert.assertNotEquals(clusters[0], clusters[1]);
+        for (int row = rings; row < size; row++)
+            Assert.assertEquals(DBSCANEngine.NOISE, clusters[row]);
+    }
+}
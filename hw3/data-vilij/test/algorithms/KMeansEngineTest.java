@@ -0,0 +1,122 @@
+package algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class KMeansEngineTest {
+
+    // Two far-apart blobs end up in two clusters, each centroid at the mean of its blob
+    @Test
+    public void blobsTest() {
+        Random   random = new Random(3);
+        int      size   = 1000;
+        double[] xs     = new double[size];
+        double[] ys     = new double[size];
+        double[] sums   = new double[4];
+        for (int row = 0; row < size; row++) {
+            int blob = row % 2;
+            xs[row] = blob * 100 + random.nextGaussian();
+            ys[row] = blob * 50 + random.nextGaussian();
+            sums[2 * blob] += xs[row];
+            sums[2 * blob + 1] += ys[row];
+        }
+        KMeansEngine engine = new KMeansEngine(xs, ys, size, 2);
+        engine.setCentroid(0, xs[0], ys[0]);
+        engine.setCentroid(1, xs[2], ys[2]);            // both seeds in the first blob
+        int iterations = 0;
+        while (engine.iterate())
+            Assert.assertTrue(++iterations < 100);
+
+        int[] assignments = engine.getAssignments();
+        int   first       = assignments[0];
+        for (int row = 0; row < size; row++)
+            Assert.assertEquals(row % 2 == 0, assignments[row] == first);
+        Assert.assertEquals(sums[0] / (size / 2), engine.getCentroidX(first), 1e-9);
+        Assert.assertEquals(sums[3] / (size / 2), engine.getCentroidY(1 - first), 1e-9);
+    }
+
+    // Parallel iterations give bit-identical centroids and assignments to sequential ones
+    @Test
+    public void parallelTest() {
+        Random   random = new Random(5);
+        int      size   = 20 * KMeansEngine.BLOCK_SIZE + 123;
+        double[] xs     = new double[size];
+        double[] ys     = new double[size];
+        for (int row = 0; row < size; row++) {
+            xs[row] = random.nextGaussian() * 1e3 + (row % 3) * 500;
+            ys[row] = random.nextGaussian() * 1e-3;
+        }
+        KMeansEngine sequential = new KMeansEngine(xs, ys, size, 4, false);
+        KMeansEngine parallel   = new KMeansEngine(xs, ys, size, 4, true);
+        for (int c = 0; c < 4; c++) {
+            sequential.setCentroid(c, xs[c], ys[c]);
+            parallel.setCentroid(c, xs[c], ys[c]);
+        }
+        for (int iteration = 0; iteration < 10; iteration++) {
+            Assert.assertEquals(sequential.iterate(), parallel.iterate());
+            Assert.assertArrayEquals(sequential.getAssignments(), parallel.getAssignments());
+            for (int c = 0; c < 4; c++) {
+                Assert.assertEquals(Double.doubleToLongBits(sequential.getCentroidX(c)),
+                                    Double.doubleToLongBits(parallel.getCentroidX(c)));
+                Assert.assertEquals(Double.doubleToLongBits(sequential.getCentroidY(c)),
+                                    Double.doubleToLongBits(parallel.getCentroidY(c)));
+            }
+        }
+    }
+
+    // k-means++ puts one seed in each of four far-apart blobs, and the same seed gives the same centroids
+    @Test
+    public void seedTest() {
+        Random   random = new Random(9);
+        int      size   = 4000;
+        double[] xs     = new double[size];
+        double[] ys     = new double[size];
+        for (int row = 0; row < size; row++) {
+            xs[row] = (row % 4) * 1000 + random.nextGaussian();
+            ys[row] = random.nextGaussian();
+        }
+        for (long seed = 0; seed < 10; seed++) {
+            KMeansEngine engine = new KMeansEngine(xs, ys, size, 4);
+            engine.seed(new Random(seed));
+            boolean[] blobs = new boolean[4];
+            for (int c = 0; c < 4; c++)
+                blobs[(int) Math.round(engine.getCentroidX(c) / 1000)] = true;
+            Assert.assertArrayEquals(new boolean[]{true, true, true, true}, blobs);
+
+            KMeansEngine again = new KMeansEngine(xs, ys, size, 4);
+            again.seed(new Random(seed));
+            Assert.assertEquals(engine.getCentroidX(3), again.getCentroidX(3), 0);
+            engine.iterate();
+            Assert.assertFalse(engine.iterate());
+            Assert.assertEquals(size * 2, engine.getInertia(), size * 0.2);      // the variance of the blobs, 2 per point
+        }
+    }
+
+    // Skipping distances by bounds gives the clusters of the plain algorithm, iteration by iteration
+    @Test
+    public void acceleratedTest() {
+        Random   random = new Random(13);
+        int      size   = 30000;
+        double[] xs     = new double[size];
+        double[] ys     = new double[size];
+        for (int row = 0; row < size; row++) {
+            xs[row] = random.nextGaussian() * 100 + (row % 7) * 80;
+            ys[row] = random.nextGaussian() * 100;
+        }
+        KMeansEngine plain       = new KMeansEngine(xs, ys, size, 40);
+        KMeansEngine accelerated = new KMeansEngine(xs, ys, size, 40, true);
+        accelerated.setAccelerated(true);
+        plain.seed(new Random(1));
+        accelerated.seed(new Random(1));
+        boolean moved = true;
+        for (int iteration = 0; iteration < 200 && moved; iteration++) {
+            moved = plain.iterate();
+            Assert.assertEquals(moved, accelerated.iterate());
+            Assert.assertArrayEquals(plain.getAssignments(), accelerated.getAssignments());
+        }
+        Assert.assertFalse(moved);
+        Assert.assertEquals(plain.getInertia(), accelerated.getInertia(), 0);
+    }
+}
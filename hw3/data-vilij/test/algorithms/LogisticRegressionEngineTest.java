@@ -0,0 +1,53 @@
+package algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class LogisticRegressionEngineTest {
+
+    // Two blobs on either side of a line, at very different scales of x and y, are split by the line learned
+    @Test
+    public void separableTest() {
+        assertSeparates(1);
+    }
+
+    // Workers updating the shared line without locks still converge to a line that splits the blobs
+    @Test
+    public void parallelTest() {
+        assertSeparates(4);
+    }
+
+    private static void assertSeparates(int threads) {
+        Random    random   = new Random(13);
+        int       size     = 100000;
+        double[]  xs       = new double[size];
+        double[]  ys       = new double[size];
+        boolean[] positive = new boolean[size];
+        for (int row = 0; row < size; row++) {
+            positive[row] = row % 2 == 0;
+            xs[row] = (positive[row] ? 3000 : -3000) + 1000 * random.nextGaussian();
+            ys[row] = (positive[row] ? 0.003 : -0.003) + 0.001 * random.nextGaussian();
+        }
+        LogisticRegressionEngine engine = new LogisticRegressionEngine(xs, ys, positive, size, new Random(1));
+        engine.setThreads(threads);
+        Assert.assertEquals(threads, engine.getThreads());
+        Assert.assertTrue(Double.isNaN(engine.getLoss()));
+        Assert.assertTrue(engine.epoch());
+        double firstLoss = engine.getLoss();
+        while (engine.epoch())
+            Assert.assertTrue(engine.getEpochs() < 1000);
+        Assert.assertTrue(engine.getLoss() < firstLoss);
+
+        double a       = engine.getXCoefficient();
+        double b       = engine.getYCoefficient();
+        double c       = engine.getConstant();
+        int    correct = 0;
+        for (int row = 0; row < size; row++) {
+            if (a * xs[row] + b * ys[row] + c > 0 == positive[row])
+                correct++;
+        }
+        Assert.assertTrue(correct > 0.99 * size);
+    }
+}
@@ -0,0 +1,36 @@
+package algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class MiniBatchKMeansEngineTest {
+
+    // Batches far smaller than the data still converge to one centroid near the middle of each of four blobs
+    @Test
+    public void blobsTest() {
+        Random   random = new Random(11);
+        int      size   = 100000;
+        double[] xs     = new double[size];
+        double[] ys     = new double[size];
+        for (int row = 0; row < size; row++) {
+            xs[row] = (row % 4) * 100 + random.nextGaussian();
+            ys[row] = (row % 2) * 50 + random.nextGaussian();
+        }
+        MiniBatchKMeansEngine engine = new MiniBatchKMeansEngine(xs, ys, size, 4, 256, new Random(1));
+        engine.seed();
+        int iterations = 0;
+        while (engine.iterate())
+            Assert.assertTrue(++iterations < 10000);
+
+        boolean[] taken = new boolean[4];
+        for (int blob = 0; blob < 4; blob++) {
+            int c = engine.nearest(blob * 100, (blob % 2) * 50);
+            Assert.assertFalse(taken[c]);
+            taken[c] = true;
+            Assert.assertEquals(blob * 100, engine.getCentroidX(c), 0.2);
+            Assert.assertEquals((blob % 2) * 50, engine.getCentroidY(c), 0.2);
+        }
+    }
+}
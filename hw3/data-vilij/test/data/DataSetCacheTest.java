@@ -0,0 +1,70 @@
+package data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class DataSetCacheTest {
+
+    // The cached dataset is shared until the contents of the file change
+    @Test
+    public void cacheTest1() throws Exception {
+        Path path = Files.createTempFile("tsd", ".tsd");
+        path.toFile().deleteOnExit();
+        TSDSnapshot.snapshotPathOf(path).toFile().deleteOnExit();
+        LineIndex.indexPathOf(path).toFile().deleteOnExit();
+        Files.write(path, "@instance1\tlabel1\t1,2\n".getBytes(StandardCharsets.UTF_8));
+
+        DataSetCache cache = new DataSetCache();
+        DataSet      first = cache.get(path);
+        Assert.assertTrue(first.isFrozen());
+        Assert.assertSame(first, cache.get(path));
+
+        // Touching the file without changing it keeps the dataset
+        Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 5000));
+        Assert.assertSame(first, cache.get(path));
+
+        Files.write(path, "@instance1\tlabel1\t1,2\n@instance2\tlabel2\t3,4\n".getBytes(StandardCharsets.UTF_8));
+        DataSet second = cache.get(path);
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(2, second.size());
+    }
+
+    // Hashing the file and writing its snapshot report progress and stop once the load is cancelled, leaving no files
+    @Test
+    public void cancelTest() throws Exception {
+        Path path = Files.createTempFile("tsd", ".tsd");
+        path.toFile().deleteOnExit();
+        TSDSnapshot.snapshotPathOf(path).toFile().deleteOnExit();
+        LineIndex.indexPathOf(path).toFile().deleteOnExit();
+        Files.write(path, "@instance1\tlabel1\t1,2\n@instance2\tlabel2\t3,4\n".getBytes(StandardCharsets.UTF_8));
+        Path snapshot = TSDSnapshot.snapshotPathOf(path);
+        Path partial  = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+
+        try {
+            new DataSetCache().get(path, new LoadProgress(() -> true));
+            Assert.fail();
+        } catch (CancellationException e) {
+            Assert.assertFalse(Files.exists(snapshot));
+        }
+
+        // Cancelled once every line is parsed, which is while the snapshot is written
+        AtomicBoolean cancelled = new AtomicBoolean();
+        LoadProgress  progress  = new LoadProgress(cancelled::get);
+        progress.setListener(() -> cancelled.set(progress.getLinesValidated() == 2));
+        try {
+            new DataSetCache().get(path, progress);
+            Assert.fail();
+        } catch (CancellationException e) {
+            Assert.assertEquals(Files.size(path), progress.getBytesHashed());
+            Assert.assertFalse(Files.exists(snapshot));
+            Assert.assertFalse(Files.exists(partial));
+        }
+    }
+}
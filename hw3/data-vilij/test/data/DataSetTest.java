@@ -0,0 +1,85 @@
+package data;
+
+import javafx.geometry.Point2D;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DataSetTest {
+
+    // Adding instances through the TSD line format should fill both the columns and the map views
+    @Test
+    public void addInstanceTest1() throws Exception {
+        DataSet dataSet = new DataSet();
+        dataSet.addInstance("@instance1\tlabel1\t1,2");
+        dataSet.addInstance("@instance2\tlabel2\t3.5,4");
+        dataSet.addInstance("@instance3\tlabel1\t5,6");
+        Assert.assertEquals(3, dataSet.size());
+        Assert.assertEquals("label2", dataSet.getLabels().get("@instance2"));
+        Assert.assertEquals(new Point2D(3.5, 4), dataSet.getLocations().get("@instance2"));
+        // Both instances with label1 should share a single label id
+        Assert.assertEquals(2, dataSet.getLabelDictionary().size());
+        Assert.assertEquals(dataSet.getLabelIds()[0], dataSet.getLabelIds()[2]);
+        Assert.assertEquals(5, dataSet.getXs()[dataSet.indexOf("@instance3")], 0);
+    }
+
+    // An instance with the same name as an existing one replaces it, the same way putting into a map would
+    @Test
+    public void addInstanceTest2() throws Exception {
+        DataSet dataSet = new DataSet();
+        dataSet.addInstance("@instance1\tlabel1\t1,2");
+        dataSet.addInstance("@instance1\tlabel2\t3,4");
+        Assert.assertEquals(1, dataSet.size());
+        Assert.assertEquals("label2", dataSet.getLabels().get("@instance1"));
+        Assert.assertEquals(new Point2D(3, 4), dataSet.getLocations().get("@instance1"));
+    }
+
+    // Writing through the label map view should update the label column in place
+    @Test
+    public void labelViewTest1() throws Exception {
+        DataSet dataSet = new DataSet();
+        for (int i = 0; i < 100; i++) {
+            dataSet.addInstance("@instance" + i + "\tlabel\t" + i + "," + i);
+        }
+        dataSet.getLabels().put("@instance42", "0");
+        Assert.assertEquals("0", dataSet.getLabel(42));
+        Assert.assertEquals(100, dataSet.getLabels().keySet().size());
+    }
+
+    // A copy of a frozen dataset can be changed without changing the frozen dataset it was copied from
+    @Test
+    public void copyTest1() throws Exception {
+        DataSet frozen = new DataSet();
+        frozen.addInstance("@instance1\tlabel1\t1,2");
+        frozen.addInstance("@instance2\tlabel2\t3,4");
+        frozen.freeze();
+        DataSet copy = frozen.copy();
+        copy.getLabels().put("@instance1", "label3");
+        copy.getLocations().put("@instance2", new Point2D(5, 6));
+        copy.addInstance("@instance3\tlabel1\t7,8");
+        Assert.assertEquals("label1", frozen.getLabels().get("@instance1"));
+        Assert.assertEquals(new Point2D(3, 4), frozen.getLocations().get("@instance2"));
+        Assert.assertEquals(-1, frozen.indexOf("@instance3"));
+        Assert.assertEquals(3, copy.size());
+        Assert.assertEquals(new Point2D(5, 6), copy.getLocations().get("@instance2"));
+        try {
+            frozen.updateLabel("@instance1", "label2");
+            Assert.fail();
+        } catch (UnsupportedOperationException expected) {
+            Assert.assertEquals("label1", frozen.getLabel(0));
+        }
+    }
+
+    // Copied labels share the locations of the dataset, and keep the labels it had when they were copied
+    @Test
+    public void copyLabelsTest() throws Exception {
+        DataSet dataSet = new DataSet();
+        dataSet.addInstance("@instance1\tlabel1\t1,2");
+        dataSet.addInstance("@instance2\tlabel2\t3,4");
+        DataSet labels = dataSet.copyLabels();
+        dataSet.updateLabel("@instance1", "label2");
+        Assert.assertSame(dataSet.getXs(), labels.getXs());
+        Assert.assertEquals("label1", labels.getLabel(0));
+        labels.getLocations().put("@instance2", new Point2D(5, 6));
+        Assert.assertEquals(new Point2D(3, 4), dataSet.getLocations().get("@instance2"));
+    }
+}
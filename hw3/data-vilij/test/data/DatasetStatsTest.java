@@ -0,0 +1,42 @@
+package data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class DatasetStatsTest {
+
+    // Labels are listed in order of first appearance, and the null label is left out of the label count
+    @Test
+    public void statsTest1() {
+        DatasetStats stats = new DatasetStats();
+        stats.add("b", 1, -2);
+        stats.add("NULL", 4, 0);
+        stats.add("a", -3, 5);
+        stats.add("b", 0, 1);
+        Assert.assertEquals(Arrays.asList("b", "NULL", "a"), stats.getLabels());
+        Assert.assertEquals(2, stats.getCount("b"));
+        Assert.assertEquals(2, stats.getLabelCount("null"));
+        Assert.assertEquals(-3, stats.getXMin(), 0);
+        Assert.assertEquals(4, stats.getXMax(), 0);
+        Assert.assertEquals(-2, stats.getYMin(), 0);
+        Assert.assertEquals(5, stats.getYMax(), 0);
+    }
+
+    // Statistics merged from row ranges in parallel are the same as those of a single pass
+    @Test
+    public void statsTest2() {
+        DataSet dataSet = new DataSet();
+        for (int i = 0; i < 300_000; i++)
+            dataSet.addInstance("@instance" + i, "label" + (i * 7 % 13), i % 1000, -i);
+        DatasetStats sequential = DatasetStats.of(dataSet);
+        DatasetStats parallel   = DatasetStats.of(dataSet, true);
+        Assert.assertEquals(sequential.getLabels(), parallel.getLabels());
+        for (String label : sequential.getLabels())
+            Assert.assertEquals(sequential.getCount(label), parallel.getCount(label));
+        Assert.assertEquals(300_000, parallel.size());
+        Assert.assertEquals(999, parallel.getXMax(), 0);
+        Assert.assertEquals(-299_999, parallel.getYMin(), 0);
+    }
+}
@@ -0,0 +1,67 @@
+package data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class LineIndexTest {
+
+    private static Path write(String text) throws IOException {
+        Path path = Files.createTempFile("lines", ".tsd");
+        path.toFile().deleteOnExit();
+        LineIndex.indexPathOf(path).toFile().deleteOnExit();
+        Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private static String[] read(Path path, LineIndex index, int first, int count) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return index.readLines(channel, first, count);
+        }
+    }
+
+    // Lines are split at newlines, with carriage returns dropped and no empty line after a final newline
+    @Test
+    public void scanTest() throws IOException {
+        Path      path  = write("@a\tl\t1,2\r\n\n@b\tl\t3,4\n@c\tl\t5,6");
+        LineIndex index = LineIndex.scan(path, new LoadProgress());
+        Assert.assertEquals(4, index.size());
+        Assert.assertArrayEquals(new String[]{"@a\tl\t1,2", "", "@b\tl\t3,4", "@c\tl\t5,6"}, read(path, index, 0, 4));
+        Assert.assertArrayEquals(new String[]{"@b\tl\t3,4"}, read(path, index, 2, 1));
+
+        Assert.assertEquals(2, LineIndex.scan(write("x\ny\n"), new LoadProgress()).size());
+        Assert.assertEquals(0, LineIndex.scan(write(""), new LoadProgress()).size());
+    }
+
+    // The index built while parsing is the index found by scanning, in both loader modes, and survives its index file
+    @Test
+    public void parseTest() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200000; i++)
+            text.append("@instance").append(i).append("\tlabel\t").append(i % 1000 == 0 ? "1234567890.25" : "1").append(",2\n");
+        Path      path    = write(text.toString());
+        LineIndex scanned = LineIndex.scan(path, new LoadProgress());
+        for (boolean parallel : new boolean[]{false, true}) {
+            LineIndex.Builder lines = new LineIndex.Builder();
+            MappedTSDLoader.load(path, parallel, new LoadProgress(), lines, null);
+            LineIndex parsed = lines.build();
+            Assert.assertEquals(scanned.size(), parsed.size());
+            for (int i = 0; i <= scanned.size(); i += 997)
+                Assert.assertEquals(scanned.start(i), parsed.start(i));
+            Assert.assertEquals(scanned.start(scanned.size()), parsed.start(parsed.size()));
+        }
+
+        FileFingerprint fingerprint = FileFingerprint.of(path);
+        scanned.write(path, fingerprint);
+        LineIndex loaded = LineIndex.loadIfFresh(path, fingerprint);
+        Assert.assertNotNull(loaded);
+        Assert.assertArrayEquals(read(path, scanned, 149990, 10), read(path, loaded, 149990, 10));
+        Assert.assertNull(LineIndex.loadIfFresh(path, new FileFingerprint(fingerprint.getSize(), 0, 0)));
+    }
+}
@@ -0,0 +1,177 @@
+package data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+public class MappedTSDLoaderTest {
+
+    // Enough lines for the parallel loader to split the file into several chunks
+    private static final int LINES = 200000;
+
+    private static StringBuilder tsdText(int lines) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            text.append("@instance").append(i).append('\t').append("label").append(i % 3).append('\t')
+                .append(i * 0.25).append(',').append(-i / 3.0).append('\n');
+        }
+        return text;
+    }
+
+    private static Path write(CharSequence text) throws IOException {
+        Path path = Files.createTempFile("tsd", ".tsd");
+        path.toFile().deleteOnExit();
+        Files.write(path, text.toString().getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private static int errorCode(Path path, boolean parallel) throws IOException {
+        try {
+            DataSet.fromTSDFile(path, parallel);
+            return 0;
+        } catch (TSDFormatException e) {
+            return e.getErrorCode();
+        }
+    }
+
+    // The sequential and parallel loaders should produce the same instances in the same order
+    @Test
+    public void parallelLoadTest1() throws IOException {
+        Path    path       = write(tsdText(LINES));
+        DataSet sequential = DataSet.fromTSDFile(path, false);
+        DataSet parallel   = DataSet.fromTSDFile(path, true);
+        Assert.assertEquals(LINES, sequential.size());
+        Assert.assertEquals(LINES, parallel.size());
+        Assert.assertEquals(sequential.getLabelDictionary(), parallel.getLabelDictionary());
+        for (int i = 0; i < LINES; i++) {
+            Assert.assertEquals(sequential.getName(i), parallel.getName(i));
+            Assert.assertEquals(sequential.getLabel(i), parallel.getLabel(i));
+            Assert.assertEquals(i * 0.25, parallel.getX(i), 0);
+            Assert.assertEquals(-i / 3.0, parallel.getY(i), 0);
+        }
+    }
+
+    // Statistics gathered while parsing, chunk by chunk in parallel, are those of a pass over the loaded columns
+    @Test
+    public void statsTest() throws IOException {
+        StringBuilder text = tsdText(LINES);
+        text.append("@late\tlabel9\t-7,1e6\n");             // a label first seen in the last chunk
+        Path path = write(text);
+        for (boolean parallel : new boolean[]{false, true}) {
+            DatasetStats gathered = new DatasetStats();
+            DataSet      dataSet  = MappedTSDLoader.load(path, parallel, new LoadProgress(), null, gathered);
+            DatasetStats expected = DatasetStats.of(dataSet);
+            Assert.assertEquals(expected.getLabels(), gathered.getLabels());
+            for (String label : expected.getLabels())
+                Assert.assertEquals(expected.getCount(label), gathered.getCount(label));
+            Assert.assertEquals(LINES + 1, gathered.size());
+            Assert.assertEquals(-7, gathered.getXMin(), 0);
+            Assert.assertEquals((LINES - 1) * 0.25, gathered.getXMax(), 0);
+            Assert.assertEquals(-(LINES - 1) / 3.0, gathered.getYMin(), 0);
+            Assert.assertEquals(1e6, gathered.getYMax(), 0);
+        }
+    }
+
+    // Numbers read to the same bits Double.parseDouble gives, whether or not they take the fast path
+    @Test
+    public void parseDoubleTest() throws IOException {
+        List<String> numbers = new ArrayList<>();
+        for (String mantissa : new String[]{"1", "-1", "+7", "0", "-0", "+0", "-0.0", "000123", "1.500000", "0.1",
+                                            "00.00100", "123456789012345", "1234567890123456", "12345678901234567",
+                                            "9007199254740993", "0.123456789012345", "1234567.89012345678",
+                                            "99999999999999999999", "4.9", "1."}) {
+            numbers.add(mantissa);
+            for (int exponent : new int[]{-23, -22, -21, -1, 1, 7, 15, 21, 22, 23, 308, -320})
+                numbers.add(mantissa + (exponent % 2 == 0 ? "e" : "E") + exponent);
+        }
+        for (String other : new String[]{".5", "-.5", "1e+22", "1e-0", "1e0005", "NaN", "-Infinity", "Infinity",
+                                         "1d", "2.5f", "0x1p3"})
+            numbers.add(other);
+        Random random = new Random(2);
+        for (int i = 0; i < 2000; i++) {
+            numbers.add(Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(60) - 30)));
+            StringBuilder digits = new StringBuilder();
+            for (int d = 1 + random.nextInt(18); d > 0; d--)
+                digits.append((char) ('0' + random.nextInt(10)));
+            digits.insert(random.nextInt(digits.length() + 1), '.');
+            numbers.add((random.nextBoolean() ? "-" : "") + digits + "e" + (random.nextInt(61) - 30));
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < numbers.size(); i++) {
+            String ending = i % 3 == 0 ? "\r\n" : i % 3 == 1 ? "\t\t\n" : "\n";
+            text.append("@n").append(i).append("\tl\t").append(numbers.get(i)).append(',')
+                .append(numbers.get(numbers.size() - 1 - i)).append(ending);
+        }
+        DataSet dataSet = DataSet.fromTSDFile(write(text), false);
+        for (int i = 0; i < numbers.size(); i++) {
+            Assert.assertEquals(numbers.get(i), Double.doubleToRawLongBits(Double.parseDouble(numbers.get(i))),
+                                Double.doubleToRawLongBits(dataSet.getX(i)));
+            Assert.assertEquals(numbers.get(i), Double.doubleToRawLongBits(Double.parseDouble(numbers.get(i))),
+                                Double.doubleToRawLongBits(dataSet.getY(numbers.size() - 1 - i)));
+        }
+
+        // Whatever Double.parseDouble rejects is not a location
+        for (String bad : new String[]{"1e", ".", "-", "e5", "1e+", "1.2.3", "--1", "1e5e5", ""})
+            Assert.assertEquals(bad, 2, errorCode(write("@a\tl\t1,2\r\n@b\tl\t" + bad + ",1\r\n"), false));
+    }
+
+    // A name repeated far away from its first use is a duplicate name error at the later line in both modes
+    @Test
+    public void parallelLoadTest2() throws IOException {
+        StringBuilder text = tsdText(LINES);
+        text.append("@instance7\tlabel0\t1,2\n");
+        Path path = write(text);
+        Assert.assertEquals(-(LINES + 1), errorCode(path, false));
+        Assert.assertEquals(-(LINES + 1), errorCode(path, true));
+    }
+
+    // A repeated name with an invalid location is still reported as a duplicate, as AppData.parseData reports it
+    @Test
+    public void parallelLoadTest3() throws IOException {
+        StringBuilder text = tsdText(LINES);
+        text.append("@instance7\tlabel0\tnot a location\n");
+        Path path = write(text);
+        Assert.assertEquals(-(LINES + 1), errorCode(path, false));
+        Assert.assertEquals(-(LINES + 1), errorCode(path, true));
+    }
+
+    // Only the first of several errors is reported, whichever chunk it is in
+    @Test
+    public void parallelLoadTest4() throws IOException {
+        StringBuilder text = tsdText(LINES);
+        text.append("no name prefix\tlabel0\t1,2\n");
+        text.insert(0, "@first\tlabel0\t1,2\n\n");
+        Path path = write(text);
+        Assert.assertEquals(2, errorCode(path, false));
+        Assert.assertEquals(2, errorCode(path, true));
+    }
+
+    // Progress counts every byte and line of the file, and a cancelled load stops
+    @Test
+    public void progressTest() throws IOException {
+        StringBuilder text = tsdText(LINES);
+        Path          path = write(text);
+        for (boolean parallel : new boolean[]{false, true}) {
+            LoadProgress progress = new LoadProgress();
+            DataSet.fromTSDFile(path, parallel, progress);
+            Assert.assertEquals(text.length(), progress.getBytesRead());
+            Assert.assertEquals(LINES, progress.getLinesParsed());
+            Assert.assertEquals(LINES, progress.getLinesValidated());
+            try {
+                DataSet.fromTSDFile(path, parallel, new LoadProgress(() -> true));
+                Assert.fail();
+            } catch (CancellationException expected) {
+                // the load stopped at its first progress report
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class TSDSnapshotTest {
+
+    private static Path tsdFile(String contents) throws Exception {
+        Path path = Files.createTempFile("tsd", ".tsd");
+        path.toFile().deleteOnExit();
+        TSDSnapshot.snapshotPathOf(path).toFile().deleteOnExit();
+        LineIndex.indexPathOf(path).toFile().deleteOnExit();
+        Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private static DataSet sample() {
+        DataSet dataSet = new DataSet();
+        dataSet.addInstance("@a", "red", 1.5, -2);
+        dataSet.addInstance("@b\u00e9", "blue", Double.MAX_VALUE, 0.1);
+        dataSet.addInstance("@c", "red", -0.0, 1e-300);
+        return dataSet;
+    }
+
+    // A snapshot reads back the columns, the label dictionary and the names it was written with
+    @Test
+    public void roundTripTest() throws Exception {
+        Path            path        = tsdFile("@a\tred\t1,2\n");
+        FileFingerprint fingerprint = FileFingerprint.of(path);
+        DataSet         written     = sample();
+        TSDSnapshot.write(written, path, fingerprint);
+
+        DataSet read = TSDSnapshot.loadIfFresh(path, fingerprint);
+        Assert.assertNotNull(read);
+        Assert.assertEquals(written.size(), read.size());
+        Assert.assertEquals(written.getLabelDictionary(), read.getLabelDictionary());
+        for (int row = 0; row < written.size(); row++) {
+            Assert.assertEquals(written.getName(row), read.getName(row));
+            Assert.assertEquals(Double.doubleToRawLongBits(written.getX(row)), Double.doubleToRawLongBits(read.getX(row)));
+            Assert.assertEquals(Double.doubleToRawLongBits(written.getY(row)), Double.doubleToRawLongBits(read.getY(row)));
+            Assert.assertEquals(written.getLabelIds()[row], read.getLabelIds()[row]);
+        }
+        Assert.assertEquals(1, read.indexOf("@b\u00e9"));
+    }
+
+    // A snapshot is ignored once any part of the fingerprint of its source differs
+    @Test
+    public void fingerprintTest() throws Exception {
+        Path            path = tsdFile("@a\tred\t1,2\n");
+        FileFingerprint f    = FileFingerprint.of(path);
+        TSDSnapshot.write(sample(), path, f);
+
+        Assert.assertNotNull(TSDSnapshot.loadIfFresh(path, f));
+        Assert.assertNull(TSDSnapshot.loadIfFresh(path, new FileFingerprint(f.getSize() + 1, f.getLastModified(), f.getChecksum())));
+        Assert.assertNull(TSDSnapshot.loadIfFresh(path, new FileFingerprint(f.getSize(), f.getLastModified() + 1, f.getChecksum())));
+        Assert.assertNull(TSDSnapshot.loadIfFresh(path, new FileFingerprint(f.getSize(), f.getLastModified(), f.getChecksum() ^ 1)));
+    }
+
+    // Truncated snapshots, and files that are not snapshots at all, are as good as none
+    @Test
+    public void corruptTest() throws Exception {
+        Path            path     = tsdFile("@a\tred\t1,2\n");
+        Path            snapshot = TSDSnapshot.snapshotPathOf(path);
+        FileFingerprint f        = FileFingerprint.of(path);
+        TSDSnapshot.write(sample(), path, f);
+        long size = Files.size(snapshot);
+
+        for (long length : new long[]{ size - 8, 48, 20, 0 }) {
+            TSDSnapshot.write(sample(), path, f);
+            try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+                channel.truncate(length);
+            }
+            Assert.assertNull("truncated to " + length, TSDSnapshot.loadIfFresh(path, f));
+        }
+
+        TSDSnapshot.write(sample(), path, f);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[0] ^= 0xFF;
+        Files.write(snapshot, bytes);
+        Assert.assertNull(TSDSnapshot.loadIfFresh(path, f));
+
+        Files.delete(snapshot);
+        Assert.assertNull(TSDSnapshot.loadIfFresh(path, f));
+    }
+
+    // A fresh cache, as in a new session, loads the file from the snapshot the first cache wrote
+    @Test
+    public void cacheTest() throws Exception {
+        Path    path  = tsdFile("@a\tred\t1,2\n@b\tblue\t3,4\n");
+        DataSet first = new DataSetCache().get(path);
+        Assert.assertEquals(2, first.size());
+        Assert.assertTrue(Files.isRegularFile(TSDSnapshot.snapshotPathOf(path)));
+
+        // Swap in a snapshot the text file could not have parsed to, under the same fingerprint
+        TSDSnapshot.write(sample(), path, FileFingerprint.of(path));
+        DataSet second = new DataSetCache().get(path);
+        Assert.assertEquals(3, second.size());
+        Assert.assertEquals("@c", second.getName(2));
+        Assert.assertTrue(second.isFrozen());
+    }
+}
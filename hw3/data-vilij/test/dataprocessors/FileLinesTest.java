@@ -0,0 +1,33 @@
+package dataprocessors;
+
+import data.LineIndex;
+import data.LoadProgress;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class FileLinesTest {
+
+    // Lines on either side of a page boundary, and pages read out of order, are the lines of the file
+    @Test
+    public void pageTest() throws IOException {
+        Path path = Files.createTempFile("lines", ".tsd");
+        try {
+            StringBuilder text  = new StringBuilder();
+            int           count = FileLines.PAGE_LINES * 20 + 7;
+            for (int i = 0; i < count; i++)
+                text.append("@instance").append(i).append("\tlabel\t").append(i).append(",0\n");
+            Files.write(path, text.toString().getBytes(StandardCharsets.UTF_8));
+            FileLines lines = new FileLines(path, LineIndex.scan(path, new LoadProgress()));
+            Assert.assertEquals(count, lines.size());
+            for (int i : new int[]{count - 1, 0, FileLines.PAGE_LINES - 1, FileLines.PAGE_LINES, count / 2, 1})
+                Assert.assertEquals("@instance" + i + "\tlabel\t" + i + ",0", lines.line(i));
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package dataprocessors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class IncrementalValidatorTest {
+
+    private static final String[] LINES = {"@a\tlabel1\t1,2", "@b\tlabel2\t3,4", "@a\tlabel2\t5,6", "@c\tnull\t1,x",
+                                           "@d\t \t1,2", "", "\t", "@e\tlabel1\t7,8\t"};
+
+    // After any sequence of edits, told or found, the incremental result is that of checking the whole text again
+    @Test
+    public void randomEditTest() {
+        Random               random    = new Random(42);
+        IncrementalValidator validator = new IncrementalValidator();
+        IncrementalValidator told      = new IncrementalValidator();
+        StringBuilder        text      = new StringBuilder();
+        for (int edit = 0; edit < 5000; edit++) {
+            int from = random.nextInt(text.length() + 1);
+            int to   = Math.min(text.length(), from + random.nextInt(30));
+            String inserted = random.nextInt(3) == 0 ? "\n" : LINES[random.nextInt(LINES.length)] + "\n";
+            String replaced = random.nextBoolean() ? inserted : "";
+            text.replace(from, to, replaced);
+            String current  = text.toString();
+            int    expected = TSDValidator.firstError(Arrays.asList(current.split("\n")));
+            Assert.assertEquals(expected, validator.update(current));
+            Assert.assertEquals(expected, told.update(current, from, to, from + replaced.length()));
+        }
+    }
+
+    // Names and labels are counted by delta as lines come and go
+    @Test
+    public void countTest() {
+        IncrementalValidator validator = new IncrementalValidator();
+        Assert.assertEquals(0, validator.update("@a\tlabel1\t1,2\n@b\tlabel2\t3,4\n"));
+        Assert.assertEquals(2, validator.getLabelCount("null"));
+        Assert.assertEquals(-3, validator.update("@a\tlabel1\t1,2\n@b\tlabel2\t3,4\n@a\tNULL\t5,6\n"));
+        Assert.assertEquals(0, validator.update("@a\tlabel1\t1,2\n@b\tlabel2\t3,4\n@c\tNULL\t5,6\n\n"));
+        Assert.assertEquals(2, validator.getLabelCount("null"));
+        Assert.assertEquals(0, validator.update("@a\tlabel1\t1,2\n@c\tNULL\t5,6\n"));
+        Assert.assertEquals(1, validator.getLabelCount("null"));
+        Assert.assertEquals(2, validator.getStats().size());
+        Assert.assertEquals(6, validator.getStats().getYMax(), 0);
+    }
+}
@@ -0,0 +1,40 @@
+package dataprocessors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class TSDValidatorTest {
+
+    // Every invalid line is reported, with duplicate names negated
+    @Test
+    public void allErrorsTest() {
+        List<String> lines = Arrays.asList("@a\tlabel1\t1,2",
+                                           "a\tlabel1\t1,2",
+                                           "@b\t \t1,2",
+                                           "@a\tlabel2\t3,4",
+                                           "@c\tlabel1\t1,x",
+                                           "@d\tlabel1\t1,2,3",
+                                           "",
+                                           "@e\tlabel2\t5,6\t");
+        Assert.assertEquals(Arrays.asList(2, 3, -4, 5, 6, 7), TSDValidator.allErrors(lines));
+        Assert.assertEquals(2, TSDValidator.firstError(lines));
+    }
+
+    // A line with a repeated name is reported as a duplicate even if its location is also invalid
+    @Test
+    public void duplicateBeforeLocationTest() {
+        Assert.assertEquals(-2, TSDValidator.firstError(Arrays.asList("@a\tlabel1\t1,2", "@a\tlabel1\tx")));
+    }
+
+    // Validating many lines takes linear time
+    @Test(timeout = 5000)
+    public void largeInputTest() {
+        TSDValidator validator = new TSDValidator();
+        for (int i = 0; i < 1_000_000; i++)
+            Assert.assertEquals(0, validator.check("@instance" + i + "\tlabel\t" + i + ",-" + i));
+        Assert.assertEquals(-1_000_001, validator.check("@instance0\tlabel\t0,0"));
+    }
+}
@@ -0,0 +1,89 @@
+package spatial;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class KdTreeTest {
+
+    private static int scan(double[] xs, double[] ys, int size, double x, double y, double xScale, double yScale,
+                            double maxDistance) {
+        int    best         = -1;
+        double bestDistance = maxDistance * maxDistance;
+        for (int row = 0; row < size; row++) {
+            double dx = (x - xs[row]) * xScale;
+            double dy = (y - ys[row]) * yScale;
+            if (dx * dx + dy * dy <= bestDistance) {
+                bestDistance = dx * dx + dy * dy;
+                best = row;
+            }
+        }
+        return best;
+    }
+
+    private static double distance(double[] xs, double[] ys, int row, double x, double y, double xScale, double yScale) {
+        return Math.hypot((x - xs[row]) * xScale, (y - ys[row]) * yScale);
+    }
+
+    // The nearest point is as near as the one a linear scan finds, with scaled axes, ties and a distance limit
+    @Test
+    public void nearestTest() {
+        Random   random = new Random(11);
+        int      size   = 5000;
+        double[] xs     = new double[size + 1];
+        double[] ys     = new double[size + 1];
+        for (int row = 0; row < size; row++) {
+            xs[row] = random.nextInt(3) == 0 ? random.nextInt(20) : random.nextGaussian() * 100;   // many duplicates
+            ys[row] = random.nextGaussian() * 10;
+        }
+        xs[size] = 1e9;                                                 // past the size, and never found
+        KdTree tree = new KdTree(xs, ys, size);
+        Assert.assertEquals(size, tree.size());
+        for (int i = 0; i < 2000; i++) {
+            double x      = random.nextGaussian() * 120;
+            double y      = random.nextGaussian() * 12;
+            double xScale = random.nextBoolean() ? 1 : 0.1;
+            double limit  = random.nextBoolean() ? Double.POSITIVE_INFINITY : 2;
+            int    found  = tree.nearest(x, y, xScale, 1, limit);
+            int    best   = scan(xs, ys, size, x, y, xScale, 1, limit);
+            Assert.assertEquals(best < 0, found < 0);
+            if (best >= 0)
+                Assert.assertEquals(distance(xs, ys, best, x, y, xScale, 1), distance(xs, ys, found, x, y, xScale, 1), 0);
+        }
+        Assert.assertEquals(-1, new KdTree(xs, ys, 0).nearest(0, 0));
+    }
+
+    // A radius query finds every point within the radius, each once, as a linear scan does
+    @Test
+    public void withinTest() {
+        Random   random = new Random(17);
+        int      size   = 5000;
+        double[] xs     = new double[size];
+        double[] ys     = new double[size];
+        for (int row = 0; row < size; row++) {
+            xs[row] = random.nextInt(3) == 0 ? random.nextInt(20) : random.nextGaussian() * 100;   // many duplicates
+            ys[row] = random.nextGaussian() * 10;
+        }
+        KdTree tree = new KdTree(xs, ys, size);
+        for (int i = 0; i < 500; i++) {
+            double    x      = random.nextGaussian() * 120;
+            double    y      = random.nextGaussian() * 12;
+            double    xScale = random.nextBoolean() ? 1 : 0.1;
+            double    radius = random.nextDouble() * 20;
+            boolean[] found  = new boolean[size];
+            int count = tree.within(x, y, xScale, 1, radius, row -> {
+                Assert.assertFalse(found[row]);
+                found[row] = true;
+            });
+            int expected = 0;
+            for (int row = 0; row < size; row++) {
+                boolean inside = distance(xs, ys, row, x, y, xScale, 1) <= radius;
+                Assert.assertEquals(inside, found[row]);
+                if (inside)
+                    expected++;
+            }
+            Assert.assertEquals(expected, count);
+        }
+    }
+}
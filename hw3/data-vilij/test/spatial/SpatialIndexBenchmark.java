@@ -0,0 +1,123 @@
+package spatial;
+
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ * Times the building and rebuilding of each index and its queries against a linear scan over the same points, for
+ * points spread evenly and points crowded into blobs. Not a test; run it by hand, with the number of points as its
+ * argument.
+ */
+public class SpatialIndexBenchmark {
+
+    private static final int QUERIES      = 20000;
+    private static final int SCAN_QUERIES = 200;       // a scan is slow enough that fewer queries time it well
+    private static final int K            = 10;
+
+    private static long sink;                           // keeps the results live, so no query is optimized away
+
+    public static void main(String... args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        for (boolean blobs : new boolean[]{false, true}) {
+            Random   random = new Random(1);
+            double[] xs     = new double[size];
+            double[] ys     = new double[size];
+            for (int row = 0; row < size; row++) {
+                if (blobs) {
+                    int blob = random.nextInt(8);
+                    xs[row] = blob * 100 + random.nextGaussian() * (blob + 1);
+                    ys[row] = (blob % 3) * 100 + random.nextGaussian() * (blob + 1);
+                } else {
+                    xs[row] = random.nextDouble() * 1000;
+                    ys[row] = random.nextDouble() * 1000;
+                }
+            }
+            System.out.printf("%n%,d points %s%n", size, blobs ? "in blobs" : "spread evenly");
+            System.out.printf("%-12s %10s %10s %12s %12s %12s %12s%n", "", "build ms", "rebuild ms", "nearest us",
+                              "k-NN us", "radius us", "rect us");
+            SpatialIndex tree = time(xs, ys, size, true);
+            SpatialIndex grid = time(xs, ys, size, false);
+            report("k-d tree", tree, xs, ys, size);
+            report("grid", grid, xs, ys, size);
+            reportScan(xs, ys, size);
+        }
+        System.out.printf("%n(checksum %d)%n", sink);
+    }
+
+    /** Times building an index, and then rebuilding it over the same points in its own storage. */
+    private static SpatialIndex time(double[] xs, double[] ys, int size, boolean tree) {
+        long         start = System.nanoTime();
+        SpatialIndex index = tree ? new KdTree(xs, ys, size) : new UniformGrid(xs, ys, size);
+        long         built = System.nanoTime();
+        index.rebuild(xs, ys, size);
+        long rebuilt = System.nanoTime();
+        System.out.printf("%-12s %10.1f %10.1f%n", tree ? "(k-d tree)" : "(grid)", (built - start) / 1e6,
+                          (rebuilt - built) / 1e6);
+        return index;
+    }
+
+    private static void report(String name, SpatialIndex index, double[] xs, double[] ys, int size) {
+        Random      random = new Random(2);
+        int[]       rows   = new int[K];
+        IntConsumer count  = row -> sink += row;
+        long        start  = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            int row = random.nextInt(size);
+            sink += index.nearest(xs[row] + 0.5, ys[row] + 0.5, 1, 1, Double.POSITIVE_INFINITY);
+        }
+        long nearest = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            int row = random.nextInt(size);
+            sink += index.nearest(xs[row] + 0.5, ys[row] + 0.5, 1, 1, rows);
+        }
+        long knn = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            int row = random.nextInt(size);
+            sink += index.within(xs[row], ys[row], 1, 1, 1, count);
+        }
+        long radius = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            int row = random.nextInt(size);
+            sink += index.inRect(xs[row] - 1, ys[row] - 1, xs[row] + 1, ys[row] + 1, count);
+        }
+        long rect = System.nanoTime();
+        System.out.printf("%-12s %10s %10s %12.2f %12.2f %12.2f %12.2f%n", name, "", "",
+                          (nearest - start) / 1e3 / QUERIES, (knn - nearest) / 1e3 / QUERIES,
+                          (radius - knn) / 1e3 / QUERIES, (rect - radius) / 1e3 / QUERIES);
+    }
+
+    /** Times the nearest-point and radius queries as scans, whose cost hardly depends on the query. */
+    private static void reportScan(double[] xs, double[] ys, int size) {
+        Random random = new Random(2);
+        long   start  = System.nanoTime();
+        for (int i = 0; i < SCAN_QUERIES; i++) {
+            int    query = random.nextInt(size);
+            double x     = xs[query] + 0.5;
+            double y     = ys[query] + 0.5;
+            int    best  = -1;
+            double min   = Double.POSITIVE_INFINITY;
+            for (int row = 0; row < size; row++) {
+                double dx = x - xs[row];
+                double dy = y - ys[row];
+                if (dx * dx + dy * dy < min) {
+                    min = dx * dx + dy * dy;
+                    best = row;
+                }
+            }
+            sink += best;
+        }
+        long nearest = System.nanoTime();
+        for (int i = 0; i < SCAN_QUERIES; i++) {
+            int query = random.nextInt(size);
+            for (int row = 0; row < size; row++) {
+                double dx = xs[query] - xs[row];
+                double dy = ys[query] - ys[row];
+                if (dx * dx + dy * dy <= 1)
+                    sink += row;
+            }
+        }
+        long radius = System.nanoTime();
+        System.out.printf("%-12s %10s %10s %12.2f %12s %12.2f %12s%n", "linear scan", "", "",
+                          (nearest - start) / 1e3 / SCAN_QUERIES, "", (radius - nearest) / 1e3 / SCAN_QUERIES, "");
+    }
+}
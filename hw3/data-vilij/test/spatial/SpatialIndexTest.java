@@ -0,0 +1,94 @@
+package spatial;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class SpatialIndexTest {
+
+    // Both indexes answer every kind of query as a linear scan does, before and after a rebuild over other points
+    @Test
+    public void kdTreeTest() {
+        Random random = new Random(23);
+        assertQueries(new KdTree(new double[0], new double[0], 0), random);
+    }
+
+    @Test
+    public void uniformGridTest() {
+        Random random = new Random(29);
+        assertQueries(new UniformGrid(new double[0], new double[0], 0), random);
+    }
+
+    private static void assertQueries(SpatialIndex index, Random random) {
+        Assert.assertEquals(-1, index.nearest(0, 0));
+        for (int size : new int[]{3000, 1, 2000}) {
+            double[] xs = new double[size];
+            double[] ys = new double[size];
+            for (int row = 0; row < size; row++) {
+                boolean crowded = random.nextInt(4) == 0;           // a quarter of the points in one spot
+                xs[row] = crowded ? random.nextInt(3) : random.nextGaussian() * 100;
+                ys[row] = crowded ? 5 : random.nextDouble() * 10;
+            }
+            index.rebuild(xs, ys, size);
+            Assert.assertEquals(size, index.size());
+            Assert.assertEquals(0, index.nearest(xs[0], ys[0], 1, 1, new int[0]));
+            for (int i = 0; i < 300; i++) {
+                double x      = random.nextGaussian() * 150;
+                double y      = random.nextGaussian() * 15;
+                double xScale = random.nextBoolean() ? 1 : 0.1;
+
+                double limit = random.nextBoolean() ? Double.POSITIVE_INFINITY : 3;
+                int    found = index.nearest(x, y, xScale, 1, limit);
+                double best  = Double.POSITIVE_INFINITY;
+                for (int row = 0; row < size; row++)
+                    best = Math.min(best, distance(xs, ys, row, x, y, xScale));
+                if (best > limit)
+                    Assert.assertEquals(-1, found);
+                else
+                    Assert.assertEquals(best, distance(xs, ys, found, x, y, xScale), 0);
+
+                int[]    nearest  = new int[random.nextInt(11)];
+                int      count    = index.nearest(x, y, xScale, 1, nearest);
+                double[] expected = new double[size];
+                for (int row = 0; row < size; row++)
+                    expected[row] = distance(xs, ys, row, x, y, xScale);
+                Arrays.sort(expected);
+                Assert.assertEquals(Math.min(nearest.length, size), count);
+                for (int k = 0; k < count; k++)
+                    Assert.assertEquals(expected[k], distance(xs, ys, nearest[k], x, y, xScale), 0);
+                Assert.assertEquals(count, Arrays.stream(nearest, 0, count).distinct().count());
+
+                double    radius = random.nextDouble() * 10;
+                boolean[] within = new boolean[size];
+                int       inside = index.within(x, y, xScale, 1, radius, row -> within[row] = true);
+                int       scan   = 0;
+                for (int row = 0; row < size; row++) {
+                    Assert.assertEquals(distance(xs, ys, row, x, y, xScale) <= radius, within[row]);
+                    if (within[row])
+                        scan++;
+                }
+                Assert.assertEquals(scan, inside);
+
+                double    x1     = x + random.nextDouble() * 50;
+                double    y1     = y + random.nextDouble() * 5;
+                boolean[] inRect = new boolean[size];
+                int       passed = index.inRect(x, y, x1, y1, row -> inRect[row] = true);
+                scan = 0;
+                for (int row = 0; row < size; row++) {
+                    Assert.assertEquals(xs[row] >= x && xs[row] <= x1 && ys[row] >= y && ys[row] <= y1, inRect[row]);
+                    if (inRect[row])
+                        scan++;
+                }
+                Assert.assertEquals(scan, passed);
+            }
+        }
+    }
+
+    private static double distance(double[] xs, double[] ys, int row, double x, double y, double xScale) {
+        double dx = (x - xs[row]) * xScale;
+        double dy = y - ys[row];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,29 @@
+package ui;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LevelOfDetailTest {
+
+    // Each label claims each cell once, so a million points in one view draw at most one point per label per cell
+    @Test
+    public void claimTest() {
+        LevelOfDetail grid = new LevelOfDetail();
+        grid.reset(0, 100, 0, 100, 101, 101);
+        Assert.assertTrue(grid.claim(0, 10, 10));
+        Assert.assertFalse(grid.claim(0, 10.2, 9.9));
+        Assert.assertTrue(grid.claim(1, 10, 10));
+        Assert.assertTrue(grid.claim(0, 11, 10));
+        Assert.assertTrue(grid.claim(0, 500, 10));         // outside the grid
+        Assert.assertTrue(grid.claim(0, 500, 10));
+
+        int drawn = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            if (grid.claim(i % 2, (i * 7919L % 1000) / 10.0, (i * 104729L % 1000) / 10.0))
+                drawn++;
+        }
+        Assert.assertTrue(drawn <= 2 * 101 * 101);
+        grid.reset(0, 100, 0, 100, 101, 101);
+        Assert.assertTrue(grid.claim(0, 10, 10));
+    }
+}
@@ -0,0 +1,124 @@
+package ui;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class PointRasterTest {
+
+    private static final int[] COLORS = {0xffff0000, 0xff00ff00, 0xff0000ff};
+
+    // Repainting the relabeled points gives the pixels that rendering everything with the new labels gives
+    @Test
+    public void relabelTest() {
+        Random   random = new Random(7);
+        int      size   = 3000;
+        double[] xs     = new double[size];
+        double[] ys     = new double[size];
+        int[]    ids    = new int[size];
+        for (int row = 0; row < size; row++) {
+            xs[row] = random.nextGaussian() * 30 - 5;      // some points fall off the edges
+            ys[row] = random.nextGaussian() * 20;
+            ids[row] = random.nextInt(COLORS.length);
+        }
+        PointRaster repainted = new PointRaster();
+        repainted.render(xs, ys, ids, size, COLORS, 200, 150, -100, 75, 1, 1);
+        for (int round = 0; round < 20; round++) {
+            int[] changed = new int[1 + random.nextInt(10)];
+            for (int i = 0; i < changed.length; i++) {
+                changed[i] = random.nextInt(size);
+                ids[changed[i]] = random.nextInt(COLORS.length);
+            }
+            Assert.assertTrue(repainted.relabel(changed, changed.length));
+
+            PointRaster rendered = new PointRaster();
+            rendered.render(xs, ys, ids, size, COLORS, 200, 150, -100, 75, 1, 1);
+            Assert.assertArrayEquals(rendered.getPixels(), repainted.getPixels());
+        }
+        Assert.assertFalse(repainted.relabel(new int[size], size));
+    }
+
+    // Thinning keeps the point on top: of labels 0, 1 and 0 on one pixel, drawing all three leaves the second 0 on top
+    @Test
+    public void overlapTest() {
+        double[]    xs     = {0, 0, 0, 3, 3, 3, 3};
+        double[]    ys     = {0, 0, 0, 0, 0, 0, 0};
+        int[]       ids    = {0, 1, 0, 2, 2, 1, 1};
+        PointRaster raster = new PointRaster();
+        raster.render(xs, ys, ids, xs.length, COLORS, 40, 30, -20, 15, 1, 1);
+        Assert.assertArrayEquals(unthinned(xs, ys, ids, xs.length, 40, 30, -20, 15), raster.getPixels());
+
+        ids[1] = 2;
+        ids[4] = 0;
+        Assert.assertTrue(raster.relabel(new int[]{1, 4}, 2));
+        Assert.assertArrayEquals(unthinned(xs, ys, ids, xs.length, 40, 30, -20, 15), raster.getPixels());
+    }
+
+    // Labels no point has, as a clusterer leaves the labels of the file it relabels, are no series and take no color
+    @Test
+    public void emptyLabelTest() {
+        int[] ids    = {3, 3, 1, 3, 1};
+        int[] series = PointRaster.seriesOf(ids, ids.length, 5);
+        Assert.assertArrayEquals(new int[]{-1, 1, -1, 0, -1}, series);
+
+        double[] xs    = {0, 5, 10, 15, 20};
+        double[] ys    = new double[xs.length];
+        int[]    drawn = new int[ids.length];
+        for (int row = 0; row < ids.length; row++)
+            drawn[row] = series[ids[row]];
+        PointRaster raster = new PointRaster();
+        raster.render(xs, ys, drawn, xs.length, COLORS, 40, 30, -10, 15, 1, 1);
+        Assert.assertArrayEquals(unthinned(xs, ys, drawn, xs.length, 40, 30, -10, 15), raster.getPixels());
+        Assert.assertEquals(COLORS[0], raster.getPixels()[15 * 40 + 10 - PointRaster.SYMBOL_RADIUS]);   // label 3
+    }
+
+    // Where thousands of points are stacked on each pixel, a repaint is declined rather than looking through them all
+    @Test
+    public void stackedTest() {
+        Random   random = new Random(11);
+        int      size   = 20000;
+        double[] xs     = new double[size];
+        double[] ys     = new double[size];
+        int[]    ids    = new int[size];
+        for (int row = 0; row < size; row++) {
+            xs[row] = random.nextInt(4);
+            ys[row] = random.nextInt(4);
+            ids[row] = random.nextInt(COLORS.length);
+        }
+        PointRaster raster = new PointRaster();
+        raster.render(xs, ys, ids, size, COLORS, 200, 150, -100, 75, 1, 1);
+        Assert.assertArrayEquals(unthinned(xs, ys, ids, size, 200, 150, -100, 75), raster.getPixels());
+        ids[0] = (ids[0] + 1) % COLORS.length;
+        Assert.assertTrue(raster.relabel(new int[]{0}, 1));
+        Assert.assertArrayEquals(unthinned(xs, ys, ids, size, 200, 150, -100, 75), raster.getPixels());
+
+        int[] changed = new int[10];
+        for (int i = 0; i < changed.length; i++) {
+            changed[i] = 1 + i;
+            ids[changed[i]] = (ids[changed[i]] + 1) % COLORS.length;
+        }
+        Assert.assertFalse(raster.relabel(changed, changed.length));
+    }
+
+    /** @return the pixels of stamping the symbol of every point, in row order */
+    private static int[] unthinned(double[] xs, double[] ys, int[] ids, int size, int width, int height,
+                                   double xLower, double yUpper) {
+        int[] pixels = new int[width * height];
+        int   r      = PointRaster.SYMBOL_RADIUS;
+        int   inner  = PointRaster.SYMBOL_RADIUS - PointRaster.SYMBOL_INSET;
+        for (int row = 0; row < size; row++) {
+            long px = Math.round(xs[row] - xLower);
+            long py = Math.round(yUpper - ys[row]);
+            for (int dy = -r; dy <= r; dy++) {
+                for (int dx = -r; dx <= r; dx++) {
+                    long x = px + dx;
+                    long y = py + dy;
+                    if (dx * dx + dy * dy <= r * r && x >= 0 && x < width && y >= 0 && y < height)
+                        pixels[(int) (y * width + x)] = dx * dx + dy * dy < inner * inner ? 0xffffffff : COLORS[ids[row]];
+                }
+            }
+        }
+        return pixels;
+    }
+}